@@ -0,0 +1,54 @@
+package org.talend.geat;
+
+import java.io.IOException;
+
+import org.eclipse.jgit.lib.Repository;
+import org.talend.geat.daemon.WatcherSupport;
+import org.talend.geat.daemon.WorkTreeWatcher;
+
+/**
+ * Tells if a repository has uncommitted changes, as Status.hasUncommittedChanges() would, without computing the whole
+ * status.
+ * 
+ * HEAD, index and working tree are walked together and the walk stops at the first difference. Untracked files are not
+ * uncommitted changes: directories that are neither in HEAD nor in the index are never listed, whatever they contain
+ * (build outputs for example).
+ * 
+ * When the working tree is watched by the daemon (see WorkTreeWatcher), only the paths changed since the last check are
+ * verified.
+ */
+public class DirtyCheck {
+
+    /**
+     * @return path of the first uncommitted change found (added, changed, removed, missing, modified or conflicting
+     *         file), or null if there is none
+     */
+    public static String findFirstChange(Repository repository) throws IOException {
+        return findFirstChange(repository, 1);
+    }
+
+    /**
+     * Same as findFirstChange(Repository), the working tree being walked by several threads (see WorkTreeStatus).
+     * 
+     * @param threads
+     *            0 for one per available processor
+     */
+    public static String findFirstChange(Repository repository, int threads) throws IOException {
+        WorkTreeWatcher watcher = WatcherSupport.AVAILABLE ? WorkTreeWatcher.get(repository) : null;
+        if (watcher == null) {
+            return new WorkTreeStatus(repository, threads).findFirstChange();
+        }
+
+        WorkTreeWatcher.Scan scan = watcher.startScan();
+        String change = null;
+        boolean checked = false;
+        try {
+            change = new WorkTreeStatus(repository, threads).setPaths(scan.getChanges()).findFirstChange();
+            checked = true;
+        } finally {
+            watcher.endScan(scan, checked && change == null);
+        }
+        return change;
+    }
+
+}
@@ -4,6 +4,7 @@ import org.talend.geat.commands.Command;
 import org.talend.geat.commands.CommandsRegistry;
 import org.talend.geat.commands.Help;
 import org.talend.geat.commands.Version;
+import org.talend.geat.daemon.GeatClient;
 import org.talend.geat.exception.IncorrectRepositoryStateException;
 import org.talend.geat.exception.InterruptedCommandException;
 
@@ -17,13 +18,34 @@ public class GeatMain {
             System.setProperty("user.dir", "/tmp/tuj-config");
         }
 
+        // If a daemon is running, let it do the job with its warm repositories:
+        if (GeatClient.isDaemonAvailable(args)) {
+            int status = GeatClient.forward(args);
+            if (status != GeatClient.DAEMON_UNREACHABLE) {
+                System.exit(status);
+            }
+        }
+
+        int status = run(args);
+        if (status != 0) {
+            System.exit(status);
+        }
+    }
+
+    /**
+     * Runs a command in the current JVM, using System.out as output. Never calls System.exit() so it can be used by
+     * the daemon.
+     * 
+     * @return the exit status of the command
+     */
+    public static int run(String[] args) {
         if (args.length < 1) {
-            usage();
+            return usage();
         }
 
         Command command = CommandsRegistry.INSTANCE.getCommand(args[0]);
         if (command == null) {
-            usage();
+            return usage();
         }
 
         try {
@@ -34,11 +56,15 @@ public class GeatMain {
             System.out.println(e.getDetails());
         } catch (Exception e) {
             System.out.println(e.getMessage());
+        } finally {
+            // Also opened when arguments are refused:
+            command.close();
         }
         System.out.println("");
+        return 0;
     }
 
-    private static void usage() {
+    private static int usage() {
         try {
             CommandsRegistry.INSTANCE.getCommand(Version.class.getCanonicalName()).run();
             System.out.println("\n");
@@ -47,7 +73,7 @@ public class GeatMain {
             // Should not occurs
         }
         System.out.println("");
-        System.exit(1);
+        return 1;
     }
 
 }
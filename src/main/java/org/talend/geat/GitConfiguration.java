@@ -1,19 +1,20 @@
 package org.talend.geat;
 
-import java.io.File;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 
-import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.lib.StoredConfig;
 import org.talend.geat.exception.IncorrectRepositoryStateException;
 
 /**
  * Used to interact with git config.
  * 
- * This class must be initialized with a working directory path. This path must be a GIT repository.
+ * Commands get the instance bound to their repository through RepositoryContext.getConfiguration(). getInstance() is
+ * kept for code running outside a command, and is initialized with the config of the working directory repository,
+ * which is not kept open.
  * 
  * When first init, default values are written in config.
  */
@@ -25,19 +26,26 @@ public class GitConfiguration {
 
     private StoredConfig            config;
 
+    GitConfiguration(StoredConfig config) {
+        super();
+        this.config = config;
+        setDefaultValues();
+    }
+
     public static void reset() {
         singleton = null;
     }
 
     public static GitConfiguration getInstance() throws IncorrectRepositoryStateException {
         if (singleton == null) {
-            File workingDirFile = new File(GitUtils.getWorkingGit());
-
             try {
-                Git repo = Git.open(workingDirFile);
-                singleton = new GitConfiguration();
-                singleton.config = repo.getRepository().getConfig();
-                singleton.setDefaultValues();
+                Repository repo = GitUtils.openRepository();
+                try {
+                    // The config is file based, it stays usable once the repository is closed
+                    singleton = new GitConfiguration(repo.getConfig());
+                } finally {
+                    repo.close();
+                }
             } catch (IOException e) {
                 // Should not occurs (SanityCheck bellow)
             }
@@ -55,6 +63,12 @@ public class GitConfiguration {
         defaultValues.put("bugfixPrefix", "bugfix");
         defaultValues.put("maintenancePrefix", "maintenance");
         defaultValues.put("releasePrefix", "release");
+        defaultValues.put("updateLocalStartPoint", "true");
+        defaultValues.put("statusThreads", "0");
+        defaultValues.put("watchWorkTree", "false");
+        defaultValues.put("checkoutThreads", "0");
+        defaultValues.put("cascadeThreads", "0");
+        defaultValues.put("refreshIndex", "true");
     }
 
     private void setDefaultValues() {
@@ -109,4 +123,18 @@ public class GitConfiguration {
         return config.getString(split[0], null, split[1]);
     }
 
+    /**
+     * Gets a number of threads from config (statusThreads, checkoutThreads, cascadeThreads): 0 means one per available
+     * processor.
+     */
+    public int getThreads(String key) throws IncorrectRepositoryStateException {
+        String value = get(key);
+        try {
+            return value == null ? 0 : Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IncorrectRepositoryStateException("Incorrect value for " + CONFIG_PREFIX + "." + key + ": '"
+                    + value + "' (a number is expected, 0 for one thread per processor).");
+        }
+    }
+
 }
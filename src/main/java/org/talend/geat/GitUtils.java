@@ -5,31 +5,52 @@ import java.io.IOException;
 import java.io.Writer;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
 import org.eclipse.jgit.api.CreateBranchCommand;
-import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.ListBranchCommand.ListMode;
 import org.eclipse.jgit.api.MergeCommand.FastForwardMode;
 import org.eclipse.jgit.api.MergeResult;
 import org.eclipse.jgit.api.MergeResult.MergeStatus;
+import org.eclipse.jgit.api.ResetCommand.ResetType;
 import org.eclipse.jgit.api.RebaseResult;
+import org.eclipse.jgit.api.errors.CheckoutConflictException;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.RefUpdate.Result;
 import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.RepositoryCache;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
 import org.eclipse.jgit.transport.RefSpec;
 import org.eclipse.jgit.transport.RemoteConfig;
-import org.eclipse.jgit.transport.URIish;
+import org.eclipse.jgit.transport.RemoteRefUpdate;
+import org.eclipse.jgit.util.FS;
 import org.talend.geat.commands.MergePolicy;
 import org.talend.geat.exception.IncorrectRepositoryStateException;
 import org.talend.geat.exception.InterruptedCommandException;
 import org.talend.geat.exception.NotRemoteException;
+import org.talend.geat.merge.InCoreCascade;
+import org.talend.geat.merge.InCoreMergeTrain;
+import org.talend.geat.merge.InCoreRebase;
+import org.talend.geat.merge.InCoreSquash;
+import org.talend.geat.merge.PatchIdCache;
 
 import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
 import com.google.common.base.Strings;
 import com.google.common.io.Files;
 
@@ -39,30 +60,38 @@ import com.google.common.io.Files;
 public class GitUtils {
 
     public static String getWorkingGit() throws IncorrectRepositoryStateException {
+        return findGitDir().getParentFile().getAbsolutePath();
+    }
+
+    private static File findGitDir() throws IncorrectRepositoryStateException {
         FileRepositoryBuilder frb = new FileRepositoryBuilder();
-        final File gitDir = frb.findGitDir().getGitDir();
+        final File gitDir = frb.findGitDir(new File(System.getProperty("user.dir"))).getGitDir();
         if (gitDir == null) {
             throw new IncorrectRepositoryStateException("You're not in a GIT repository");
-        } else {
-            return gitDir.getParentFile().getAbsolutePath();
         }
+        return gitDir;
     }
 
-    public static URIish getRemoteUrl(String remoteName) throws IncorrectRepositoryStateException {
-        try {
-            Git git = Git.open(new File(getWorkingGit()));
-            List<RemoteConfig> remoteConfigs = RemoteConfig.getAllRemoteConfigs(git.getRepository().getConfig());
-            for (RemoteConfig current : remoteConfigs) {
-                if (current.getName().equals(remoteName)) {
-                    return current.getURIs().get(0);
-                }
-            }
-        } catch (URISyntaxException e) {
-            System.out.println("WARN: " + e.getMessage());
-        } catch (IOException e) {
-            System.out.println("WARN: " + e.getMessage());
-        }
-        return null;
+    // Incremented by all threads of the daemon:
+    private static final AtomicInteger openedRepositories = new AtomicInteger();
+
+    /**
+     * Opens the repository of the working dir. Repositories are kept in JGit's RepositoryCache, so a long-lived process
+     * (see GeatDaemon) reuses already parsed config, refs and pack indexes from one command to another.
+     * 
+     * Commands must not call it, but use the repository of their RepositoryContext.
+     */
+    public static Repository openRepository() throws IOException, IncorrectRepositoryStateException {
+        Repository repository = RepositoryCache.open(RepositoryCache.FileKey.exact(findGitDir(), FS.DETECTED), true);
+        openedRepositories.incrementAndGet();
+        return repository;
+    }
+
+    /**
+     * @return how many times openRepository() has been called in this JVM
+     */
+    public static int getOpenedRepositoriesCount() {
+        return openedRepositories.get();
     }
 
     public static boolean hasRemote(String remoteName, Repository repository) {
@@ -84,24 +113,16 @@ public class GitUtils {
     }
 
     public static boolean hasRemoteBranch(Repository repository, String branch) throws GitAPIException, IOException {
-        boolean hasRemote = GitUtils.hasRemote("origin", repository);
-        if (!hasRemote) {
-            return false;
-        }
-
-        MyGit git = new MyGit(repository);
+        return hasRemoteBranch(new RepositoryContext(repository), branch);
+    }
 
-        Collection<Ref> lsRemoteBranches = git.lsRemote().setTags(false).setRemote("origin").call();
-        for (Ref current : lsRemoteBranches) {
-            if (current.getName().equals("refs/heads/" + branch)) {
-                return true;
-            }
-        }
-        return false;
+    public static boolean hasRemoteBranch(RepositoryContext context, String branch) throws GitAPIException {
+        return context.getRemoteBranch(branch) != null;
     }
 
     /**
-     * Choosen policy is git pull --rebase
+     * Choosen policy is git pull --rebase. If origin/<branch> is already up to date, nothing is fetched and the branch
+     * is only rebased on it.
      * 
      * @return true if local branch has been created, false if branch previously exists and was only updated
      * @throws NotRemoteException
@@ -109,29 +130,265 @@ public class GitUtils {
      */
     public static boolean callFetch(Repository repository, String branch) throws GitAPIException, IOException,
             NotRemoteException, IncorrectRepositoryStateException {
-        MyGit git = MyGit.open();
+        return callFetch(new RepositoryContext(repository), branch);
+    }
 
-        if (!hasRemoteBranch(repository, branch)) {
+    public static boolean callFetch(RepositoryContext context, String branch) throws GitAPIException, IOException,
+            NotRemoteException, IncorrectRepositoryStateException {
+        if (!hasRemoteBranch(context, branch)) {
             throw new NotRemoteException("No remote branch '" + branch + "'. Cannot fetch it.");
         }
 
-        if (hasLocalBranch(repository, branch)) {
-            // git checkout <branch>
-            git.checkout().setName(branch).call();
+        if (!context.isRemoteTrackingUpToDate(branch)) {
+            context.getGit().fetch().setRefSpecs(getRemoteTrackingRefSpec(branch)).setRemote("origin").call();
+        }
+        return updateFromRemoteTracking(context, branch, true);
+    }
 
-            // git pull --rebase origin
-            git.pull().setRebase(true).setRemote("origin").call();
+    /**
+     * Same as callFetch() on each of these branches, but all branches are fetched in one single connection to origin.
+     * Branches origin does not have are ignored.
+     * 
+     * Branches are not checked out: except the current one, they are updated without touching the working tree.
+     * 
+     * @return how many branches had to be fetched
+     */
+    public static int callFetchAll(RepositoryContext context, String... branches) throws GitAPIException, IOException,
+            IncorrectRepositoryStateException {
+        List<String> remoteBranches = new ArrayList<String>();
+        List<RefSpec> refSpecs = new ArrayList<RefSpec>();
+        for (String branch : branches) {
+            if (hasRemoteBranch(context, branch)) {
+                remoteBranches.add(branch);
+                if (!context.isRemoteTrackingUpToDate(branch)) {
+                    refSpecs.add(getRemoteTrackingRefSpec(branch));
+                }
+            }
+        }
 
+        if (!refSpecs.isEmpty()) {
+            context.getGit().fetch().setRefSpecs(refSpecs).setRemote("origin").call();
+        }
+        for (String branch : remoteBranches) {
+            updateFromRemoteTracking(context, branch, false);
+        }
+        return refSpecs.size();
+    }
+
+    private static RefSpec getRemoteTrackingRefSpec(String branch) {
+        return new RefSpec("refs/heads/" + branch + ":refs/remotes/origin/" + branch);
+    }
+
+    /**
+     * Rebases the local branch on origin/<branch>, or creates it from origin/<branch> if it does not exist.
+     * 
+     * If checkout is false and the branch is not the current one, the working tree is not touched when possible:
+     * branch is created, or fast-forwarded, by writing its ref only.
+     * 
+     * @return true if local branch has been created
+     */
+    private static boolean updateFromRemoteTracking(RepositoryContext context, String branch, boolean checkout)
+            throws GitAPIException, IOException, IncorrectRepositoryStateException {
+        MyGit git = context.getGit();
+        Repository repository = context.getRepository();
+        boolean current = (Constants.R_HEADS + branch).equals(repository.getFullBranch());
+
+        if (!checkout && !current) {
+            if (!hasLocalBranch(repository, branch)) {
+                git.branchCreate().setName(branch).setUpstreamMode(CreateBranchCommand.SetupUpstreamMode.TRACK)
+                        .setStartPoint("origin/" + branch).call();
+                return true;
+            } else if (fastForward(repository, branch, "origin/" + branch)) {
+                return false;
+            }
+            // Branches have diverged, a real rebase is needed
+        }
+
+        if (hasLocalBranch(repository, branch)) {
+            // git checkout <branch>
+            checkout(context, branch);
+            // git rebase origin/<branch>
+            git.rebase().setUpstream("origin/" + branch).call();
             return false;
         } else {
-            git.fetch().setRefSpecs(new RefSpec("refs/heads/" + branch + ":refs/heads/" + branch)).setRemote("origin")
-                    .call();
-            git.checkout().setName(branch).setUpstreamMode(CreateBranchCommand.SetupUpstreamMode.TRACK)
+            git.branchCreate().setName(branch).setUpstreamMode(CreateBranchCommand.SetupUpstreamMode.TRACK)
                     .setStartPoint("origin/" + branch).call();
+            checkout(context, branch);
             return true;
         }
     }
 
+    /**
+     * Moves a local branch to upstream, only by updating its ref (working tree and index are not touched, so branch
+     * must not be the current one).
+     * 
+     * @return true if branch now contains upstream (was already up to date, or has been fast-forwarded), false if they
+     *         have diverged
+     */
+    private static boolean fastForward(Repository repository, String branch, String upstream) throws IOException {
+        RevWalk walk = new RevWalk(repository);
+        try {
+            RevCommit local = walk.parseCommit(repository.resolve(Constants.R_HEADS + branch));
+            RevCommit remote = walk.parseCommit(repository.resolve(upstream));
+            if (walk.isMergedInto(remote, local)) {
+                return true;
+            }
+            if (!walk.isMergedInto(local, remote)) {
+                return false;
+            }
+
+            RefUpdate update = repository.updateRef(Constants.R_HEADS + branch);
+            update.setExpectedOldObjectId(local);
+            update.setNewObjectId(remote);
+            update.setRefLogMessage("geat: fast-forward to " + upstream, false);
+            Result result = update.update(walk);
+            if (result != Result.FAST_FORWARD) {
+                throw new IOException("Cannot update '" + branch + "': " + result);
+            }
+            return true;
+        } finally {
+            walk.release();
+        }
+    }
+
+    /**
+     * Creates a branch on the up to date start point and checks it out: working tree is switched only once, from
+     * current HEAD to the new branch (start point is never checked out).
+     * 
+     * If origin has the start point, origin/<startPoint> is fetched if needed and the new branch is based on it, unless
+     * the local start point has commits origin does not have. Then, if geat.updateLocalStartPoint is true, the local
+     * start point is fast-forwarded to origin/<startPoint> (or created from it) by writing its ref only.
+     * 
+     * @return true if the local start point has been fast-forwarded or created
+     */
+    public static boolean startBranch(RepositoryContext context, String startPoint, String branch)
+            throws GitAPIException, IOException, IncorrectRepositoryStateException {
+        MyGit git = context.getGit();
+        Repository repository = context.getRepository();
+        boolean remote = context.hasRemote("origin") && hasRemoteBranch(context, startPoint);
+        boolean local = hasLocalBranch(repository, startPoint);
+        String upstream = "origin/" + startPoint;
+
+        String base = startPoint;
+        if (remote) {
+            if (!context.isRemoteTrackingUpToDate(startPoint)) {
+                git.fetch().setRefSpecs(getRemoteTrackingRefSpec(startPoint)).setRemote("origin").call();
+            }
+            if (!local || isMergedInto(repository, Constants.R_HEADS + startPoint, upstream)) {
+                base = upstream;
+            }
+        }
+
+        git.branchCreate().setName(branch).setStartPoint(base)
+                .setUpstreamMode(CreateBranchCommand.SetupUpstreamMode.NOTRACK).call();
+        checkout(context, branch);
+
+        if (!remote || !Boolean.parseBoolean(context.getConfiguration().get("updateLocalStartPoint"))) {
+            return false;
+        }
+        if (!local) {
+            git.branchCreate().setName(startPoint).setUpstreamMode(CreateBranchCommand.SetupUpstreamMode.TRACK)
+                    .setStartPoint(upstream).call();
+            return true;
+        }
+        ObjectId before = repository.resolve(Constants.R_HEADS + startPoint);
+        fastForward(repository, startPoint, upstream);
+        return !before.equals(repository.resolve(Constants.R_HEADS + startPoint));
+    }
+
+    /**
+     * Pushes the local branch to origin, or deletes it there if delete is true, only if origin's branch is still at
+     * expectedOldId (zero id: origin must not have this branch yet). Check and update are done in the same round trip,
+     * so a co-worker updating the branch meanwhile makes the push fail instead of being overwritten.
+     * 
+     * @return the update, with the status origin answered (see checkPushed())
+     */
+    public static RemoteRefUpdate pushExpecting(RepositoryContext context, String branch, boolean delete,
+            ObjectId expectedOldId) throws GitAPIException, IOException {
+        RemoteRefUpdate update = new RemoteRefUpdate(context.getRepository(), delete ? null : Constants.R_HEADS
+                + branch, Constants.R_HEADS + branch, false, Constants.R_REMOTES + "origin/" + branch, expectedOldId);
+        context.getGit().push(Collections.singleton(update));
+        return update;
+    }
+
+    /**
+     * @return true if origin has this update: applied, already up to date, or a deletion of a branch it did not have
+     */
+    public static boolean isPushed(RemoteRefUpdate update) {
+        switch (update.getStatus()) {
+        case OK:
+        case UP_TO_DATE:
+        case NON_EXISTING:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /**
+     * @throws IncorrectRepositoryStateException
+     *             if origin has not applied this update (see isPushed())
+     */
+    public static void checkPushed(RemoteRefUpdate update) throws IncorrectRepositoryStateException {
+        if (!isPushed(update)) {
+            IncorrectRepositoryStateException irse = new IncorrectRepositoryStateException("Origin refused to update '"
+                    + Repository.shortenRefName(update.getRemoteName()) + "' (" + update.getStatus() + ").");
+            if (update.getMessage() != null) {
+                irse.addLine(update.getMessage());
+            }
+            throw irse;
+        }
+    }
+
+    /**
+     * git checkout <branch>, files being written by several threads (see ParallelCheckout). If geat.checkoutThreads is
+     * 1, JGit's CheckoutCommand is used.
+     */
+    public static void checkout(RepositoryContext context, String branch) throws GitAPIException, IOException,
+            IncorrectRepositoryStateException {
+        Repository repository = context.getRepository();
+        int threads = context.getConfiguration().getThreads("checkoutThreads");
+        ObjectId headTree = repository.resolve(Constants.HEAD + "^{tree}");
+        ObjectId newTree = repository.resolve(Constants.R_HEADS + branch + "^{tree}");
+        if (threads == 1 || headTree == null || newTree == null) {
+            context.getGit().checkout().setName(branch).call();
+            context.setIndexRewritten();
+            return;
+        }
+        String previous = repository.getBranch();
+        if (previous.equals(branch)) {
+            return;
+        }
+
+        DirCache dirCache = repository.lockDirCache();
+        ParallelCheckout checkout = new ParallelCheckout(repository, headTree, dirCache, newTree, threads);
+        try {
+            checkout.checkout();
+        } catch (org.eclipse.jgit.errors.CheckoutConflictException e) {
+            throw new CheckoutConflictException(checkout.getConflicts(), e);
+        } finally {
+            dirCache.unlock();
+        }
+        context.setIndexRewritten();
+
+        RefUpdate head = repository.updateRef(Constants.HEAD);
+        head.setRefLogMessage("checkout: moving from " + previous + " to " + branch, false);
+        Result result = head.link(Constants.R_HEADS + branch);
+        if (result != Result.NEW && result != Result.FORCED && result != Result.NO_CHANGE) {
+            throw new IOException("Cannot checkout '" + branch + "': " + result);
+        }
+    }
+
+    private static boolean isMergedInto(Repository repository, String base, String tip) throws IOException {
+        RevWalk walk = new RevWalk(repository);
+        try {
+            return walk.isMergedInto(walk.parseCommit(repository.resolve(base)),
+                    walk.parseCommit(repository.resolve(tip)));
+        } finally {
+            walk.release();
+        }
+    }
+
     public static String getShortName(Ref ref) {
         if (ref.getName().startsWith("refs/heads/")) {
             return ref.getName().substring("refs/heads/".length());
@@ -141,11 +398,24 @@ public class GitUtils {
         return ref.getName();
     }
 
+    /**
+     * Same as listBranches(RepositoryContext, String) on the working dir repository, opened and closed by this call.
+     * Commands use their own context instead.
+     */
     public static List<String> listBranches(final String pattern) throws GitAPIException, IOException,
             IncorrectRepositoryStateException {
+        RepositoryContext context = RepositoryContext.open();
+        try {
+            return listBranches(context, pattern);
+        } finally {
+            context.close();
+        }
+    }
+
+    public static List<String> listBranches(RepositoryContext context, final String pattern) throws GitAPIException {
         Set<String> toReturn = new TreeSet<String>();
 
-        MyGit git = MyGit.open();
+        MyGit git = context.getGit();
         List<Ref> call = git.branchList2().setListMode(ListMode.ALL).setPattern(pattern).call();
 
         for (Ref ref : call) {
@@ -157,17 +427,25 @@ public class GitUtils {
 
     public static String getBugfixBranchName(String startPoint, String bugName)
             throws IncorrectRepositoryStateException {
-        String toReturn = GitConfiguration.getInstance().get("bugfixPrefix");
-        toReturn += "/" + extractRootFromBranchName(startPoint);
+        return getBugfixBranchName(GitConfiguration.getInstance(), startPoint, bugName);
+    }
+
+    public static String getBugfixBranchName(GitConfiguration configuration, String startPoint, String bugName) {
+        String toReturn = configuration.get("bugfixPrefix");
+        toReturn += "/" + extractRootFromBranchName(configuration, startPoint);
         toReturn += "/" + bugName;
         return toReturn;
     }
 
     protected static String extractRootFromBranchName(String branchName) throws IncorrectRepositoryStateException {
-        if (branchName.startsWith(GitConfiguration.getInstance().get("maintenanceprefix"))) {
-            return branchName.substring(GitConfiguration.getInstance().get("maintenanceprefix").length() + 1);
-        } else if (branchName.startsWith(GitConfiguration.getInstance().get("releasePrefix"))) {
-            return branchName.substring(GitConfiguration.getInstance().get("releasePrefix").length() + 1);
+        return extractRootFromBranchName(GitConfiguration.getInstance(), branchName);
+    }
+
+    protected static String extractRootFromBranchName(GitConfiguration configuration, String branchName) {
+        if (branchName.startsWith(configuration.get("maintenanceprefix"))) {
+            return branchName.substring(configuration.get("maintenanceprefix").length() + 1);
+        } else if (branchName.startsWith(configuration.get("releasePrefix"))) {
+            return branchName.substring(configuration.get("releasePrefix").length() + 1);
         } else {
             return branchName;
         }
@@ -184,27 +462,33 @@ public class GitUtils {
      *            feature or bugfix (only used to display approriate message)
      * @param mergePolicy
      *            the policy used to merge (squash, rebase)
+     * @param publish
+     *            true to push target and delete source on origin, in one push that origin applies only if neither
+     *            branch has moved since it was fetched (see publish())
      */
-    public static void merge(Writer writer, Git repo, String name, String sourcePrefix, String target,
-            String branchType, MergePolicy mergePolicy, String command) throws IOException,
-            InterruptedCommandException, GitAPIException, IncorrectRepositoryStateException {
-        String source = getBugfixBranchName(target, name);
+    public static void merge(Writer writer, RepositoryContext context, String name, String sourcePrefix,
+            String target, String branchType, MergePolicy mergePolicy, String command, boolean publish)
+            throws IOException, InterruptedCommandException, GitAPIException, IncorrectRepositoryStateException {
+        MyGit repo = context.getGit();
+        String source = getBugfixBranchName(context.getConfiguration(), target, name);
         if (branchType.equals("feature")) {
             source = sourcePrefix + "/" + name;
         }
+        if (publish) {
+            command += " --publish";
+        }
 
-        boolean hasRemote = GitUtils.hasRemote("origin", repo.getRepository());
+        boolean hasRemote = context.hasRemote("origin");
+        if (publish && !hasRemote) {
+            throw noRemoteToPublish(command, name);
+        }
 
-        boolean continueAfterConflict = previouslyFinishingThisFeature(source, writer, command);
+        boolean continueAfterConflict = previouslyFinishingThisFeature(context, source, writer, command);
 
         // 1. Update sources from remote
+        int fetchedBranches = 0;
         if (hasRemote) {
-            try {
-                GitUtils.callFetch(repo.getRepository(), target);
-                GitUtils.callFetch(repo.getRepository(), source);
-            } catch (NotRemoteException e) {
-                // We don't care
-            }
+            fetchedBranches = GitUtils.callFetchAll(context, target, source);
         }
 
         // 2. Test if such a branch exists
@@ -220,34 +504,39 @@ public class GitUtils {
         }
 
         // 3. Try to rebase feature branch
+        ObjectId targetBefore = repo.getRepository().resolve(Constants.R_HEADS + target);
         if (mergePolicy == MergePolicy.REBASE) {
-            if (!continueAfterConflict) {
-                // git checkout feature/myfeature
-                repo.checkout().setName(source).call();
-                // git rebase master
-                RebaseResult rebaseResult = repo.rebase().setUpstream(target).call();
-
-                if (rebaseResult.getStatus() == RebaseResult.Status.STOPPED) {
-                    createMergeAbortedMarker(source, target, name, mergePolicy, command);
+            // Rebase is replayed in memory, unless there are conflicts to resolve in the working tree:
+            if (continueAfterConflict || !rebaseInCore(context, source, target)) {
+                if (!continueAfterConflict) {
+                    // git checkout feature/myfeature
+                    checkout(context, source);
+                    // git rebase master
+                    RebaseResult rebaseResult = repo.rebase().setUpstream(target).call();
+
+                    if (rebaseResult.getStatus() == RebaseResult.Status.STOPPED) {
+                        createMergeAbortedMarker(context, source, target, name, mergePolicy, command);
+                    }
                 }
-            }
 
-            // git checkout master
-            repo.checkout().setName(target).call();
-            // re-init featureBranchName because we just changed it:
-            Ref ref = repo.getRepository().getRef(source);
-            // git merge feature/myfeature
-            repo.merge().setFastForward(FastForwardMode.FF_ONLY).include(ref).call();
+                // git checkout master
+                checkout(context, target);
+                // re-init featureBranchName because we just changed it:
+                Ref ref = repo.getRepository().getRef(source);
+                // git merge feature/myfeature
+                repo.merge().setFastForward(FastForwardMode.FF_ONLY).include(ref).call();
+            }
         } else if (mergePolicy == MergePolicy.SQUASH) {
-            if (!continueAfterConflict) {
+            // Squash is computed in memory, unless there are conflicts to resolve in the working tree:
+            if (!continueAfterConflict && !squashInCore(context, source, target, branchType, name)) {
                 // git checkout master
-                repo.checkout().setName(target).call();
+                checkout(context, target);
                 // git merge --squash feature/myfeature
                 Ref ref = repo.getRepository().getRef(source);
                 MergeResult mergeResult = repo.merge().setSquash(true).include(ref).call();
 
                 if (mergeResult.getMergeStatus() == MergeStatus.CONFLICTING) {
-                    createMergeAbortedMarker(source, target, name, mergePolicy, command);
+                    createMergeAbortedMarker(context, source, target, name, mergePolicy, command);
                 }
 
                 String msg = InputsUtils.askUser("Commit message", "Finish " + branchType + " " + name);
@@ -256,20 +545,33 @@ public class GitUtils {
         }
 
         // 4. Remove feature branch
+        boolean sourceDeleted = true;
+        if (publish) {
+            sourceDeleted = publish(writer, context, Collections.singletonList(source), Collections.singletonMap(
+                    target, targetBefore),
+                    command + " " + name + " " + mergePolicy.toString().toLowerCase());
+        }
         repo.branchDelete().setBranchNames(source).setForce(mergePolicy == MergePolicy.SQUASH).call();
-        if (hasRemote && hasRemoteBranch(repo.getRepository(), source)) {
-            RefSpec refSpec = new RefSpec().setSource(null).setDestination("refs/heads/" + source);
-            repo.push().setRefSpecs(refSpec).setRemote("origin").call();
+        if (hasRemote && !publish) {
+            deleteRemoteSource(context, source, target, branchType);
         }
 
         writer.write("Summary of actions:");
         if (hasRemote) {
             writer.write(" - New commits from 'origin/" + source + "' has been pulled");
+            if (fetchedBranches > 1) {
+                writer.write(" - " + fetchedBranches + " branches fetched in a single connection to origin ("
+                        + (fetchedBranches - 1) + " connection(s) saved)");
+            }
         }
         writer.write(" - The " + branchType + " branch '" + source + "' was rebased into '" + target + "'");
         writer.write(" - " + branchType + " branch '" + source + "' has been deleted");
+        if (publish) {
+            writer.write(" - '" + target + "' has been pushed to origin, and '" + source
+                    + (sourceDeleted ? "' deleted there, in one single push" : "' kept there (see warning above)"));
+        }
         writer.write(" - You are now on branch '" + target + "'");
-        if (hasRemote) {
+        if (hasRemote && !publish) {
             writer.write("");
             writer.write("Now, your new " + branchType + " is ready to be pushed. To do this, use:");
             writer.write("");
@@ -278,6 +580,560 @@ public class GitUtils {
         }
     }
 
+    /**
+     * Finishes these features on their start point, in order, with one fetch and one push: all branches are fetched at
+     * once, each feature is squashed or rebased in memory on the result of the previous ones (see InCoreMergeTrain),
+     * then the start point and the deletion of the finished features are published in one single push.
+     * 
+     * Stops at the first feature that does not apply without conflicts: features before it are finished and
+     * published, the others are left untouched.
+     * 
+     * @param names
+     *            features to finish, in order
+     */
+    public static void mergeTrain(Writer writer, RepositoryContext context, List<String> names,
+            MergePolicy mergePolicy, String command) throws IOException, InterruptedCommandException, GitAPIException,
+            IncorrectRepositoryStateException {
+        MyGit repo = context.getGit();
+        String target = context.getConfiguration().get("featureStartPoint");
+        String prefix = context.getConfiguration().get("featurePrefix");
+        Map<String, String> sources = new LinkedHashMap<String, String>();
+        for (String name : names) {
+            sources.put(prefix + "/" + name, "Finish feature " + name);
+        }
+
+        // 1. Update target and all features from remote, in one connection
+        boolean hasRemote = context.hasRemote("origin");
+        int fetchedBranches = 0;
+        if (hasRemote) {
+            List<String> branches = new ArrayList<String>(sources.keySet());
+            branches.add(0, target);
+            fetchedBranches = callFetchAll(context, branches.toArray(new String[branches.size()]));
+        }
+
+        // 2. Test if all branches exist
+        List<String> missing = new ArrayList<String>();
+        for (String source : sources.keySet()) {
+            if (!hasLocalBranch(repo.getRepository(), source)) {
+                missing.add(source);
+            }
+        }
+        if (!missing.isEmpty()) {
+            IncorrectRepositoryStateException irse = new IncorrectRepositoryStateException("No local branch named '"
+                    + Joiner.on("', '").join(missing) + "'");
+            irse.addLine("To see feature branches that may be finish, use:\n");
+            irse.addLine(Strings.repeat(" ", Configuration.INSTANCE.getAsInt("geat.indentForCommandTemplates"))
+                    + "git branch --list " + prefix + "/*");
+            throw irse;
+        }
+
+        // 3. Apply features one after the other, in memory
+        ObjectId targetBefore = repo.getRepository().resolve(Constants.R_HEADS + target);
+        PatchIdCache patchIdCache = new PatchIdCache(new File(context.getGeatFolder(), "patch-ids"));
+        InCoreMergeTrain train = new InCoreMergeTrain(context.getRepository(), target,
+                mergePolicy == MergePolicy.SQUASH, patchIdCache);
+        train.setCheckoutThreads(context.getConfiguration().getThreads("checkoutThreads"));
+        try {
+            train.call(sources);
+        } finally {
+            train.release();
+        }
+        List<String> merged = train.getMerged();
+        if (!merged.isEmpty()) {
+            context.setIndexRewritten();
+        }
+
+        // 4. Publish target and remove finished features
+        boolean sourcesDeleted = true;
+        if (hasRemote && !merged.isEmpty()) {
+            sourcesDeleted = publish(writer, context, merged, Collections.singletonMap(target, targetBefore),
+                    command + " " + Joiner.on(' ').join(names.subList(0, merged.size())) + " --"
+                            + mergePolicy.toString().toLowerCase());
+        }
+        for (String source : merged) {
+            // Forced: rebased or squashed commits are on target, not the ones of the branch
+            repo.branchDelete().setBranchNames(source).setForce(true).call();
+        }
+
+        writer.write("Summary of actions:");
+        if (hasRemote) {
+            writer.write(" - " + fetchedBranches + " branches fetched in a single connection to origin");
+        }
+        writer.write(" - " + merged.size() + " feature(s) "
+                + (mergePolicy == MergePolicy.SQUASH ? "squashed" : "rebased") + " into '" + target + "': "
+                + Joiner.on(", ").join(merged));
+        if (!merged.isEmpty()) {
+            writer.write(" - Finished feature branches have been deleted");
+            if (hasRemote) {
+                writer.write(" - '" + target + "' has been pushed to origin, and finished features "
+                        + (sourcesDeleted ? "deleted there, in one single push" : "not all deleted there (see above)"));
+            }
+        }
+        writer.write(" - You are now on branch '" + repo.getRepository().getBranch() + "'");
+
+        if (train.getConflictingSource() != null) {
+            String conflicting = train.getConflictingSource();
+            InterruptedCommandException ice = new InterruptedCommandException("Feature '" + conflicting
+                    + "' does not apply on '" + target + "' without conflicts, the train stopped there.");
+            if (train.getConflictingCommit() != null) {
+                ice.addLine("Commit " + train.getConflictingCommit() + " conflicts on:");
+            } else {
+                ice.addLine("Conflicting files:");
+            }
+            for (String path : train.getConflictingPaths()) {
+                ice.addLine(Strings.repeat(" ", Configuration.INSTANCE.getAsInt("geat.indentForCommandTemplates"))
+                        + path);
+            }
+            ice.addLine("");
+            ice.addLine("Finish it alone to resolve them, then the remaining features:\n");
+            List<String> remaining = names.subList(merged.size(), names.size());
+            ice.addLine(Strings.repeat(" ", Configuration.INSTANCE.getAsInt("geat.indentForCommandTemplates"))
+                    + "geat feature-finish " + remaining.get(0) + " " + mergePolicy.toString().toLowerCase());
+            if (remaining.size() > 1) {
+                ice.addLine(Strings.repeat(" ", Configuration.INSTANCE.getAsInt("geat.indentForCommandTemplates"))
+                        + "geat " + command + " " + Joiner.on(' ').join(remaining.subList(1, remaining.size()))
+                        + " --" + mergePolicy.toString().toLowerCase());
+            }
+            throw ice;
+        }
+    }
+
+    /**
+     * Finishes a bugfix on its start point, then forward-ports it to all newer maintenance and release lines and to
+     * bugfixStartPoint (see listNewerLines()), with one fetch and, if publish, one push: the cherry-picks on each line
+     * are computed in memory and in parallel (see InCoreCascade), only the start point is checked out.
+     * 
+     * Stops at the first line, in version order, where the bugfix does not apply without conflicts: lines before it
+     * are updated (and published), the others are left untouched.
+     * 
+     * @param target
+     *            start point of the bugfix
+     */
+    public static void cascade(Writer writer, RepositoryContext context, String name, String target,
+            MergePolicy mergePolicy, String command, boolean publish) throws IOException, InterruptedCommandException,
+            GitAPIException, IncorrectRepositoryStateException {
+        MyGit repo = context.getGit();
+        String source = getBugfixBranchName(context.getConfiguration(), target, name);
+        command += " --cascade";
+        if (publish) {
+            command += " --publish";
+        }
+
+        boolean hasRemote = context.hasRemote("origin");
+        if (publish && !hasRemote) {
+            throw noRemoteToPublish(command, name);
+        }
+        List<String> lines = listNewerLines(context, target);
+
+        // 1. Update start point, bugfix and newer lines from remote, in one connection
+        int fetchedBranches = 0;
+        if (hasRemote) {
+            List<String> branches = new ArrayList<String>(lines);
+            branches.add(0, target);
+            branches.add(1, source);
+            fetchedBranches = callFetchAll(context, branches.toArray(new String[branches.size()]));
+        }
+
+        // 2. Test if such a branch exists
+        if (!hasLocalBranch(repo.getRepository(), source)) {
+            IncorrectRepositoryStateException irse = new IncorrectRepositoryStateException("No local branch named '"
+                    + source + "'");
+            irse.addLine("To see BugFix branches that may be finish, use:\n");
+            irse.addLine(Strings.repeat(" ", Configuration.INSTANCE.getAsInt("geat.indentForCommandTemplates"))
+                    + "git branch --list " + context.getConfiguration().get("bugfixPrefix") + "/*");
+            throw irse;
+        }
+
+        // 3. Finish on start point and cherry-pick on newer lines, in memory
+        Map<String, ObjectId> before = new LinkedHashMap<String, ObjectId>();
+        before.put(target, repo.getRepository().resolve(Constants.R_HEADS + target));
+        for (String line : lines) {
+            before.put(line, repo.getRepository().resolve(Constants.R_HEADS + line));
+        }
+        String message = null;
+        if (mergePolicy == MergePolicy.SQUASH) {
+            message = InputsUtils.askUser("Commit message", "Finish BugFix " + name);
+        }
+        PatchIdCache patchIdCache = new PatchIdCache(new File(context.getGeatFolder(), "patch-ids"));
+        InCoreCascade cascade = new InCoreCascade(context.getRepository(), source, target, lines,
+                mergePolicy == MergePolicy.SQUASH, patchIdCache);
+        cascade.setCheckoutThreads(context.getConfiguration().getThreads("checkoutThreads"));
+        cascade.setThreads(context.getConfiguration().getThreads("cascadeThreads"));
+        try {
+            cascade.call(message);
+        } finally {
+            cascade.release();
+        }
+        if (target.equals(cascade.getConflictingLine())) {
+            IncorrectRepositoryStateException irse = new IncorrectRepositoryStateException("BugFix '" + source
+                    + "' does not apply on '" + target + "' without conflicts, nothing was done.");
+            irse.addLine("Finish it without cascade to resolve them in the working tree:");
+            irse.addLine("");
+            irse.addLine(Strings.repeat(" ", Configuration.INSTANCE.getAsInt("geat.indentForCommandTemplates"))
+                    + "geat " + command.replace(" --cascade", "") + " " + name + " "
+                    + extractRootFromBranchName(context.getConfiguration(), target) + " "
+                    + mergePolicy.toString().toLowerCase());
+            throw irse;
+        }
+        context.setIndexRewritten();
+        List<String> ported = cascade.getPorted();
+
+        // 4. Publish start point and ported lines, and remove bugfix branch
+        boolean sourceDeleted = true;
+        if (publish) {
+            Map<String, ObjectId> targets = new LinkedHashMap<String, ObjectId>();
+            targets.put(target, before.get(target));
+            for (String line : ported) {
+                targets.put(line, before.get(line));
+            }
+            sourceDeleted = publish(writer, context, Collections.singletonList(source), targets, command + " "
+                    + name + " " + extractRootFromBranchName(context.getConfiguration(), target) + " "
+                    + mergePolicy.toString().toLowerCase());
+        }
+        repo.branchDelete().setBranchNames(source).setForce(true).call();
+        if (hasRemote && !publish) {
+            deleteRemoteSource(context, source, target, "BugFix");
+        }
+
+        writer.write("Summary of actions:");
+        if (hasRemote) {
+            writer.write(" - " + fetchedBranches + " branches fetched in a single connection to origin");
+        }
+        writer.write(" - The BugFix branch '" + source + "' was " + (mergePolicy == MergePolicy.SQUASH ? "squashed"
+                : "rebased") + " into '" + target + "'");
+        if (!ported.isEmpty()) {
+            writer.write(" - " + cascade.getPortedCommits().size() + " commit(s) cherry-picked on '"
+                    + Joiner.on("', '").join(ported) + "'");
+        }
+        writer.write(" - BugFix branch '" + source + "' has been deleted");
+        if (publish) {
+            writer.write(" - '" + target + (ported.isEmpty() ? "" : "', '" + Joiner.on("', '").join(ported))
+                    + "' have been pushed to origin, and '" + source
+                    + (sourceDeleted ? "' deleted there, in one single push" : "' kept there (see warning above)"));
+        }
+        writer.write(" - You are now on branch '" + target + "'");
+
+        if (cascade.getConflictingLine() != null) {
+            String line = cascade.getConflictingLine();
+            InterruptedCommandException ice = new InterruptedCommandException("BugFix '" + source
+                    + "' does not apply on '" + line + "' without conflicts, the cascade stopped there.");
+            ice.addLine("Commit " + cascade.getConflictingCommit() + " conflicts on:");
+            for (String path : cascade.getConflictingPaths()) {
+                ice.addLine(Strings.repeat(" ", Configuration.INSTANCE.getAsInt("geat.indentForCommandTemplates"))
+                        + path);
+            }
+            ice.addLine("");
+            ice.addLine("To port it by hand, use:\n");
+            List<ObjectId> commits = cascade.getPortedCommits();
+            ice.addLine(Strings.repeat(" ", Configuration.INSTANCE.getAsInt("geat.indentForCommandTemplates"))
+                    + "git checkout " + line);
+            ice.addLine(Strings.repeat(" ", Configuration.INSTANCE.getAsInt("geat.indentForCommandTemplates"))
+                    + "git cherry-pick -x " + (commits.size() == 1 ? commits.get(0).name() : commits.get(0).name()
+                            + "^.." + commits.get(commits.size() - 1).name()));
+            List<String> remaining = lines.subList(lines.indexOf(line) + 1, lines.size());
+            if (!remaining.isEmpty()) {
+                ice.addLine("");
+                ice.addLine("Then on '" + Joiner.on("', '").join(remaining) + "' too.");
+            }
+            throw ice;
+        }
+        if (hasRemote && !publish) {
+            writer.write("");
+            writer.write("Now, your BugFix is ready to be pushed. To do this, use:");
+            writer.write("");
+            writer.write(Strings.repeat(" ", Configuration.INSTANCE.getAsInt("geat.indentForCommandTemplates"))
+                    + "git push origin " + target + (ported.isEmpty() ? "" : " " + Joiner.on(' ').join(ported)));
+        }
+    }
+
+    /**
+     * Lines without a numbered version (maintenance/next) can not be ordered: they are never in the list, and only
+     * bugfixStartPoint is newer than them.
+     * 
+     * @return maintenance and release lines newer than this one, oldest first, then bugfixStartPoint. Lines are local
+     *         or remote branches, ordered by version (see compareLines()), then by name for the same version (5.4 and
+     *         5.04). Empty for bugfixStartPoint itself.
+     */
+    public static List<String> listNewerLines(RepositoryContext context, String line) throws GitAPIException {
+        final GitConfiguration configuration = context.getConfiguration();
+        String last = configuration.get("bugfixStartPoint");
+        List<String> toReturn = new ArrayList<String>();
+        if (line.equals(last)) {
+            return toReturn;
+        }
+        for (String branch : listBranches(context, Pattern.quote(configuration.get("maintenancePrefix")) + "/.*|"
+                + Pattern.quote(configuration.get("releasePrefix")) + "/.*")) {
+            if (parseVersion(extractRootFromBranchName(configuration, branch)) != null
+                    && compareLines(configuration, branch, line) > 0) {
+                toReturn.add(branch);
+            }
+        }
+        // All versioned, this is a total order:
+        Collections.sort(toReturn, new Comparator<String>() {
+
+            public int compare(String line1, String line2) {
+                int byVersion = compareLines(configuration, line1, line2);
+                return byVersion != 0 ? byVersion : line1.compareTo(line2);
+            }
+        });
+        toReturn.add(last);
+        return toReturn;
+    }
+
+    /**
+     * Compares maintenance and release lines by version, number by number: release/5.4.10 &lt; maintenance/5.4 &lt;
+     * maintenance/5.10. A maintenance line is newer than the releases of its version, that are branched from it.
+     * 
+     * @return &lt; 0 if line1 is older than line2, 0 for the same version or if one of them has no numbered version
+     *         (such lines are not ordered, see listNewerLines())
+     */
+    protected static int compareLines(GitConfiguration configuration, String line1, String line2) {
+        int[] version1 = parseVersion(extractRootFromBranchName(configuration, line1));
+        int[] version2 = parseVersion(extractRootFromBranchName(configuration, line2));
+        if (version1 == null || version2 == null) {
+            return 0;
+        }
+        for (int i = 0; i < Math.min(version1.length, version2.length); i++) {
+            if (version1[i] != version2[i]) {
+                return version1[i] < version2[i] ? -1 : 1;
+            }
+        }
+        boolean maintenance1 = line1.startsWith(configuration.get("maintenancePrefix") + "/");
+        boolean maintenance2 = line2.startsWith(configuration.get("maintenancePrefix") + "/");
+        if (maintenance1 != maintenance2) {
+            return maintenance1 ? 1 : -1;
+        }
+        return version1.length - version2.length;
+    }
+
+    /**
+     * @return numbers of a version like 5.4.1, null if it is not one
+     */
+    private static int[] parseVersion(String version) {
+        String[] numbers = version.split("\\.");
+        int[] toReturn = new int[numbers.length];
+        try {
+            for (int i = 0; i < numbers.length; i++) {
+                toReturn[i] = Integer.parseInt(numbers[i]);
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return toReturn;
+    }
+
+    /**
+     * Deletes a finished source on origin, only if it is still where it was fetched from.
+     */
+    private static void deleteRemoteSource(RepositoryContext context, String source, String target, String branchType)
+            throws GitAPIException, IOException, IncorrectRepositoryStateException {
+        Ref remoteSource = context.getRemoteBranch(source);
+        if (remoteSource == null) {
+            return;
+        }
+        RemoteRefUpdate update = pushExpecting(context, source, true, remoteSource.getObjectId());
+        if (update.getStatus() == RemoteRefUpdate.Status.REJECTED_REMOTE_CHANGED) {
+            IncorrectRepositoryStateException irse = new IncorrectRepositoryStateException("Remote branch '" + source
+                    + "' has been updated since it was fetched, it was not deleted.");
+            irse.addLine("Local " + branchType + " branch has been merged into '" + target
+                    + "' and deleted. To get the new commits, use:");
+            irse.addLine("");
+            irse.addLine(Strings.repeat(" ", Configuration.INSTANCE.getAsInt("geat.indentForCommandTemplates"))
+                    + "git fetch origin " + source);
+            throw irse;
+        }
+        checkPushed(update);
+    }
+
+    private static IncorrectRepositoryStateException noRemoteToPublish(String command, String name) {
+        IncorrectRepositoryStateException irse = new IncorrectRepositoryStateException(
+                "No remote defined for this repository, nothing to publish to.");
+        irse.addLine("To finish without publishing, use:");
+        irse.addLine("");
+        irse.addLine(Strings.repeat(" ", Configuration.INSTANCE.getAsInt("geat.indentForCommandTemplates")) + "geat "
+                + command.replace(" --publish", "") + " " + name);
+        return irse;
+    }
+
+    /**
+     * Pushes the merged targets and deletes sources on origin, in one connection. Nothing is pushed unless origin still
+     * has all these branches where they were fetched from (see MyGit.pushAll()).
+     * 
+     * This is best-effort, compensated: origin applies or refuses each update on its own. If it only refuses to delete
+     * a source, targets are published and a warning tells how to delete it. If it refuses a target, updates it has
+     * applied anyway are pushed back, and local targets are reset to where they were before the finish, so that it can
+     * be run again once fetched. If origin refuses to put them back too, the error gives the commands to do it by hand.
+     * 
+     * @param targets
+     *            branches to push, with their local commit before the finish. The current branch, if one of them, is
+     *            reset with its working tree.
+     * @return false if origin refused to delete some sources (a warning has been written)
+     */
+    private static boolean publish(Writer writer, RepositoryContext context, List<String> sources,
+            Map<String, ObjectId> targets, String command) throws GitAPIException, IOException,
+            IncorrectRepositoryStateException {
+        Repository repository = context.getRepository();
+        List<RemoteRefUpdate> targetUpdates = new ArrayList<RemoteRefUpdate>();
+        for (String target : targets.keySet()) {
+            Ref remoteTarget = context.getRemoteBranch(target);
+            targetUpdates.add(new RemoteRefUpdate(repository, Constants.R_HEADS + target, Constants.R_HEADS + target,
+                    false, Constants.R_REMOTES + "origin/" + target, remoteTarget == null ? ObjectId.zeroId()
+                            : remoteTarget.getObjectId()));
+        }
+        List<RemoteRefUpdate> sourceUpdates = new ArrayList<RemoteRefUpdate>();
+        for (String source : sources) {
+            Ref remoteSource = context.getRemoteBranch(source);
+            if (remoteSource != null) {
+                sourceUpdates.add(new RemoteRefUpdate(repository, (String) null, Constants.R_HEADS + source, false,
+                        Constants.R_REMOTES + "origin/" + source, remoteSource.getObjectId()));
+            }
+        }
+        List<RemoteRefUpdate> updates = new ArrayList<RemoteRefUpdate>(targetUpdates);
+        updates.addAll(sourceUpdates);
+        if (context.getGit().pushAll(updates)) {
+            return true;
+        }
+        RemoteRefUpdate refusedTarget = null;
+        for (RemoteRefUpdate targetUpdate : targetUpdates) {
+            if (refusedTarget == null && !isPushed(targetUpdate)) {
+                refusedTarget = targetUpdate;
+            }
+        }
+        if (refusedTarget == null) {
+            // Targets are published, only the deletion of some sources was refused:
+            for (RemoteRefUpdate sourceUpdate : sourceUpdates) {
+                if (!isPushed(sourceUpdate)) {
+                    String source = Repository.shortenRefName(sourceUpdate.getRemoteName());
+                    writer.write("WARN: origin refused to delete '" + source + "' (" + sourceUpdate.getStatus()
+                            + "). To delete it, use:");
+                    writer.write("");
+                    writer.write(Strings.repeat(" ", Configuration.INSTANCE.getAsInt("geat.indentForCommandTemplates"))
+                            + "git push origin :" + source);
+                    writer.write("");
+                }
+            }
+            return false;
+        }
+
+        List<RemoteRefUpdate> restores = new ArrayList<RemoteRefUpdate>();
+        for (RemoteRefUpdate update : updates) {
+            if (update.getStatus() == RemoteRefUpdate.Status.OK) {
+                // Applied by origin (not one it already had): branch is put back where it was
+                ObjectId expected = update.getExpectedOldObjectId();
+                restores.add(new RemoteRefUpdate(repository, ObjectId.zeroId().equals(expected) ? null : expected
+                        .name(), update.getRemoteName(), true, update.getTrackingRefUpdate().getLocalName(), update
+                        .getNewObjectId() == null ? ObjectId.zeroId() : update.getNewObjectId()));
+            }
+        }
+        List<String> recovery = new ArrayList<String>();
+        if (!restores.isEmpty()) {
+            boolean restored;
+            try {
+                restored = context.getGit().pushAll(restores);
+            } catch (GitAPIException e) {
+                restored = false;
+            }
+            if (!restored) {
+                for (RemoteRefUpdate restore : restores) {
+                    if (!isPushed(restore)) {
+                        recovery.add("git push --force origin " + (restore.isDelete() ? "" : restore.getSrcRef())
+                                + ":" + restore.getRemoteName());
+                    }
+                }
+            }
+        }
+        for (Map.Entry<String, ObjectId> target : targets.entrySet()) {
+            if (repository.getFullBranch().equals(Constants.R_HEADS + target.getKey())) {
+                context.getGit().reset().setMode(ResetType.HARD).setRef(target.getValue().name()).call();
+                context.setIndexRewritten();
+            } else {
+                RefUpdate refUpdate = repository.updateRef(Constants.R_HEADS + target.getKey());
+                refUpdate.setNewObjectId(target.getValue());
+                refUpdate.setForceUpdate(true);
+                refUpdate.update();
+            }
+        }
+
+        IncorrectRepositoryStateException irse;
+        String names = "'" + Joiner.on("', '").join(targets.keySet()) + "' or '" + Joiner.on("', '").join(sources)
+                + "'";
+        if (refusedTarget.getStatus() == RemoteRefUpdate.Status.NOT_ATTEMPTED) {
+            irse = new IncorrectRepositoryStateException("Remote branches " + names
+                    + " have been updated since they were fetched, nothing was published.");
+        } else {
+            irse = new IncorrectRepositoryStateException("Origin refused to update '"
+                    + Repository.shortenRefName(refusedTarget.getRemoteName()) + "' (" + refusedTarget.getStatus()
+                    + "), nothing was published.");
+        }
+        if (!recovery.isEmpty()) {
+            irse = new IncorrectRepositoryStateException("Origin refused to update '"
+                    + Repository.shortenRefName(refusedTarget.getRemoteName()) + "' (" + refusedTarget.getStatus()
+                    + "), and refused to put back the branches it had already updated: it is half published.");
+        }
+        irse.addLine("Local '" + Joiner.on("', '").join(targets.keySet())
+                + (targets.size() == 1 ? "' is back where it was" : "' are back where they were")
+                + ", and local branches to finish are kept.");
+        if (!recovery.isEmpty()) {
+            irse.addLine("To put origin back where it was, if nobody has pushed to these branches since, use:");
+            irse.addLine("");
+            for (String line : recovery) {
+                irse.addLine(Strings.repeat(" ", Configuration.INSTANCE.getAsInt("geat.indentForCommandTemplates"))
+                        + line);
+            }
+            irse.addLine("");
+            irse.addLine("Then, to finish again with the new commits, use:");
+        } else {
+            irse.addLine("To finish again with the new commits, use:");
+        }
+        irse.addLine("");
+        irse.addLine(Strings.repeat(" ", Configuration.INSTANCE.getAsInt("geat.indentForCommandTemplates")) + "geat "
+                + command);
+        throw irse;
+    }
+
+    /**
+     * Rebases source on target and fast-forwards target, in memory (see InCoreRebase).
+     * 
+     * @return false if there are conflicts, nothing has been done then
+     */
+    private static boolean rebaseInCore(RepositoryContext context, String source, String target) throws IOException,
+            IncorrectRepositoryStateException {
+        PatchIdCache patchIdCache = new PatchIdCache(new File(context.getGeatFolder(), "patch-ids"));
+        InCoreRebase rebase = new InCoreRebase(context.getRepository(), source, target, patchIdCache);
+        rebase.setCheckoutThreads(context.getConfiguration().getThreads("checkoutThreads"));
+        try {
+            if (!rebase.call()) {
+                return false;
+            }
+            context.setIndexRewritten();
+            return true;
+        } finally {
+            rebase.release();
+        }
+    }
+
+    /**
+     * Squashes source on target in memory (see InCoreSquash).
+     * 
+     * @return false if there are conflicts, nothing has been done then
+     */
+    private static boolean squashInCore(RepositoryContext context, String source, String target, String branchType,
+            String name) throws IOException, IncorrectRepositoryStateException {
+        InCoreSquash squash = new InCoreSquash(context.getRepository(), source, target);
+        squash.setCheckoutThreads(context.getConfiguration().getThreads("checkoutThreads"));
+        try {
+            if (!squash.merge()) {
+                return false;
+            }
+            context.setIndexRewritten();
+            String msg = InputsUtils.askUser("Commit message", "Finish " + branchType + " " + name);
+            squash.commit(msg);
+            return true;
+        } finally {
+            squash.release();
+        }
+    }
+
     /**
      * Check if a merge of this feature was started before this run.
      * 
@@ -285,9 +1141,9 @@ public class GitUtils {
      * @throws InterruptedCommandException
      *             If was previously merging ANOTHER branch
      */
-    private static boolean previouslyFinishingThisFeature(String featureName, Writer writer, String command)
-            throws IOException, InterruptedCommandException, IncorrectRepositoryStateException {
-        File mergeMarker = new File(getGeatConfigFolfer(), "MERGE");
+    private static boolean previouslyFinishingThisFeature(RepositoryContext context, String featureName,
+            Writer writer, String command) throws IOException, InterruptedCommandException {
+        File mergeMarker = new File(context.getGeatFolder(), "MERGE");
         if (mergeMarker.exists()) {
             String readFirstLine = Files.readFirstLine(mergeMarker, Charsets.UTF_8);
             String[] split = readFirstLine.split(" ");
@@ -324,9 +1180,9 @@ public class GitUtils {
      * 
      * Used when a conflicts occurs during a merge|rebase operation.
      */
-    private static void createMergeAbortedMarker(String source, String target, String name, MergePolicy mergePolicy,
-            String command) throws IOException, InterruptedCommandException, IncorrectRepositoryStateException {
-        File mergeMarker = new File(getGeatConfigFolfer(), "MERGE");
+    private static void createMergeAbortedMarker(RepositoryContext context, String source, String target,
+            String name, MergePolicy mergePolicy, String command) throws IOException, InterruptedCommandException {
+        File mergeMarker = new File(context.getGeatFolder(), "MERGE");
         Files.createParentDirs(mergeMarker);
         Files.touch(mergeMarker);
         Files.write(("MERGE " + source + " IN " + target).getBytes(), mergeMarker);
@@ -341,12 +1197,4 @@ public class GitUtils {
                 + command + " " + name + " " + mergePolicy.toString().toLowerCase());
         throw ice;
     }
-
-    private static File getGeatConfigFolfer() throws IncorrectRepositoryStateException {
-        File folder = new File(new File(getWorkingGit(), ".git"), ".geat");
-        if (!folder.exists()) {
-            folder.mkdir();
-        }
-        return folder;
-    }
 }
@@ -0,0 +1,112 @@
+package org.talend.geat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.dircache.DirCacheIterator;
+import org.eclipse.jgit.errors.IndexWriteException;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.treewalk.FileTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+
+/**
+ * Settles the stat data of the index after a checkout, merge or rebase.
+ * 
+ * Files written in the same second as the index cannot be trusted by their timestamps (racy git): the index records
+ * them as smudged, and every status hashes them again until the index is written once more. Here, once the timestamp
+ * granularity has elapsed since they were written, they are hashed a last time and the index is written with their
+ * stat data: later commands (see SanityCheck) only stat them.
+ */
+public class IndexRefresh {
+
+    // JGit compares timestamps of files and index to the second (racy git check):
+    private static final long TIMESTAMP_GRANULARITY = 1000;
+
+    /**
+     * Waits until smudged entries (written too close to the index) are not racy anymore, then verifies them and writes
+     * the index with their stat data. Entries whose file has changed are left as they are.
+     * 
+     * @return number of entries refreshed
+     */
+    public static int refresh(Repository repository) throws IOException {
+        DirCache dirCache = repository.lockDirCache();
+        try {
+            List<String> paths = new ArrayList<String>();
+            long newest = 0;
+            for (int i = 0; i < dirCache.getEntryCount(); i++) {
+                DirCacheEntry entry = dirCache.getEntry(i);
+                if (entry.getStage() == DirCacheEntry.STAGE_0 && entry.isSmudged()) {
+                    paths.add(entry.getPathString());
+                    newest = Math.max(newest, entry.getLastModified());
+                }
+            }
+            if (paths.isEmpty()) {
+                return 0;
+            }
+
+            waitUntilSettled(newest);
+            int refreshed = settle(repository, dirCache, paths);
+            if (refreshed > 0) {
+                dirCache.write();
+                if (!dirCache.commit()) {
+                    throw new IndexWriteException();
+                }
+            }
+            return refreshed;
+        } finally {
+            dirCache.unlock();
+        }
+    }
+
+    /**
+     * Waits until the clock is in a later timestamp unit than modified: a file written before then has an older
+     * timestamp than the index written after.
+     */
+    private static void waitUntilSettled(long modified) throws IOException {
+        long settled = (modified / TIMESTAMP_GRANULARITY + 1) * TIMESTAMP_GRANULARITY;
+        long remaining = settled - System.currentTimeMillis();
+        if (remaining > 0) {
+            try {
+                Thread.sleep(remaining);
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+        }
+    }
+
+    private static int settle(Repository repository, DirCache dirCache, List<String> paths) throws IOException {
+        int refreshed = 0;
+        TreeWalk walk = new TreeWalk(repository);
+        try {
+            walk.addTree(new DirCacheIterator(dirCache));
+            walk.addTree(new FileTreeIterator(repository));
+            walk.setFilter(PathFilterGroup.createFromStrings(paths));
+            walk.setRecursive(true);
+            while (walk.next()) {
+                DirCacheIterator index = walk.getTree(0, DirCacheIterator.class);
+                FileTreeIterator workTree = walk.getTree(1, FileTreeIterator.class);
+                if (index == null || workTree == null) {
+                    continue;
+                }
+                DirCacheEntry entry = index.getDirCacheEntry();
+                if (entry.getStage() != DirCacheEntry.STAGE_0) {
+                    continue;
+                }
+                // Smudged: content is verified
+                if (!workTree.isModified(entry, true, walk.getObjectReader())) {
+                    entry.setLength(workTree.getEntryLength());
+                    entry.setLastModified(workTree.getEntryLastModified());
+                    refreshed++;
+                }
+            }
+            return refreshed;
+        } finally {
+            walk.release();
+        }
+    }
+
+}
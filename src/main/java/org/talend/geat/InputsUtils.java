@@ -2,6 +2,7 @@ package org.talend.geat;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.Collections;
 import java.util.List;
@@ -13,6 +14,11 @@ import java.util.TreeMap;
  */
 public class InputsUtils {
 
+    // Answers are read from a single reader: a new one per question could buffer, and lose, the next answers
+    private static InputStream    readerInput;
+
+    private static BufferedReader reader;
+
     public static String askUser(String question) {
         return askUser(question, "");
     }
@@ -51,11 +57,8 @@ public class InputsUtils {
         }
         System.out.println(" ? ");
 
-        InputStreamReader isr = new InputStreamReader(System.in);
-        BufferedReader br = new BufferedReader(isr);
-
         try {
-            String str = br.readLine();
+            String str = getReader().readLine();
             if (str == null || str.length() < 1) {
                 return defaultValue;
             } else {
@@ -67,6 +70,18 @@ public class InputsUtils {
         }
     }
 
+    /**
+     * @return the reader of System.in, a new one if System.in has been replaced (as done by GeatDaemon and Batch for
+     *         each command)
+     */
+    private static synchronized BufferedReader getReader() {
+        if (reader == null || readerInput != System.in) {
+            readerInput = System.in;
+            reader = new BufferedReader(new InputStreamReader(System.in));
+        }
+        return reader;
+    }
+
     public static int askUserAsInt(String question, Integer defaultValue) {
         String defaultValueAsString = "" + defaultValue;
         if (defaultValue == null) {
@@ -1,57 +1,172 @@
 package org.talend.geat;
 
-import java.io.File;
 import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.eclipse.jgit.api.FetchCommand;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.LsRemoteCommand;
 import org.eclipse.jgit.api.PullCommand;
 import org.eclipse.jgit.api.PushCommand;
+import org.eclipse.jgit.api.TransportCommand;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.api.errors.InvalidRemoteException;
+import org.eclipse.jgit.api.errors.JGitInternalException;
+import org.eclipse.jgit.api.errors.TransportException;
+import org.eclipse.jgit.errors.NotSupportedException;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefUpdate;
 import org.eclipse.jgit.lib.Repository;
-import org.eclipse.jgit.transport.CredentialsProvider;
+import org.eclipse.jgit.transport.PushConnection;
+import org.eclipse.jgit.transport.PushResult;
+import org.eclipse.jgit.transport.RemoteRefUpdate;
+import org.eclipse.jgit.transport.Transport;
 import org.talend.geat.exception.IncorrectRepositoryStateException;
 import org.talend.geat.jgit.ListBranchCommand;
+import org.talend.geat.security.CredentialsManager;
+import org.talend.geat.security.DeferredCredentialsProvider;
 
+/**
+ * Git with the credentials of origin set on network operations (push, pull, fetch, ls-remote).
+ * 
+ * Credentials are only resolved (config lookups, prompts) when a transport asks for them, see
+ * DeferredCredentialsProvider: local operations never touch them.
+ */
 public class MyGit extends Git {
 
-    public static CredentialsProvider credentialsProvider;
+    private final RepositoryContext context;
 
     public MyGit(Repository repo) {
-        super(repo);
+        this(new RepositoryContext(repo));
+    }
+
+    public MyGit(RepositoryContext context) {
+        super(context.getRepository());
+        this.context = context;
     }
 
     public static MyGit open() throws IOException, IncorrectRepositoryStateException {
-        final Git open = Git.open(new File(GitUtils.getWorkingGit()));
-        return new MyGit(open.getRepository());
+        return new MyGit(GitUtils.openRepository());
     }
 
     public PushCommand push() {
         PushCommand command = super.push();
-        if (credentialsProvider != null) {
-            command.setCredentialsProvider(credentialsProvider);
-        }
+        setCredentials(command);
         return command;
     }
 
+    /**
+     * Pushes these updates to origin in one connection. Unlike push(), each update can carry the id origin is expected
+     * to have for the ref (zero id for a ref that must not exist yet): origin's advertisement is checked within the
+     * push itself, and an update it does not match gets the REJECTED_REMOTE_CHANGED status.
+     */
+    public PushResult push(Collection<RemoteRefUpdate> updates) throws GitAPIException {
+        CredentialsManager.installTransports();
+        try {
+            Transport transport = Transport.open(getRepository(), "origin");
+            try {
+                transport.setCredentialsProvider(new DeferredCredentialsProvider(context));
+                return transport.push(NullProgressMonitor.INSTANCE, updates);
+            } finally {
+                transport.close();
+            }
+        } catch (URISyntaxException e) {
+            throw new InvalidRemoteException("Invalid remote: origin");
+        } catch (NotSupportedException e) {
+            throw new JGitInternalException(e.getMessage(), e);
+        } catch (org.eclipse.jgit.errors.TransportException e) {
+            throw new TransportException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Pushes these updates to origin in one connection, best-effort: each update must carry the id origin is expected
+     * to have for the ref (zero id for a ref that must not exist), and nothing is sent unless origin's advertisement
+     * matches all of them. Origin then applies each update only if its ref has not moved since it advertised it.
+     * 
+     * This is not atomic: JGit has no atomic push, origin applies or refuses each update on its own (a lock, a hook, a
+     * concurrent push), so some updates may be applied and others not. Callers must check the status of each update,
+     * and compensate (see GitUtils.publish()).
+     * 
+     * Remote-tracking refs of the applied updates are updated, as push() does.
+     * 
+     * @return true if origin has all updates (see GitUtils.isPushed()). If it has not sent anything, all updates are
+     *         NOT_ATTEMPTED.
+     */
+    public boolean pushAll(Collection<RemoteRefUpdate> updates) throws GitAPIException, IOException {
+        CredentialsManager.installTransports();
+        try {
+            Transport transport = Transport.open(getRepository(), "origin");
+            try {
+                transport.setCredentialsProvider(new DeferredCredentialsProvider(context));
+                PushConnection connection = transport.openPush();
+                try {
+                    Map<String, RemoteRefUpdate> toPush = new LinkedHashMap<String, RemoteRefUpdate>();
+                    for (RemoteRefUpdate update : updates) {
+                        Ref advertised = connection.getRef(update.getRemoteName());
+                        ObjectId remoteId = advertised == null ? ObjectId.zeroId() : advertised.getObjectId();
+                        if (!remoteId.equals(update.getExpectedOldObjectId())) {
+                            return false;
+                        }
+                        toPush.put(update.getRemoteName(), update);
+                    }
+                    connection.push(NullProgressMonitor.INSTANCE, toPush);
+                } finally {
+                    connection.close();
+                }
+            } finally {
+                transport.close();
+            }
+        } catch (URISyntaxException e) {
+            throw new InvalidRemoteException("Invalid remote: origin");
+        } catch (NotSupportedException e) {
+            throw new JGitInternalException(e.getMessage(), e);
+        } catch (org.eclipse.jgit.errors.TransportException e) {
+            throw new TransportException(e.getMessage(), e);
+        }
+
+        boolean all = true;
+        for (RemoteRefUpdate update : updates) {
+            if (!GitUtils.isPushed(update)) {
+                all = false;
+            } else if (update.getTrackingRefUpdate() != null) {
+                RefUpdate trackingUpdate = getRepository().updateRef(update.getTrackingRefUpdate().getLocalName());
+                trackingUpdate.setForceUpdate(true);
+                if (update.isDelete()) {
+                    trackingUpdate.delete();
+                } else {
+                    trackingUpdate.setNewObjectId(update.getNewObjectId());
+                    trackingUpdate.update();
+                }
+            }
+        }
+        return all;
+    }
+
     @Override
     public PullCommand pull() {
         PullCommand command = super.pull();
-        if (credentialsProvider != null) {
-            command.setCredentialsProvider(credentialsProvider);
-        }
+        setCredentials(command);
         return command;
     }
 
     @Override
     public FetchCommand fetch() {
         FetchCommand command = super.fetch();
-        if (credentialsProvider != null) {
-            command.setCredentialsProvider(credentialsProvider);
-        }
+        setCredentials(command);
         return command;
     }
 
+    private void setCredentials(TransportCommand<?, ?> command) {
+        CredentialsManager.installTransports();
+        command.setCredentialsProvider(new DeferredCredentialsProvider(context));
+    }
+
     public ListBranchCommand branchList2() {
         ListBranchCommand command = new ListBranchCommand(getRepository());
         return command;
@@ -60,9 +175,7 @@ public class MyGit extends Git {
     @Override
     public LsRemoteCommand lsRemote() {
         LsRemoteCommand command = super.lsRemote();
-        if (credentialsProvider != null) {
-            command.setCredentialsProvider(credentialsProvider);
-        }
+        setCredentials(command);
         return command;
     }
 
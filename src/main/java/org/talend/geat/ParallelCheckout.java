@@ -0,0 +1,234 @@
+package org.talend.geat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheBuilder;
+import org.eclipse.jgit.dircache.DirCacheCheckout;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.dircache.DirCacheIterator;
+import org.eclipse.jgit.errors.CheckoutConflictException;
+import org.eclipse.jgit.errors.IndexWriteException;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.util.FileUtils;
+
+/**
+ * Moves index and working tree from one tree to another, as DirCacheCheckout does, but files are inflated and written
+ * by several threads.
+ * 
+ * What to write and what to delete is computed by DirCacheCheckout itself (same conflicts detection). Then, on the
+ * calling thread: files are deleted, emptied directories removed, and directories created. Files are then written in
+ * parallel, each thread with its own object reader, and the index is finally written once, with the stat data of
+ * written files.
+ */
+public class ParallelCheckout {
+
+    // Under this number of files, a thread is not worth it:
+    private static final int MIN_FILES_PER_TASK = 100;
+
+    // More tasks than threads, so that a slow task (big files) does not leave other threads idle:
+    private static final int TASKS_PER_THREAD   = 4;
+
+    private final Repository repository;
+
+    private final ObjectId   headTree;
+
+    private final DirCache   dirCache;
+
+    private final ObjectId   newTree;
+
+    private final int        threads;
+
+    private int              written;
+
+    private List<String>     conflicts;
+
+    /**
+     * @param dirCache
+     *            index, locked by the caller
+     * @param threads
+     *            number of threads writing files, 0 for one per available processor
+     */
+    public ParallelCheckout(Repository repository, ObjectId headTree, DirCache dirCache, ObjectId newTree,
+            int threads) {
+        super();
+        this.repository = repository;
+        this.headTree = headTree;
+        this.dirCache = dirCache;
+        this.newTree = newTree;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * @throws CheckoutConflictException
+     *             if local changes would be overwritten, nothing has been written then
+     */
+    public void checkout() throws IOException {
+        DirCacheCheckout plan = new DirCacheCheckout(repository, headTree, dirCache, newTree);
+        plan.preScanTwoTrees();
+        conflicts = plan.getConflicts();
+        if (!conflicts.isEmpty()) {
+            throw new CheckoutConflictException(conflicts.toArray(new String[conflicts.size()]));
+        }
+
+        Map<String, ObjectId> updated = plan.getUpdated();
+        Set<String> removed = new TreeSet<String>(plan.getRemoved());
+        List<DirCacheEntry> toWrite = new ArrayList<DirCacheEntry>();
+        DirCacheBuilder builder = buildIndex(updated, removed, toWrite);
+
+        File workTree = repository.getWorkTree();
+        for (String path : removed) {
+            File file = new File(workTree, path);
+            if (file.isDirectory()) {
+                // Untracked files where a tracked file was: left as is, as DirCacheCheckout does
+                continue;
+            }
+            FileUtils.delete(file, FileUtils.SKIP_MISSING);
+            for (File parent = file.getParentFile(); !parent.equals(workTree); parent = parent.getParentFile()) {
+                // Only succeeds for an empty directory
+                if (!parent.delete()) {
+                    break;
+                }
+            }
+        }
+        Set<File> directories = new TreeSet<File>();
+        for (DirCacheEntry entry : toWrite) {
+            directories.add(new File(workTree, entry.getPathString()).getParentFile());
+        }
+        for (File directory : directories) {
+            FileUtils.mkdirs(directory, true);
+        }
+
+        write(toWrite);
+        written = toWrite.size();
+
+        if (!builder.commit()) {
+            throw new IndexWriteException();
+        }
+    }
+
+    /**
+     * @return builder of the new index: entries of updated paths are added to toWrite, other entries are kept with
+     *         their stat data
+     */
+    private DirCacheBuilder buildIndex(Map<String, ObjectId> updated, Set<String> removed,
+            List<DirCacheEntry> toWrite) throws IOException {
+        DirCacheBuilder builder = dirCache.builder();
+        TreeWalk walk = new TreeWalk(repository);
+        RevWalk revWalk = new RevWalk(repository);
+        try {
+            walk.addTree(revWalk.parseTree(newTree));
+            walk.addTree(new DirCacheIterator(dirCache));
+            walk.setRecursive(true);
+            while (walk.next()) {
+                String path = walk.getPathString();
+                DirCacheIterator index = walk.getTree(1, DirCacheIterator.class);
+                if (updated.containsKey(path) && walk.getRawMode(0) != 0) {
+                    DirCacheEntry entry = new DirCacheEntry(path);
+                    entry.setFileMode(walk.getFileMode(0));
+                    entry.setObjectId(walk.getObjectId(0));
+                    builder.add(entry);
+                    toWrite.add(entry);
+                } else if (index != null && !removed.contains(path)) {
+                    builder.add(index.getDirCacheEntry());
+                }
+            }
+            return builder;
+        } finally {
+            revWalk.release();
+            walk.release();
+        }
+    }
+
+    private void write(List<DirCacheEntry> entries) throws IOException {
+        int size = Math.max(MIN_FILES_PER_TASK, entries.size() / (threads * TASKS_PER_THREAD) + 1);
+        List<WriteTask> tasks = new ArrayList<WriteTask>();
+        for (int i = 0; i < entries.size(); i += size) {
+            tasks.add(new WriteTask(entries.subList(i, Math.min(i + size, entries.size()))));
+        }
+        if (tasks.size() <= 1 || threads == 1) {
+            for (WriteTask task : tasks) {
+                task.call();
+            }
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, tasks.size()));
+        try {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (WriteTask task : tasks) {
+                futures.add(executor.submit(task));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * @return how many files have been written by the last checkout
+     */
+    public int getWritten() {
+        return written;
+    }
+
+    /**
+     * @return files with local changes that prevented the last checkout
+     */
+    public List<String> getConflicts() {
+        return conflicts;
+    }
+
+    /**
+     * Writes some files, and sets the stat data of their index entry.
+     */
+    private class WriteTask implements Callable<Void> {
+
+        private final List<DirCacheEntry> entries;
+
+        private WriteTask(List<DirCacheEntry> entries) {
+            this.entries = entries;
+        }
+
+        public Void call() throws IOException {
+            ObjectReader reader = repository.newObjectReader();
+            try {
+                for (DirCacheEntry entry : entries) {
+                    File file = new File(repository.getWorkTree(), entry.getPathString());
+                    if (entry.getFileMode() == FileMode.GITLINK) {
+                        // Submodules are not checked out, only their directory is created
+                        FileUtils.mkdirs(file, true);
+                    } else {
+                        DirCacheCheckout.checkoutEntry(repository, file, entry, reader);
+                    }
+                }
+                return null;
+            } finally {
+                reader.release();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,218 @@
+package org.talend.geat;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.transport.RemoteConfig;
+import org.eclipse.jgit.transport.URIish;
+import org.talend.geat.SanityCheck.CheckLevel;
+import org.talend.geat.exception.IncorrectRepositoryStateException;
+
+/**
+ * Everything a command knows about the repository it works on.
+ * 
+ * Created once per command (see Command.getContext()), so the repository is located and opened only once, and what
+ * has been read from it (config, remotes, sanity checks) is kept for the whole command.
+ * 
+ * Branches of origin are also listed only once per command (see getRemoteBranch()).
+ * 
+ * If the command has rewritten the index, its stat data is settled on close (see IndexRefresh).
+ */
+public class RepositoryContext {
+
+    // Incremented by all threads of the daemon:
+    private static final AtomicInteger remoteListingsCount = new AtomicInteger();
+
+    private final Repository           repository;
+
+    private MyGit                      git;
+
+    private GitConfiguration           configuration;
+
+    private List<RemoteConfig>         remoteConfigs;
+
+    // Branches of origin, by ref name, as advertised by the ls-remote of this command:
+    private Map<String, Ref>           remoteBranches;
+
+    // Highest check level that has already passed for this command, null if none:
+    private CheckLevel                 checkedLevel;
+
+    // True once this command has checked out, merged or rebased:
+    private boolean                    indexRewritten;
+
+    public RepositoryContext(Repository repository) {
+        super();
+        this.repository = repository;
+    }
+
+    /**
+     * Opens the repository the working dir belongs to.
+     */
+    public static RepositoryContext open() throws IncorrectRepositoryStateException {
+        String workingDir = System.getProperty("user.dir");
+        File repoPath = new File(workingDir);
+        if (!repoPath.exists() || !repoPath.isDirectory()) {
+            throw new IncorrectRepositoryStateException("'" + workingDir + "' is not a folder.");
+        }
+
+        try {
+            return new RepositoryContext(GitUtils.openRepository());
+        } catch (IOException e) {
+            throw new IncorrectRepositoryStateException("'" + workingDir + "' is not a GIT repository.");
+        }
+    }
+
+    public Repository getRepository() {
+        return repository;
+    }
+
+    public MyGit getGit() {
+        if (git == null) {
+            git = new MyGit(this);
+        }
+        return git;
+    }
+
+    public StoredConfig getConfig() {
+        return repository.getConfig();
+    }
+
+    public GitConfiguration getConfiguration() {
+        if (configuration == null) {
+            configuration = new GitConfiguration(getConfig());
+        }
+        return configuration;
+    }
+
+    public File getWorkTree() {
+        return repository.getWorkTree();
+    }
+
+    /**
+     * @return the folder where geat stores its own files (.git/.geat), created if needed
+     */
+    public File getGeatFolder() {
+        File folder = new File(repository.getDirectory(), ".geat");
+        if (!folder.exists()) {
+            folder.mkdir();
+        }
+        return folder;
+    }
+
+    public List<RemoteConfig> getRemoteConfigs() {
+        if (remoteConfigs == null) {
+            try {
+                remoteConfigs = RemoteConfig.getAllRemoteConfigs(getConfig());
+            } catch (URISyntaxException e) {
+                System.out.println("WARN: " + e.getMessage());
+                remoteConfigs = new ArrayList<RemoteConfig>();
+            }
+        }
+        return remoteConfigs;
+    }
+
+    public boolean hasRemote(String remoteName) {
+        return getRemoteConfig(remoteName) != null;
+    }
+
+    /**
+     * @return the first URL of this remote, or null if no such remote
+     */
+    public URIish getRemoteUrl(String remoteName) {
+        RemoteConfig remoteConfig = getRemoteConfig(remoteName);
+        if (remoteConfig == null || remoteConfig.getURIs().isEmpty()) {
+            return null;
+        }
+        return remoteConfig.getURIs().get(0);
+    }
+
+    private RemoteConfig getRemoteConfig(String remoteName) {
+        for (RemoteConfig current : getRemoteConfigs()) {
+            if (current.getName().equals(remoteName)) {
+                return current;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the branch of origin as it was advertised when this command first asked for a remote branch, or null if
+     *         origin has no such branch (or no origin). Only the first call costs a round trip to origin.
+     */
+    public Ref getRemoteBranch(String branch) throws GitAPIException {
+        if (remoteBranches == null) {
+            remoteBranches = new HashMap<String, Ref>();
+            if (hasRemote("origin")) {
+                for (Ref ref : getGit().lsRemote().setHeads(true).setRemote("origin").call()) {
+                    remoteBranches.put(ref.getName(), ref);
+                }
+                remoteListingsCount.incrementAndGet();
+            }
+        }
+        return remoteBranches.get(Constants.R_HEADS + branch);
+    }
+
+    /**
+     * @return true if the remote-tracking branch origin/<branch> already points to the commit origin advertised for
+     *         <branch>, so that fetching it would not bring anything
+     */
+    public boolean isRemoteTrackingUpToDate(String branch) throws GitAPIException, IOException {
+        Ref remoteBranch = getRemoteBranch(branch);
+        Ref trackingBranch = repository.getRef(Constants.R_REMOTES + "origin/" + branch);
+        return remoteBranch != null && trackingBranch != null
+                && remoteBranch.getObjectId().equals(trackingBranch.getObjectId());
+    }
+
+    /**
+     * @return how many times a RepositoryContext has listed the branches of origin in this JVM
+     */
+    public static int getRemoteListingsCount() {
+        return remoteListingsCount.get();
+    }
+
+    /**
+     * @return true if a check of this level (or a stronger one) already passed during this command
+     */
+    public boolean isChecked(CheckLevel checkLevel) {
+        return checkedLevel != null && checkedLevel.ordinal() >= checkLevel.ordinal();
+    }
+
+    public void setChecked(CheckLevel checkLevel) {
+        if (!isChecked(checkLevel)) {
+            checkedLevel = checkLevel;
+        }
+    }
+
+    /**
+     * Records that this command has rewritten index and working tree (checkout, merge, rebase): the index is refreshed
+     * when the command ends (see IndexRefresh), unless geat.refreshIndex is false.
+     */
+    public void setIndexRewritten() {
+        indexRewritten = true;
+    }
+
+    public void close() {
+        try {
+            if (indexRewritten && Boolean.parseBoolean(getConfiguration().get("refreshIndex"))) {
+                IndexRefresh.refresh(repository);
+            }
+        } catch (IOException e) {
+            // The index is only left as JGit wrote it
+            System.out.println("WARN: " + e.getMessage());
+        } finally {
+            repository.close();
+        }
+    }
+
+}
@@ -1,15 +1,9 @@
 package org.talend.geat;
 
-import java.io.File;
 import java.io.IOException;
 
-import org.eclipse.jgit.api.Git;
-import org.eclipse.jgit.api.Status;
-import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.errors.NoWorkTreeException;
-import org.talend.geat.exception.IllegalCommandArgumentException;
 import org.talend.geat.exception.IncorrectRepositoryStateException;
-import org.talend.geat.security.CredentialsManager;
 
 import com.google.common.base.Strings;
 
@@ -26,55 +20,54 @@ public class SanityCheck {
         NO_UNCOMMITTED_CHANGES; // in addition to GIT_REPO_ONLY, also checks that there are now uncommitted changes
     }
 
+    /**
+     * Checks the working dir repository, opened and closed by this call.
+     */
     public static void check(CheckLevel checkLevel) throws IncorrectRepositoryStateException {
-        String workingDir = System.getProperty("user.dir");
         if (checkLevel == CheckLevel.NONE) {
             return;
         }
 
-        File repoPath = new File(workingDir);
-        if (!repoPath.exists() || !repoPath.isDirectory()) {
-            throw new IncorrectRepositoryStateException("'" + workingDir + "' is not a folder.");
-        }
-
-        workingDir = GitUtils.getWorkingGit();
-        if (workingDir == null) {
-            throw new IncorrectRepositoryStateException("'" + workingDir + "' is not a GIT repository.");
-        }
-
-        Git repo = null;
+        RepositoryContext context = RepositoryContext.open();
         try {
-            repo = Git.open(new File(workingDir));
-        } catch (IOException e) {
-            throw new IncorrectRepositoryStateException("'" + workingDir + "' is not a GIT repository.");
+            check(context, checkLevel);
+        } finally {
+            context.close();
         }
+    }
 
-        try {
-            if (GitUtils.hasRemote("origin", repo.getRepository())) {
-                CredentialsManager.init();
-            }
-        } catch (IllegalCommandArgumentException e) {
-            System.out.println(e.getMessage());
-            System.out.println("");
-            System.exit(1);
+    /**
+     * Same as check(CheckLevel) on the repository of a command. A check that already passed during this command is not
+     * done again.
+     */
+    public static void check(RepositoryContext context, CheckLevel checkLevel)
+            throws IncorrectRepositoryStateException {
+        if (checkLevel == CheckLevel.NONE || context.isChecked(checkLevel)) {
+            return;
         }
 
+        // The context has opened the repository. Credentials are only resolved by network operations (see MyGit).
+        context.setChecked(CheckLevel.GIT_REPO_ONLY);
+
         if (checkLevel.ordinal() >= CheckLevel.NO_UNCOMMITTED_CHANGES.ordinal()) {
+            String change;
             try {
-                Status status = repo.status().call();
-                if (status.hasUncommittedChanges()) {
-                    IncorrectRepositoryStateException iwse = new IncorrectRepositoryStateException(
-                            "Your GIT repository has uncommitted changes.");
-                    iwse.addLine("To see these changes, use:\n");
-                    iwse.addLine(Strings.repeat(" ", Configuration.INSTANCE.getAsInt("geat.indentForCommandTemplates"))
-                            + " git status");
-                    throw iwse;
-                }
+                change = DirtyCheck.findFirstChange(context.getRepository(),
+                        context.getConfiguration().getThreads("statusThreads"));
             } catch (NoWorkTreeException e) {
                 throw new IncorrectRepositoryStateException(e);
-            } catch (GitAPIException e) {
+            } catch (IOException e) {
                 throw new IncorrectRepositoryStateException(e);
             }
+            if (change != null) {
+                IncorrectRepositoryStateException iwse = new IncorrectRepositoryStateException(
+                        "Your GIT repository has uncommitted changes (on '" + change + "' for example).");
+                iwse.addLine("To see these changes, use:\n");
+                iwse.addLine(Strings.repeat(" ", Configuration.INSTANCE.getAsInt("geat.indentForCommandTemplates"))
+                        + " git status");
+                throw iwse;
+            }
+            context.setChecked(CheckLevel.NO_UNCOMMITTED_CHANGES);
         }
     }
 
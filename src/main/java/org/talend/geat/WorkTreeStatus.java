@@ -0,0 +1,403 @@
+package org.talend.geat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.dircache.DirCacheIterator;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.FileTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.WorkingTreeIterator.MetadataDiff;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+/**
+ * Status of tracked files (HEAD, index and working tree), computed by several threads on huge trees.
+ * 
+ * Comparing the index with HEAD reads no file: it is done first, on the calling thread. Comparing the working tree
+ * with the index (stat of every tracked file, hash of those whose timestamps cannot be trusted) is split in ranges of
+ * directories of the index, walked in parallel.
+ * 
+ * Untracked files are ignored: directories that are not in the index are never listed.
+ */
+public class WorkTreeStatus {
+
+    private static final int        HEAD              = 0;
+
+    private static final int        INDEX             = 1;
+
+    // Under this number of files, a range is not worth a thread:
+    private static final int        MIN_RANGE_SIZE    = 1000;
+
+    // More ranges than threads, so that a slow range does not leave other threads idle:
+    private static final int        RANGES_PER_THREAD = 4;
+
+    private static final AtomicLong hashedBytesCount  = new AtomicLong();
+
+    private final Repository        repository;
+
+    private final int               threads;
+
+    // Paths of the working tree to verify, null for all of them:
+    private Collection<String>      paths;
+
+    private final Set<String>       added             = new TreeSet<String>();
+
+    private final Set<String>       changed           = new TreeSet<String>();
+
+    private final Set<String>       removed           = new TreeSet<String>();
+
+    private final Set<String>       missing           = new TreeSet<String>();
+
+    private final Set<String>       modified          = new TreeSet<String>();
+
+    private final Set<String>       conflicting       = new TreeSet<String>();
+
+    /**
+     * @param threads
+     *            number of threads walking the working tree, 0 for one per available processor
+     */
+    public WorkTreeStatus(Repository repository, int threads) {
+        super();
+        this.repository = repository;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Restricts the comparison of the working tree with the index to some paths (files or directories), known to be the
+     * only ones that may have changed. Index is still compared with HEAD as a whole.
+     */
+    public WorkTreeStatus setPaths(Collection<String> paths) {
+        this.paths = paths;
+        return this;
+    }
+
+    /**
+     * Computes the whole status.
+     */
+    public WorkTreeStatus call() throws IOException {
+        compute(null);
+        return this;
+    }
+
+    /**
+     * Stops all threads at the first uncommitted change.
+     * 
+     * @return path of the first uncommitted change found, or null if there is none
+     */
+    public String findFirstChange() throws IOException {
+        AtomicReference<String> first = new AtomicReference<String>();
+        compute(first);
+        return first.get();
+    }
+
+    private void compute(AtomicReference<String> first) throws IOException {
+        DirCache dirCache = repository.readDirCache();
+        compareIndexWithHead(dirCache, first);
+        if (first != null && first.get() != null) {
+            return;
+        }
+
+        if (paths != null && paths.isEmpty()) {
+            return;
+        }
+
+        // DirCacheIterator builds it lazily: done once here, not concurrently by each range
+        dirCache.getCacheTree(true);
+        List<List<String>> ranges;
+        if (paths == null) {
+            ranges = split(dirCache);
+        } else {
+            ranges = Collections.<List<String>> singletonList(new ArrayList<String>(paths));
+        }
+        if (ranges.size() == 1) {
+            new RangeCheck(dirCache, ranges.get(0), first).call();
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, ranges.size()));
+        try {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (List<String> range : ranges) {
+                futures.add(executor.submit(new RangeCheck(dirCache, range, first)));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void compareIndexWithHead(DirCache dirCache, AtomicReference<String> first) throws IOException {
+        TreeWalk walk = new TreeWalk(repository);
+        try {
+            ObjectId head = repository.resolve("HEAD^{tree}");
+            if (head == null) {
+                walk.addTree(new EmptyTreeIterator());
+            } else {
+                RevWalk revWalk = new RevWalk(repository);
+                try {
+                    walk.addTree(revWalk.parseTree(head));
+                } finally {
+                    revWalk.release();
+                }
+            }
+            walk.addTree(new DirCacheIterator(dirCache));
+            walk.setFilter(TreeFilter.ANY_DIFF);
+            walk.setRecursive(true);
+
+            while (walk.next()) {
+                DirCacheIterator index = walk.getTree(INDEX, DirCacheIterator.class);
+                if (index != null && index.getDirCacheEntry().getStage() != DirCacheEntry.STAGE_0) {
+                    // Reported by the working tree ranges
+                    continue;
+                }
+                String path = walk.getPathString();
+                if (walk.getRawMode(HEAD) == 0) {
+                    add(added, path, first);
+                } else if (index == null) {
+                    add(removed, path, first);
+                } else {
+                    add(changed, path, first);
+                }
+                if (first != null) {
+                    return;
+                }
+            }
+        } finally {
+            walk.release();
+        }
+    }
+
+    /**
+     * @return paths (directories or files) of the index, grouped in ranges of about the same number of files. A single
+     *         null range means the whole tree.
+     */
+    private List<List<String>> split(DirCache dirCache) {
+        int count = dirCache.getEntryCount();
+        int target = Math.max(MIN_RANGE_SIZE, count / (threads * RANGES_PER_THREAD));
+        if (threads == 1 || count <= target) {
+            return Collections.<List<String>> singletonList(null);
+        }
+
+        List<String> paths = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            paths.add(dirCache.getEntry(i).getPathString());
+        }
+        List<String> units = new ArrayList<String>();
+        List<Integer> sizes = new ArrayList<Integer>();
+        addUnits(paths, 0, count, "", target, units, sizes);
+
+        List<List<String>> toReturn = new ArrayList<List<String>>();
+        List<String> current = new ArrayList<String>();
+        int size = 0;
+        for (int i = 0; i < units.size(); i++) {
+            current.add(units.get(i));
+            size += sizes.get(i);
+            if (size >= target) {
+                toReturn.add(current);
+                current = new ArrayList<String>();
+                size = 0;
+            }
+        }
+        if (!current.isEmpty()) {
+            toReturn.add(current);
+        }
+        return toReturn;
+    }
+
+    /**
+     * Adds to units the directories of paths[from, to[ (all under prefix) that have at most target files, and the files
+     * of those which are bigger.
+     */
+    private static void addUnits(List<String> paths, int from, int to, String prefix, int target, List<String> units,
+            List<Integer> sizes) {
+        int i = from;
+        while (i < to) {
+            String path = paths.get(i);
+            int slash = path.indexOf('/', prefix.length());
+            if (slash < 0) {
+                // Conflicting files have several entries
+                if (units.isEmpty() || !units.get(units.size() - 1).equals(path)) {
+                    units.add(path);
+                    sizes.add(1);
+                }
+                i++;
+                continue;
+            }
+
+            String dir = path.substring(0, slash + 1);
+            int end = i + 1;
+            while (end < to && paths.get(end).startsWith(dir)) {
+                end++;
+            }
+            if (end - i > target) {
+                addUnits(paths, i, end, dir, target, units, sizes);
+            } else {
+                units.add(dir.substring(0, dir.length() - 1));
+                sizes.add(end - i);
+            }
+            i = end;
+        }
+    }
+
+    private void add(Set<String> set, String path, AtomicReference<String> first) {
+        if (first != null) {
+            first.compareAndSet(null, path);
+            return;
+        }
+        synchronized (this) {
+            set.add(path);
+        }
+    }
+
+    /**
+     * Compares index and working tree for some paths, with its own walk.
+     */
+    private class RangeCheck implements Callable<Void> {
+
+        private final DirCache                dirCache;
+
+        private final List<String>            paths;
+
+        private final AtomicReference<String> first;
+
+        private RangeCheck(DirCache dirCache, List<String> paths, AtomicReference<String> first) {
+            this.dirCache = dirCache;
+            this.paths = paths;
+            this.first = first;
+        }
+
+        public Void call() throws IOException {
+            TreeWalk walk = new TreeWalk(repository);
+            try {
+                walk.addTree(new DirCacheIterator(dirCache));
+                walk.addTree(new FileTreeIterator(repository));
+                if (paths != null) {
+                    walk.setFilter(PathFilterGroup.createFromStrings(paths));
+                }
+
+                while (walk.next()) {
+                    if (first != null && first.get() != null) {
+                        // Another range already found one
+                        return null;
+                    }
+                    DirCacheIterator index = walk.getTree(0, DirCacheIterator.class);
+                    if (index == null) {
+                        // Untracked, directories are not even listed
+                        continue;
+                    }
+                    if (walk.isSubtree()) {
+                        walk.enterSubtree();
+                        continue;
+                    }
+
+                    DirCacheEntry entry = index.getDirCacheEntry();
+                    FileTreeIterator workTree = walk.getTree(1, FileTreeIterator.class);
+                    if (entry.getStage() != DirCacheEntry.STAGE_0) {
+                        add(conflicting, walk.getPathString(), first);
+                    } else if (entry.getFileMode() == FileMode.GITLINK) {
+                        // Submodules: only the commit recorded in the index matters here
+                        continue;
+                    } else if (workTree == null) {
+                        add(missing, walk.getPathString(), first);
+                    } else {
+                        MetadataDiff diff = workTree.compareMetadata(entry);
+                        if (diff == MetadataDiff.SMUDGED || diff == MetadataDiff.DIFFER_BY_TIMESTAMP) {
+                            // Timestamps cannot be trusted, the file is hashed by isModified()
+                            hashedBytesCount.addAndGet(workTree.getEntryLength());
+                        }
+                        if (workTree.isModified(entry, true, walk.getObjectReader())) {
+                            add(modified, walk.getPathString(), first);
+                        }
+                    }
+                }
+                return null;
+            } finally {
+                walk.release();
+            }
+        }
+    }
+
+    /**
+     * @return how many bytes of the working tree have been hashed by status computations in this JVM (files whose
+     *         timestamps could not be trusted)
+     */
+    public static long getHashedBytesCount() {
+        return hashedBytesCount.get();
+    }
+
+    /**
+     * @return true if there is no uncommitted change (untracked files are not)
+     */
+    public boolean isClean() {
+        return added.isEmpty() && changed.isEmpty() && removed.isEmpty() && missing.isEmpty() && modified.isEmpty()
+                && conflicting.isEmpty();
+    }
+
+    /**
+     * @return files added to the index, not in HEAD
+     */
+    public Set<String> getAdded() {
+        return Collections.unmodifiableSet(added);
+    }
+
+    /**
+     * @return files changed in the index from HEAD
+     */
+    public Set<String> getChanged() {
+        return Collections.unmodifiableSet(changed);
+    }
+
+    /**
+     * @return files in HEAD, removed from the index
+     */
+    public Set<String> getRemoved() {
+        return Collections.unmodifiableSet(removed);
+    }
+
+    /**
+     * @return files in the index, not in the working tree
+     */
+    public Set<String> getMissing() {
+        return Collections.unmodifiableSet(missing);
+    }
+
+    /**
+     * @return files modified in the working tree from the index
+     */
+    public Set<String> getModified() {
+        return Collections.unmodifiableSet(modified);
+    }
+
+    /**
+     * @return files with conflicts
+     */
+    public Set<String> getConflicting() {
+        return Collections.unmodifiableSet(conflicting);
+    }
+
+}
@@ -0,0 +1,76 @@
+package org.talend.geat.commands;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.talend.geat.Configuration;
+import org.talend.geat.SanityCheck.CheckLevel;
+import org.talend.geat.exception.IllegalCommandArgumentException;
+import org.talend.geat.security.CredentialsAgent;
+import org.talend.geat.security.CredentialsAgentClient;
+
+import com.google.common.base.Strings;
+
+/**
+ * Starts an agent keeping credentials in memory. While it runs, passwords and passphrases are asked once, and SSH keys
+ * decrypted once, for all next geat calls.
+ */
+public class Agent extends Command {
+
+    protected static final String NAME   = "agent";
+
+    protected String              action = "start";
+
+    protected Agent() {
+        super();
+    }
+
+    protected Command innerParseArgs(String[] args) throws IllegalCommandArgumentException {
+        if (args.length > 2) {
+            throw IllegalCommandArgumentException.build(this);
+        }
+        if (args.length == 2) {
+            action = args[1];
+            if (!action.equals("start") && !action.equals("stop") && !action.equals("status")) {
+                throw IllegalCommandArgumentException.build(this);
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public CheckLevel getCheckLevel() {
+        return CheckLevel.NONE;
+    }
+
+    public void execute(Writer writer) throws IOException {
+        if (!action.equals("start")) {
+            String answer = action.equals("stop") ? CredentialsAgentClient.stop() : CredentialsAgentClient.status();
+            writer.write(answer == null ? "No GEAT credentials agent running" : answer);
+            return;
+        }
+        if (CredentialsAgentClient.isAgentRunning()) {
+            writer.write("A GEAT credentials agent is already running. To stop it, use:");
+            writer.write("");
+            writer.write(Strings.repeat(" ", Configuration.INSTANCE.getAsInt("geat.indentForCommandTemplates"))
+                    + "geat " + NAME + " stop");
+            return;
+        }
+
+        CredentialsAgent agent = new CredentialsAgent();
+        agent.start();
+        writer.write("GEAT credentials agent listening on port " + agent.getPort()
+                + ", credentials will be kept in memory until it stops (after "
+                + Configuration.INSTANCE.getAsInt("geat.agent.idleTimeout") + "s without request).");
+        writer.write("To stop it, use:");
+        writer.write("");
+        writer.write(Strings.repeat(" ", Configuration.INSTANCE.getAsInt("geat.indentForCommandTemplates")) + "geat "
+                + NAME + " stop");
+        agent.serve();
+    }
+
+    public String getUsage() {
+        return "[start|stop|status]";
+    }
+
+}
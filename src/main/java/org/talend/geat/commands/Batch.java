@@ -0,0 +1,288 @@
+package org.talend.geat.commands;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.eclipse.jgit.lib.Repository;
+import org.talend.geat.GitConfiguration;
+import org.talend.geat.GitUtils;
+import org.talend.geat.SanityCheck.CheckLevel;
+import org.talend.geat.exception.IllegalCommandArgumentException;
+import org.talend.geat.exception.IncorrectRepositoryStateException;
+import org.talend.geat.exception.InterruptedCommandException;
+import org.talend.geat.io.AutoFlushLineWriter;
+import org.talend.geat.security.KeepAliveHttpConnectionFactory;
+import org.talend.geat.security.PooledSshSessionFactory;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.io.Files;
+
+/**
+ * Runs commands read from a file, or from standard input, one after the other in this JVM, and writes one JSON result
+ * line per command instead of the human output.
+ * 
+ * Input lines are:
+ * <ul>
+ * <li>commands, as given to geat: <code>feature-start tagada</code></li>
+ * <li>answers, starting with '&gt;', after a command: answers to the questions of this command, in order. A question
+ * without answer takes its default value</li>
+ * <li><code>cd &lt;directory&gt;</code>, to change the directory next commands run in</li>
+ * <li>empty lines, and comments starting with '#'</li>
+ * </ul>
+ * 
+ * A result line looks like:
+ * 
+ * <pre>
+ * {"command":"feature-start tagada","directory":"/work/repo","status":"ok","millis":52,...,"output":["..."]}
+ * </pre>
+ * 
+ * where status is ok, usage (wrong arguments, nothing done), refused (repository state does not allow the command,
+ * nothing done), interrupted (repository has changed, the command must be run again to complete) or error. A failed
+ * command also has an "error" text. Result lines also tell how many SSH sessions and exec channels, HTTPS connections
+ * and requests the command has opened (sshSessions, sshChannels, httpsConnections, httpsRequests).
+ * 
+ * As in the daemon, repositories and connections to remotes stay opened from one command to another. Results are
+ * buffered, and only flushed when the input has nothing more to read right away.
+ */
+public class Batch extends Command {
+
+    protected static final String   NAME      = "batch";
+
+    protected String                inputFile;
+
+    // Repositories kept opened, by work tree:
+    private Map<String, Repository> workTrees = new TreeMap<String, Repository>();
+
+    protected Batch() {
+        super();
+    }
+
+    protected Command innerParseArgs(String[] args) throws IllegalCommandArgumentException {
+        if (args.length > 2) {
+            throw IllegalCommandArgumentException.build(this);
+        }
+        if (args.length == 2) {
+            inputFile = args[1];
+        }
+        return this;
+    }
+
+    @Override
+    public CheckLevel getCheckLevel() {
+        return CheckLevel.NONE;
+    }
+
+    public void execute(Writer writer) throws IOException {
+        String previousDir = System.getProperty("user.dir");
+        BufferedReader input;
+        if (inputFile == null) {
+            input = new BufferedReader(new InputStreamReader(System.in, Charsets.UTF_8));
+        } else {
+            input = Files.newReader(resolve(previousDir, inputFile), Charsets.UTF_8);
+        }
+        BufferedWriter output = new BufferedWriter(new OutputStreamWriter(System.out, Charsets.UTF_8));
+
+        try {
+            String directory = previousDir;
+            String line = readLine(input, output);
+            while (line != null) {
+                line = line.trim();
+                if (line.length() == 0 || line.startsWith("#")) {
+                    line = readLine(input, output);
+                } else if (line.startsWith("cd ")) {
+                    directory = resolve(directory, line.substring(3).trim()).getAbsolutePath();
+                    line = readLine(input, output);
+                } else {
+                    String command = line;
+                    List<String> answers = new ArrayList<String>();
+                    line = readLine(input, output);
+                    while (line != null && line.startsWith(">")) {
+                        answers.add(line.substring(1).trim());
+                        line = readLine(input, output);
+                    }
+                    output.write(run(command.split("\\s+"), directory, answers));
+                    output.newLine();
+                }
+            }
+            output.flush();
+        } finally {
+            if (inputFile != null) {
+                input.close();
+            }
+            for (Repository repository : workTrees.values()) {
+                repository.close();
+            }
+            workTrees.clear();
+            System.setProperty("user.dir", previousDir);
+            GitConfiguration.reset();
+        }
+    }
+
+    /**
+     * Flushes results before waiting for input, so that a caller writing commands one by one gets each result.
+     */
+    private static String readLine(BufferedReader input, Writer output) throws IOException {
+        if (!input.ready()) {
+            output.flush();
+        }
+        return input.readLine();
+    }
+
+    private static File resolve(String directory, String path) {
+        File file = new File(path);
+        if (file.isAbsolute()) {
+            return file;
+        }
+        return new File(directory, path);
+    }
+
+    /**
+     * Runs one command in this directory, answers being its standard input.
+     * 
+     * @return the JSON result line
+     */
+    private String run(String[] args, String directory, List<String> answers) {
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        PrintStream commandOut = new PrintStream(captured, true);
+        String status = "ok";
+        String error = null;
+
+        PrintStream previousOut = System.out;
+        InputStream previousIn = System.in;
+        int sshSessions = PooledSshSessionFactory.getOpenedSessionsCount();
+        int sshChannels = PooledSshSessionFactory.getChannelsCount();
+        int httpsConnections = KeepAliveHttpConnectionFactory.getConnectionsCount();
+        int httpsRequests = KeepAliveHttpConnectionFactory.getRequestsCount();
+        long start = System.currentTimeMillis();
+        Command command = null;
+        try {
+            System.setOut(commandOut);
+            System.setIn(new ByteArrayInputStream(Joiner.on('\n').join(answers).getBytes()));
+            System.setProperty("user.dir", directory);
+            // Configuration singleton is bound to the previous command repository:
+            GitConfiguration.reset();
+            rememberWorkTree();
+
+            command = CommandsRegistry.INSTANCE.getCommand(args[0]);
+            if (command == null || command instanceof Batch || command instanceof Daemon) {
+                status = "usage";
+                error = "Unknown command in batch: " + args[0];
+            } else {
+                // Flushes go to memory, and keep the command output in order with what it prints on System.out:
+                command.setWriter(new AutoFlushLineWriter(new OutputStreamWriter(commandOut)));
+                command.parseArgs(args).run();
+            }
+        } catch (IllegalCommandArgumentException e) {
+            status = "usage";
+            error = e.getMessage();
+        } catch (IncorrectRepositoryStateException e) {
+            status = "refused";
+            error = e.getDetails();
+        } catch (InterruptedCommandException e) {
+            status = "interrupted";
+            error = e.getDetails();
+        } catch (Exception e) {
+            status = "error";
+            error = e.toString();
+        } finally {
+            if (command != null) {
+                // Also opened when arguments are refused:
+                command.close();
+            }
+            System.setOut(previousOut);
+            System.setIn(previousIn);
+        }
+        long millis = System.currentTimeMillis() - start;
+
+        StringBuilder json = new StringBuilder();
+        json.append("{\"command\":").append(quote(Joiner.on(' ').join(args)));
+        json.append(",\"directory\":").append(quote(directory));
+        json.append(",\"status\":").append(quote(status));
+        json.append(",\"millis\":").append(millis);
+        json.append(",\"sshSessions\":").append(PooledSshSessionFactory.getOpenedSessionsCount() - sshSessions);
+        json.append(",\"sshChannels\":").append(PooledSshSessionFactory.getChannelsCount() - sshChannels);
+        json.append(",\"httpsConnections\":").append(
+                KeepAliveHttpConnectionFactory.getConnectionsCount() - httpsConnections);
+        json.append(",\"httpsRequests\":").append(KeepAliveHttpConnectionFactory.getRequestsCount() - httpsRequests);
+        if (error != null) {
+            json.append(",\"error\":").append(quote(error));
+        }
+        json.append(",\"output\":[");
+        List<String> lines = new ArrayList<String>();
+        for (String outputLine : captured.toString().split("\r?\n")) {
+            lines.add(quote(outputLine));
+        }
+        // Trailing empty lines only separate commands in human output:
+        while (!lines.isEmpty() && lines.get(lines.size() - 1).equals("\"\"")) {
+            lines.remove(lines.size() - 1);
+        }
+        json.append(Joiner.on(',').join(lines));
+        json.append("]}");
+        return json.toString();
+    }
+
+    private void rememberWorkTree() {
+        try {
+            String workTree = GitUtils.getWorkingGit();
+            if (!workTrees.containsKey(workTree)) {
+                workTrees.put(workTree, GitUtils.openRepository());
+            }
+        } catch (IncorrectRepositoryStateException e) {
+            // Command will complain itself
+        } catch (IOException e) {
+            // Command will complain itself
+        }
+    }
+
+    /**
+     * @return the string as a JSON string literal
+     */
+    protected static String quote(String string) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (char c : string.toCharArray()) {
+            switch (c) {
+            case '"':
+                quoted.append("\\\"");
+                break;
+            case '\\':
+                quoted.append("\\\\");
+                break;
+            case '\n':
+                quoted.append("\\n");
+                break;
+            case '\r':
+                quoted.append("\\r");
+                break;
+            case '\t':
+                quoted.append("\\t");
+                break;
+            default:
+                if (c < 0x20) {
+                    quoted.append(String.format("\\u%04x", (int) c));
+                } else {
+                    quoted.append(c);
+                }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    public String getUsage() {
+        return "[<file>]";
+    }
+
+}
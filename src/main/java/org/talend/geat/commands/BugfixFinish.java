@@ -2,12 +2,12 @@ package org.talend.geat.commands;
 
 import java.io.IOException;
 import java.io.Writer;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.eclipse.jgit.api.errors.GitAPIException;
-import org.talend.geat.GitConfiguration;
 import org.talend.geat.GitUtils;
-import org.talend.geat.MyGit;
+import org.talend.geat.RepositoryContext;
 import org.talend.geat.exception.IllegalCommandArgumentException;
 import org.talend.geat.exception.IncorrectRepositoryStateException;
 import org.talend.geat.exception.InterruptedCommandException;
@@ -21,6 +21,11 @@ import org.talend.geat.exception.InterruptedCommandException;
  * </ul>
  * 
  * Branch name must follow the template bugfix/<startpoint>/<bugName>
+ * 
+ * With --publish, startpoint branch is then pushed and bugfix branch deleted on remote, in one single push.
+ * 
+ * With --cascade, the bugfix is also cherry-picked on all newer maintenance and release branches, and on master (see
+ * GitUtils.cascade()).
  */
 public class BugfixFinish extends FeatureFinish {
 
@@ -29,25 +34,19 @@ public class BugfixFinish extends FeatureFinish {
     // Optionnal param, only required if a bug with the same name exists based on different startpoints
     protected String           target;
 
+    protected boolean          cascade;
+
     protected BugfixFinish() {
         super();
     }
 
-    @Override
-    public CommandNames getNames() {
-        return new CommandNames(NAME, "bf");
-    }
-
-    public String getDescription() {
-        return "Merge a bugfix branch on its startpoint";
-    }
-
     public String getUsage() {
-        return "<bugfix-name> [version] [policy]";
+        return "<bugfix-name> [version] [policy] [--publish] [--cascade]";
     }
 
     protected Command innerParseArgs(String[] args) throws IllegalCommandArgumentException,
             IncorrectRepositoryStateException {
+        args = parseCascade(parsePublish(args));
         if (args.length < 2) {
             throw IllegalCommandArgumentException.build(this);
         }
@@ -64,7 +63,7 @@ public class BugfixFinish extends FeatureFinish {
                 mergePolicy = parseMergePolicy(args[2]);
             } catch (IllegalCommandArgumentException e) {
                 target = extractStartpointFromBugName("bugfix/" + args[2] + "/" + featureName);
-                mergePolicy = MergePolicy.valueOf(GitConfiguration.getInstance().get("finishmergemode").toUpperCase());
+                mergePolicy = MergePolicy.valueOf(getContext().getConfiguration().get("finishmergemode").toUpperCase());
             }
             if (target == null) {
                 try {
@@ -89,19 +88,34 @@ public class BugfixFinish extends FeatureFinish {
                 e.printStackTrace();
                 throw new RuntimeException(e);
             }
-            mergePolicy = MergePolicy.valueOf(GitConfiguration.getInstance().get("finishmergemode").toUpperCase());
+            mergePolicy = MergePolicy.valueOf(getContext().getConfiguration().get("finishmergemode").toUpperCase());
         }
 
         return this;
     }
 
+    /**
+     * @return args without the --cascade option, that can be given anywhere after the command name
+     */
+    protected String[] parseCascade(String[] args) {
+        List<String> others = new ArrayList<String>();
+        for (String arg : args) {
+            if (arg.equals("--cascade")) {
+                cascade = true;
+            } else {
+                others.add(arg);
+            }
+        }
+        return others.toArray(new String[others.size()]);
+    }
+
     /**
      * Regarding existing bugfix branches for this bugname, try to guess the version. Works if only ONE branches like
      * 'bugfix/./bugname' exists.
      */
     private String guessTarget() throws IOException, GitAPIException, IllegalCommandArgumentException,
             IncorrectRepositoryStateException {
-        List<String> branches = GitUtils.listBranches("bugfix/.*/" + featureName);
+        List<String> branches = GitUtils.listBranches(getContext(), "bugfix/.*/" + featureName);
         if (branches.isEmpty()) {
             throw new IllegalCommandArgumentException("No bugfix branch for bug '" + featureName + "'");
         } else if (branches.size() > 1) {
@@ -114,10 +128,14 @@ public class BugfixFinish extends FeatureFinish {
 
     public void execute(Writer writer) throws IncorrectRepositoryStateException, IOException, GitAPIException,
             InterruptedCommandException {
-        MyGit repo = MyGit.open();
+        RepositoryContext context = getContext();
 
-        GitUtils.merge(writer, repo, featureName, GitConfiguration.getInstance().get("bugfixPrefix"), target, "BugFix",
-                mergePolicy, NAME);
+        if (cascade) {
+            GitUtils.cascade(writer, context, featureName, target, mergePolicy, NAME, publish);
+        } else {
+            GitUtils.merge(writer, context, featureName, context.getConfiguration().get("bugfixPrefix"), target,
+                    "BugFix", mergePolicy, NAME, publish);
+        }
     }
 
     public String extractStartpointFromBugName(String bugName) throws IllegalCommandArgumentException,
@@ -130,9 +148,9 @@ public class BugfixFinish extends FeatureFinish {
         if (base.equals("master")) {
 
         } else if (base.split("\\.").length == 2) {
-            base = GitConfiguration.getInstance().get("maintenanceprefix") + "/" + base;
+            base = getContext().getConfiguration().get("maintenanceprefix") + "/" + base;
         } else {
-            base = GitConfiguration.getInstance().get("releaseprefix") + "/" + base;
+            base = getContext().getConfiguration().get("releaseprefix") + "/" + base;
         }
         return base;
     }
@@ -145,4 +163,12 @@ public class BugfixFinish extends FeatureFinish {
         this.target = target;
     }
 
+    public boolean isCascade() {
+        return cascade;
+    }
+
+    public void setCascade(boolean cascade) {
+        this.cascade = cascade;
+    }
+
 }
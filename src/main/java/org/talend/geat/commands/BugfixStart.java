@@ -4,15 +4,12 @@ import java.io.IOException;
 import java.io.Writer;
 import java.util.List;
 
-import org.eclipse.jgit.api.MergeCommand.FastForwardMode;
 import org.eclipse.jgit.api.errors.GitAPIException;
-import org.eclipse.jgit.lib.Ref;
-import org.eclipse.jgit.transport.RefSpec;
 import org.talend.geat.Configuration;
-import org.talend.geat.GitConfiguration;
 import org.talend.geat.GitUtils;
 import org.talend.geat.InputsUtils;
 import org.talend.geat.MyGit;
+import org.talend.geat.RepositoryContext;
 import org.talend.geat.SanityCheck;
 import org.talend.geat.SanityCheck.CheckLevel;
 import org.talend.geat.exception.IllegalCommandArgumentException;
@@ -42,11 +39,6 @@ public class BugfixStart extends Command {
         super();
     }
 
-    @Override
-    public CommandNames getNames() {
-        return new CommandNames(NAME, "bs");
-    }
-
     protected Command innerParseArgs(String[] args) throws IllegalCommandArgumentException {
         if (args.length != 2 && args.length != 3) {
             throw IllegalCommandArgumentException.build(this);
@@ -60,10 +52,6 @@ public class BugfixStart extends Command {
         return this;
     }
 
-    public String getDescription() {
-        return "Create a branch to work on a new bug fix";
-    }
-
     public String getUsage() {
         return "<bugfix-name> [start-point]";
     }
@@ -74,24 +62,25 @@ public class BugfixStart extends Command {
     }
 
     public void execute(Writer writer) throws IncorrectRepositoryStateException, IOException, GitAPIException {
+        RepositoryContext context = getContext();
         try {
-            SanityCheck.check(CheckLevel.NO_UNCOMMITTED_CHANGES);
+            SanityCheck.check(context, CheckLevel.NO_UNCOMMITTED_CHANGES);
         } catch (IncorrectRepositoryStateException e) {
             if (!InputsUtils.askUserAsBoolean(e.getDetails() + "\n\nProceed anyway")) {
                 return;
             }
         }
 
-        MyGit repo = MyGit.open();
+        MyGit repo = context.getGit();
 
         if (startPoint == null) {
-            List<String> listBranches = GitUtils.listBranches("master|maintenance/.*|release/.*");
-            String defaultValue = GitConfiguration.getInstance().get("bugfixStartPoint");
+            List<String> listBranches = GitUtils.listBranches(context, "master|maintenance/.*|release/.*");
+            String defaultValue = context.getConfiguration().get("bugfixStartPoint");
             startPoint = InputsUtils.askUser("Select the branch to start from", listBranches, defaultValue);
         }
 
-        String bugBranchName = GitUtils.getBugfixBranchName(startPoint, bugName);
-        boolean hasRemote = GitUtils.hasRemote("origin", repo.getRepository());
+        String bugBranchName = GitUtils.getBugfixBranchName(context.getConfiguration(), startPoint, bugName);
+        boolean hasRemote = context.hasRemote("origin");
 
         // Test if such a branch exists locally:
         if (GitUtils.hasLocalBranch(repo.getRepository(), bugBranchName)) {
@@ -100,7 +89,7 @@ public class BugfixStart extends Command {
 
         if (hasRemote) {
             // Test if branch exist remotely:
-            if (GitUtils.hasRemoteBranch(repo.getRepository(), bugBranchName)) {
+            if (GitUtils.hasRemoteBranch(context, bugBranchName)) {
                 IncorrectRepositoryStateException irse = new IncorrectRepositoryStateException(
                         "A remote branch named '" + bugBranchName + "' already exist.");
                 irse.addLine("To checkout this branch locally, use:");
@@ -109,27 +98,20 @@ public class BugfixStart extends Command {
                         + "git fetch && git checkout " + bugBranchName);
                 throw irse;
             }
-
-            // git checkout master
-            repo.checkout().setName(startPoint).call();
-
-            // git pull --rebase origin
-            // 1. git fetch
-            repo.fetch().setRefSpecs(new RefSpec("refs/heads/" + startPoint + ":refs/remotes/origin/" + startPoint))
-                    .setRemote("origin").call();
-            // 2. git merge ff
-            Ref refOriginMaster = repo.getRepository().getRef("origin/master");
-            repo.merge().setFastForward(FastForwardMode.FF_ONLY).include(refOriginMaster).call();
         }
 
-        repo.checkout().setCreateBranch(true).setStartPoint(startPoint).setName(bugBranchName).call();
+        // git checkout -b <branch> origin/<start-point>, without checking out <start-point> first
+        boolean startPointUpdated = GitUtils.startBranch(context, startPoint, bugBranchName);
 
         writer.write("Summary of actions:");
         writer.write(" - A new branch '" + bugBranchName + "' was created, based on '" + startPoint + "'");
+        if (startPointUpdated) {
+            writer.write(" - Local branch '" + startPoint + "' was updated from origin, without being checked out");
+        }
 
         // If all goes well, we set current start-point as default for next time:
-        if (!GitConfiguration.getInstance().get("bugfixStartPoint").equals(startPoint)) {
-            GitConfiguration.getInstance().set("bugfixStartPoint", startPoint);
+        if (!context.getConfiguration().get("bugfixStartPoint").equals(startPoint)) {
+            context.getConfiguration().set("bugfixStartPoint", startPoint);
             writer.write(" - Default bugfix startpoint is now '" + startPoint + "'");
         }
 
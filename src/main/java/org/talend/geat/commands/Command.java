@@ -5,6 +5,7 @@ import java.io.OutputStreamWriter;
 import java.io.Writer;
 
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.talend.geat.RepositoryContext;
 import org.talend.geat.SanityCheck;
 import org.talend.geat.SanityCheck.CheckLevel;
 import org.talend.geat.exception.IllegalCommandArgumentException;
@@ -16,22 +17,29 @@ import org.talend.geat.io.AutoFlushLineWriter;
  * Common superclass of all commands in the package.
  * 
  * Thanks to callable field, this class assures that a command instance can be run only once.
+ * 
+ * The repository a command works on is opened once, on first call to getContext() (parseArgs() may already open it),
+ * and closed at the end of run(). Callers that parse arguments must call close() in a finally block, so that it is
+ * also closed when arguments are refused or the command is not run.
  */
 public abstract class Command {
 
-    private boolean callable = true;
+    private boolean           callable = true;
+
+    private Writer            writer   = new AutoFlushLineWriter(new OutputStreamWriter(System.out));
 
-    private Writer  writer   = new AutoFlushLineWriter(new OutputStreamWriter(System.out));
+    private RepositoryContext context;
 
     public Command() {
         super();
     }
 
     /**
-     * Returns names that this command will be associated with in registry. At least one name is required, few are
-     * allowed for shortcuts.
+     * Returns names that this command is associated with in registry (see CommandsRegistry).
      */
-    public abstract CommandNames getNames();
+    public CommandNames getNames() {
+        return getEntry().getNames();
+    }
 
     /**
      * Used only to prints help.
@@ -39,9 +47,20 @@ public abstract class Command {
     public abstract String getUsage();
 
     /**
-     * Used only to prints help.
+     * Used only to prints help (registered with the command, see CommandsRegistry).
      */
-    public abstract String getDescription();
+    public String getDescription() {
+        return getEntry().getDescription();
+    }
+
+    private CommandEntry getEntry() {
+        CommandEntry entry = CommandsRegistry.INSTANCE.getEntry(getClass());
+        if (entry == null) {
+            throw new IllegalStateException("Command " + getClass().getName()
+                    + " is not registered, it must override getNames() and getDescription()");
+        }
+        return entry;
+    }
 
     public abstract CheckLevel getCheckLevel();
 
@@ -64,10 +83,34 @@ public abstract class Command {
 
     public final Command parseArgs(String[] args) throws IllegalCommandArgumentException,
             IncorrectRepositoryStateException {
-        SanityCheck.check(getCheckLevel());
+        sanityCheck();
         return innerParseArgs(args);
     }
 
+    /**
+     * @return the repository this command works on. Must not be called by commands with CheckLevel.NONE, that can run
+     *         outside of a repository.
+     */
+    protected RepositoryContext getContext() throws IncorrectRepositoryStateException {
+        if (context == null) {
+            context = RepositoryContext.open();
+        }
+        return context;
+    }
+
+    /**
+     * @return the repository this command works on if it has already been opened, null otherwise
+     */
+    protected RepositoryContext getOpenedContext() {
+        return context;
+    }
+
+    private void sanityCheck() throws IncorrectRepositoryStateException {
+        if (getCheckLevel() != CheckLevel.NONE) {
+            SanityCheck.check(getContext(), getCheckLevel());
+        }
+    }
+
     protected Command innerParseArgs(String[] args) throws IllegalCommandArgumentException,
             IncorrectRepositoryStateException {
         return this;
@@ -80,11 +123,25 @@ public abstract class Command {
             InterruptedCommandException {
         checkCallable();
 
-        SanityCheck.check(getCheckLevel());
+        try {
+            sanityCheck();
 
-        callable = false;
+            callable = false;
 
-        execute(this.writer);
+            execute(this.writer);
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Closes the repository this command works on, if opened. Can be called several times.
+     */
+    public void close() {
+        if (context != null) {
+            context.close();
+            context = null;
+        }
     }
 
     protected void checkCallable() {
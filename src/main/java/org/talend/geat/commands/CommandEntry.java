@@ -0,0 +1,43 @@
+package org.talend.geat.commands;
+
+/**
+ * What the registry knows about a command without loading it: names, description, and the class to instantiate when
+ * the command is run.
+ * 
+ * Listing commands (help) only reads entries, so that no command class, and no JGit class, is loaded.
+ */
+public class CommandEntry {
+
+    private final CommandNames names;
+
+    private final String       description;
+
+    private final String       className;
+
+    public CommandEntry(CommandNames names, String description, String className) {
+        super();
+        this.names = names;
+        this.description = description;
+        this.className = className;
+    }
+
+    public CommandNames getNames() {
+        return names;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * Loads the command class, on first call, and creates a new instance of it.
+     */
+    public Command newInstance() throws ClassNotFoundException, InstantiationException, IllegalAccessException {
+        return (Command) Class.forName(className).newInstance();
+    }
+
+}
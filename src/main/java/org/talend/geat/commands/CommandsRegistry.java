@@ -5,13 +5,19 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Commands by name.
+ * 
+ * Commands are registered as entries (see CommandEntry): a command class is only loaded when the command is looked
+ * up, so that startup and help do not pay for the others (and for JGit).
+ */
 public class CommandsRegistry {
 
     public static final CommandsRegistry INSTANCE        = new CommandsRegistry();
 
-    private Map<String, Command>         commands        = new HashMap<String, Command>();
+    private Map<String, CommandEntry>    commands        = new HashMap<String, CommandEntry>();
 
-    protected List<Command>              orderedCommands = new ArrayList<Command>();
+    protected List<CommandEntry>         orderedCommands = new ArrayList<CommandEntry>();
 
     private CommandsRegistry() {
         registerCommands();
@@ -20,7 +26,7 @@ public class CommandsRegistry {
     public Command getCommand(String key) {
         if (commands.containsKey(key)) {
             try {
-                return commands.get(key).getClass().newInstance();
+                return commands.get(key).newInstance();
             } catch (Exception e) {
                 System.out.println("ERROR: " + e.getMessage());
                 return null;
@@ -30,27 +36,53 @@ public class CommandsRegistry {
         }
     }
 
+    /**
+     * @return the entry of this command class, null if not registered
+     */
+    public CommandEntry getEntry(Class<? extends Command> commandClass) {
+        return commands.get(commandClass.getCanonicalName());
+    }
+
     private void registerCommands() {
-        registerCommand(new Help());
-        registerCommand(new Version());
-        registerCommand(new FeatureStart());
-        registerCommand(new FeatureFinish());
-        registerCommand(new FeaturePush());
-        registerCommand(new FeaturePull());
-        registerCommand(new BugfixStart());
-        registerCommand(new BugfixFinish());
+        registerCommand("org.talend.geat.commands.Help", "Displays this help", "help");
+        registerCommand("org.talend.geat.commands.Version", "Displays GEAT version", "version", "vers", "vv");
+        registerCommand("org.talend.geat.commands.FeatureStart", "Create a branch to work on a new feature",
+                FeatureStart.NAME, "fs");
+        registerCommand("org.talend.geat.commands.FeatureFinish",
+                "Merge and close a feature branch when work is finished", FeatureFinish.NAME, "ff");
+        registerCommand("org.talend.geat.commands.FeaturePush", "Push a feature branch to remote to share it",
+                FeaturePush.NAME, "fps");
+        registerCommand("org.talend.geat.commands.FeaturePull", "Pull a feature branch from remote", "feature-pull",
+                "fpl");
+        registerCommand("org.talend.geat.commands.BugfixStart", "Create a branch to work on a new bug fix",
+                BugfixStart.NAME, "bs");
+        registerCommand("org.talend.geat.commands.BugfixFinish", "Merge a bugfix branch on its startpoint",
+                BugfixFinish.NAME, "bf");
+        registerCommand("org.talend.geat.commands.MergeTrain",
+                "Finish many features at once, with one fetch and one push", MergeTrain.NAME, "mt");
+        registerCommand("org.talend.geat.commands.Daemon", "Keep a daemon running to speed up next geat calls",
+                Daemon.NAME);
+        registerCommand("org.talend.geat.commands.Agent",
+                "Keep credentials in memory so that they are asked once per session", Agent.NAME);
+        registerCommand("org.talend.geat.commands.Batch",
+                "Run commands read from a file or standard input, with one JSON result per command", Batch.NAME);
     }
 
-    private void registerCommand(Command command) {
-        commands.put(command.getNames().getMainName(), command);
-        commands.put(command.getClass().getCanonicalName(), command);
-        for (String name : command.getNames().getAlternateNames()) {
-            commands.put(name, command);
+    /**
+     * @param mainName
+     *            name the command is called with in command line. Alternate names are allowed for shortcuts.
+     */
+    private void registerCommand(String className, String description, String mainName, String... alternateNames) {
+        CommandEntry entry = new CommandEntry(new CommandNames(mainName, alternateNames), description, className);
+        commands.put(mainName, entry);
+        commands.put(className, entry);
+        for (String name : alternateNames) {
+            commands.put(name, entry);
         }
-        orderedCommands.add(command);
+        orderedCommands.add(entry);
     }
 
-    protected Map<String, Command> getCommands() {
+    protected Map<String, CommandEntry> getCommands() {
         return commands;
     }
 
@@ -0,0 +1,74 @@
+package org.talend.geat.commands;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.talend.geat.Configuration;
+import org.talend.geat.SanityCheck.CheckLevel;
+import org.talend.geat.daemon.GeatClient;
+import org.talend.geat.daemon.GeatDaemon;
+import org.talend.geat.exception.IllegalCommandArgumentException;
+
+import com.google.common.base.Strings;
+
+/**
+ * Starts a daemon that keeps JGit and repositories warm. While it runs, next geat calls are forwarded to it.
+ * 
+ * 'stop' and 'status' actions are answered by the running daemon itself, reaching this command means no daemon runs.
+ */
+public class Daemon extends Command {
+
+    protected static final String NAME = "daemon";
+
+    protected String              action = "start";
+
+    protected Daemon() {
+        super();
+    }
+
+    protected Command innerParseArgs(String[] args) throws IllegalCommandArgumentException {
+        if (args.length > 2) {
+            throw IllegalCommandArgumentException.build(this);
+        }
+        if (args.length == 2) {
+            action = args[1];
+            if (!action.equals("start") && !action.equals("stop") && !action.equals("status")) {
+                throw IllegalCommandArgumentException.build(this);
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public CheckLevel getCheckLevel() {
+        return CheckLevel.NONE;
+    }
+
+    public void execute(Writer writer) throws IOException {
+        if (!action.equals("start")) {
+            writer.write("No GEAT daemon running");
+            return;
+        }
+        if (GeatClient.isDaemonRunning()) {
+            writer.write("A GEAT daemon is already running. To stop it, use:");
+            writer.write("");
+            writer.write(Strings.repeat(" ", Configuration.INSTANCE.getAsInt("geat.indentForCommandTemplates"))
+                    + "geat " + NAME + " stop");
+            return;
+        }
+
+        GeatDaemon daemon = new GeatDaemon();
+        daemon.start();
+        writer.write("GEAT daemon listening on port " + daemon.getPort() + ", next geat calls will use it.");
+        writer.write("To stop it, use:");
+        writer.write("");
+        writer.write(Strings.repeat(" ", Configuration.INSTANCE.getAsInt("geat.indentForCommandTemplates")) + "geat "
+                + NAME + " stop");
+        daemon.serve();
+    }
+
+    public String getUsage() {
+        return "[start|stop|status]";
+    }
+
+}
@@ -2,11 +2,12 @@ package org.talend.geat.commands;
 
 import java.io.IOException;
 import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.eclipse.jgit.api.errors.GitAPIException;
-import org.talend.geat.GitConfiguration;
 import org.talend.geat.GitUtils;
-import org.talend.geat.MyGit;
+import org.talend.geat.RepositoryContext;
 import org.talend.geat.SanityCheck.CheckLevel;
 import org.talend.geat.exception.IllegalCommandArgumentException;
 import org.talend.geat.exception.IncorrectRepositoryStateException;
@@ -20,6 +21,8 @@ import org.talend.geat.exception.InterruptedCommandException;
  * <li>merge feature branch into develop branch (differents policy can be applied here)</li>
  * <li>delete feature branch</li>
  * </ul>
+ * 
+ * With --publish, develop branch is then pushed and feature branch deleted on remote, in one single push.
  */
 public class FeatureFinish extends Command {
 
@@ -29,31 +32,24 @@ public class FeatureFinish extends Command {
 
     protected MergePolicy         mergePolicy;
 
+    protected boolean             publish;
+
     protected FeatureFinish() {
         super();
     }
 
-    @Override
-    public CommandNames getNames() {
-        return new CommandNames(NAME, "ff");
-    }
-
-    public String getDescription() {
-        return "Merge and close a feature branch when work is finished";
-    }
-
     public String getUsage() {
         String usage = "<feature-name> [policy (squash|rebase)";
-        try {
-            usage += ", default=" + GitConfiguration.getInstance().get("finishmergemode") + "]";
-        } catch (IncorrectRepositoryStateException e) {
-            // May occurs if out of a GIT repo
+        // The repository is not opened (and its config not written) only to print usage:
+        if (getOpenedContext() != null) {
+            usage += ", default=" + getOpenedContext().getConfiguration().get("finishmergemode");
         }
-        return usage;
+        return usage + "] [--publish]";
     }
 
     protected Command innerParseArgs(String[] args) throws IllegalCommandArgumentException,
             IncorrectRepositoryStateException {
+        args = parsePublish(args);
         if (args.length < 2) {
             throw IllegalCommandArgumentException.build(this);
         }
@@ -62,12 +58,27 @@ public class FeatureFinish extends Command {
         if (args.length >= 3) {
             mergePolicy = parseMergePolicy(args[2]);
         } else {
-            mergePolicy = MergePolicy.valueOf(GitConfiguration.getInstance().get("finishmergemode").toUpperCase());
+            mergePolicy = MergePolicy.valueOf(getContext().getConfiguration().get("finishmergemode").toUpperCase());
         }
 
         return this;
     }
 
+    /**
+     * @return args without the --publish option, that can be given anywhere after the command name
+     */
+    protected String[] parsePublish(String[] args) {
+        List<String> others = new ArrayList<String>();
+        for (String arg : args) {
+            if (arg.equals("--publish")) {
+                publish = true;
+            } else {
+                others.add(arg);
+            }
+        }
+        return others.toArray(new String[others.size()]);
+    }
+
     protected MergePolicy parseMergePolicy(String arg) throws IllegalCommandArgumentException {
         try {
             return MergePolicy.valueOf(arg.toUpperCase());
@@ -90,10 +101,11 @@ public class FeatureFinish extends Command {
 
     public void execute(Writer writer) throws IncorrectRepositoryStateException, IOException, GitAPIException,
             InterruptedCommandException {
-        MyGit repo = MyGit.open();
+        RepositoryContext context = getContext();
 
-        GitUtils.merge(writer, repo, featureName, GitConfiguration.getInstance().get("featurePrefix"), GitConfiguration
-                .getInstance().get("featureStartPoint"), "feature", mergePolicy, getNames().getMainName());
+        GitUtils.merge(writer, context, featureName, context.getConfiguration().get("featurePrefix"), context
+                .getConfiguration().get("featureStartPoint"), "feature", mergePolicy, getNames().getMainName(),
+                publish);
     }
 
     public String getFeatureName() {
@@ -104,6 +116,14 @@ public class FeatureFinish extends Command {
         this.featureName = featureName;
     }
 
+    public boolean isPublish() {
+        return publish;
+    }
+
+    public void setPublish(boolean publish) {
+        this.publish = publish;
+    }
+
     public Enum<MergePolicy> getMergePolicy() {
         return mergePolicy;
     }
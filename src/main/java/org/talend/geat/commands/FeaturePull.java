@@ -5,9 +5,9 @@ import java.io.Writer;
 
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.talend.geat.Configuration;
-import org.talend.geat.GitConfiguration;
 import org.talend.geat.GitUtils;
 import org.talend.geat.MyGit;
+import org.talend.geat.RepositoryContext;
 import org.talend.geat.SanityCheck.CheckLevel;
 import org.talend.geat.exception.IllegalCommandArgumentException;
 import org.talend.geat.exception.IncorrectRepositoryStateException;
@@ -25,11 +25,6 @@ public class FeaturePull extends Command {
         super();
     }
 
-    @Override
-    public CommandNames getNames() {
-        return new CommandNames("feature-pull", "fpl");
-    }
-
     protected Command innerParseArgs(String[] args) throws IllegalCommandArgumentException {
         if (args.length < 2) {
             throw IllegalCommandArgumentException.build(this);
@@ -45,10 +40,11 @@ public class FeaturePull extends Command {
     }
 
     public void execute(Writer writer) throws IncorrectRepositoryStateException, IOException, GitAPIException {
-        MyGit repo = MyGit.open();
+        RepositoryContext context = getContext();
+        MyGit repo = context.getGit();
 
         // Check if remote
-        boolean hasRemote = GitUtils.hasRemote("origin", repo.getRepository());
+        boolean hasRemote = context.hasRemote("origin");
         if (!hasRemote) {
             IncorrectRepositoryStateException irse = new IncorrectRepositoryStateException(
                     "No remote defined for this repository. To add one, use:");
@@ -58,10 +54,10 @@ public class FeaturePull extends Command {
             throw irse;
         }
 
-        String featureBranchName = GitConfiguration.getInstance().get("featurePrefix") + "/" + featureName;
+        String featureBranchName = context.getConfiguration().get("featurePrefix") + "/" + featureName;
 
         // Update branch:
-        boolean created = GitUtils.callFetch(repo.getRepository(), featureBranchName);
+        boolean created = GitUtils.callFetch(context, featureBranchName);
 
         writer.write("Summary of actions:");
         if (created) {
@@ -77,8 +73,4 @@ public class FeaturePull extends Command {
         return "<feature-name>";
     }
 
-    public String getDescription() {
-        return "Pull a feature branch from remote";
-    }
-
 }
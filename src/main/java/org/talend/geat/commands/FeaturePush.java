@@ -4,11 +4,13 @@ import java.io.IOException;
 import java.io.Writer;
 
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.transport.RemoteRefUpdate;
 import org.talend.geat.Configuration;
-import org.talend.geat.GitConfiguration;
 import org.talend.geat.GitUtils;
 import org.talend.geat.MyGit;
+import org.talend.geat.RepositoryContext;
 import org.talend.geat.SanityCheck.CheckLevel;
 import org.talend.geat.exception.IllegalCommandArgumentException;
 import org.talend.geat.exception.IncorrectRepositoryStateException;
@@ -28,11 +30,6 @@ public class FeaturePush extends Command {
         super();
     }
 
-    @Override
-    public CommandNames getNames() {
-        return new CommandNames(NAME, "fps");
-    }
-
     protected Command innerParseArgs(String[] args) throws IllegalCommandArgumentException {
         if (args.length < 2) {
             throw IllegalCommandArgumentException.build(this);
@@ -48,10 +45,11 @@ public class FeaturePush extends Command {
     }
 
     public void execute(Writer writer) throws IncorrectRepositoryStateException, IOException, GitAPIException {
-        MyGit repo = MyGit.open();
+        RepositoryContext context = getContext();
+        MyGit repo = context.getGit();
 
         // Check if remote
-        boolean hasRemote = GitUtils.hasRemote("origin", repo.getRepository());
+        boolean hasRemote = context.hasRemote("origin");
         if (!hasRemote) {
             IncorrectRepositoryStateException irse = new IncorrectRepositoryStateException(
                     "No remote defined for this repository. To add one, use:");
@@ -62,7 +60,7 @@ public class FeaturePush extends Command {
         }
 
         // Check if local branch exist
-        String featureBranchName = GitConfiguration.getInstance().get("featurePrefix") + "/" + featureName;
+        String featureBranchName = context.getConfiguration().get("featurePrefix") + "/" + featureName;
         Ref ref = repo.getRepository().getRef(featureBranchName);
         if (ref == null) {
             IncorrectRepositoryStateException irse = new IncorrectRepositoryStateException("No local branch named '"
@@ -70,8 +68,10 @@ public class FeaturePush extends Command {
             throw irse;
         }
 
-        // Check if remote branch exist
-        if (GitUtils.hasRemoteBranch(repo.getRepository(), featureBranchName)) {
+        // push, create only: origin refuses it if it already has this branch
+        RemoteRefUpdate update = GitUtils.pushExpecting(context, featureBranchName, false, ObjectId.zeroId());
+        if (update.getStatus() == RemoteRefUpdate.Status.REJECTED_REMOTE_CHANGED
+                || update.getStatus() == RemoteRefUpdate.Status.UP_TO_DATE) {
             IncorrectRepositoryStateException irse = new IncorrectRepositoryStateException("A remote branch named '"
                     + featureBranchName + "' already exists.");
             irse.addLine("If remote branch is related to your local, get newer content with:");
@@ -85,14 +85,13 @@ public class FeaturePush extends Command {
                     + "git push");
             throw irse;
         }
+        GitUtils.checkPushed(update);
 
         // set tracking in config:
-        GitConfiguration.getInstance().set("branch", featureBranchName, "remote", "origin");
-        GitConfiguration.getInstance().set("branch", featureBranchName, "merge", "refs/heads/" + featureBranchName);
+        context.getConfiguration().set("branch", featureBranchName, "remote", "origin");
+        context.getConfiguration().set("branch", featureBranchName, "merge", "refs/heads/" + featureBranchName);
 
-        // push
-        repo.checkout().setName(featureBranchName).call();
-        repo.push().setRemote("origin").add(ref).call();
+        GitUtils.checkout(context, featureBranchName);
 
         // summary
         writer.write("Summary of actions:");
@@ -105,8 +104,4 @@ public class FeaturePush extends Command {
         return "<feature-name>";
     }
 
-    public String getDescription() {
-        return "Push a feature branch to remote to share it";
-    }
-
 }
@@ -3,15 +3,12 @@ package org.talend.geat.commands;
 import java.io.IOException;
 import java.io.Writer;
 
-import org.eclipse.jgit.api.MergeCommand.FastForwardMode;
 import org.eclipse.jgit.api.errors.GitAPIException;
-import org.eclipse.jgit.lib.Ref;
-import org.eclipse.jgit.transport.RefSpec;
 import org.talend.geat.Configuration;
-import org.talend.geat.GitConfiguration;
 import org.talend.geat.GitUtils;
 import org.talend.geat.InputsUtils;
 import org.talend.geat.MyGit;
+import org.talend.geat.RepositoryContext;
 import org.talend.geat.SanityCheck;
 import org.talend.geat.SanityCheck.CheckLevel;
 import org.talend.geat.exception.IllegalCommandArgumentException;
@@ -37,11 +34,6 @@ public class FeatureStart extends Command {
         super();
     }
 
-    @Override
-    public CommandNames getNames() {
-        return new CommandNames(NAME, "fs");
-    }
-
     protected Command innerParseArgs(String[] args) throws IllegalCommandArgumentException {
         if (args.length != 2) {
             throw IllegalCommandArgumentException.build(this);
@@ -51,10 +43,6 @@ public class FeatureStart extends Command {
         return this;
     }
 
-    public String getDescription() {
-        return "Create a branch to work on a new feature";
-    }
-
     public String getUsage() {
         return "<feature-name>";
     }
@@ -65,17 +53,19 @@ public class FeatureStart extends Command {
     }
 
     public void execute(Writer writer) throws IncorrectRepositoryStateException, IOException, GitAPIException {
+        RepositoryContext context = getContext();
         try {
-            SanityCheck.check(CheckLevel.NO_UNCOMMITTED_CHANGES);
+            SanityCheck.check(context, CheckLevel.NO_UNCOMMITTED_CHANGES);
         } catch (IncorrectRepositoryStateException e) {
             if (!InputsUtils.askUserAsBoolean(e.getDetails() + "\n\nProceed anyway")) {
                 return;
             }
         }
 
-        MyGit repo = MyGit.open();
-        String featureBranchName = GitConfiguration.getInstance().get("featurePrefix") + "/" + featureName;
-        boolean hasRemote = GitUtils.hasRemote("origin", repo.getRepository());
+        MyGit repo = context.getGit();
+        String featureBranchName = context.getConfiguration().get("featurePrefix") + "/" + featureName;
+        String startPoint = context.getConfiguration().get("featureStartPoint");
+        boolean hasRemote = context.hasRemote("origin");
 
         // Test if such a branch exists locally:
         if (GitUtils.hasLocalBranch(repo.getRepository(), featureBranchName)) {
@@ -85,7 +75,7 @@ public class FeatureStart extends Command {
 
         if (hasRemote) {
             // Test if branch exist remotely:
-            if (GitUtils.hasRemoteBranch(repo.getRepository(), featureBranchName)) {
+            if (GitUtils.hasRemoteBranch(context, featureBranchName)) {
                 IncorrectRepositoryStateException irse = new IncorrectRepositoryStateException(
                         "A remote branch named '" + featureBranchName + "' already exist.");
                 irse.addLine("To checkout this branch locally, use:");
@@ -94,28 +84,16 @@ public class FeatureStart extends Command {
                         + "git fetch && git checkout " + featureBranchName);
                 throw irse;
             }
-
-            // git checkout master
-            repo.checkout().setName(GitConfiguration.getInstance().get("featureStartPoint")).call();
-
-            // git pull --rebase origin
-            // 1. git fetch
-            repo.fetch()
-                    .setRefSpecs(
-                            new RefSpec("refs/heads/" + GitConfiguration.getInstance().get("featureStartPoint")
-                                    + ":refs/remotes/origin/" + GitConfiguration.getInstance().get("featureStartPoint")))
-                    .setRemote("origin").call();
-            // 2. git merge ff
-            Ref refOriginMaster = repo.getRepository().getRef("origin/master");
-            repo.merge().setFastForward(FastForwardMode.FF_ONLY).include(refOriginMaster).call();
         }
 
-        repo.checkout().setCreateBranch(true).setStartPoint(GitConfiguration.getInstance().get("featureStartPoint"))
-                .setName(featureBranchName).call();
+        // git checkout -b <branch> origin/<start-point>, without checking out <start-point> first
+        boolean startPointUpdated = GitUtils.startBranch(context, startPoint, featureBranchName);
 
         writer.write("Summary of actions:");
-        writer.write(" - A new branch '" + featureBranchName + "' was created, based on '"
-                + GitConfiguration.getInstance().get("featureStartPoint") + "'");
+        writer.write(" - A new branch '" + featureBranchName + "' was created, based on '" + startPoint + "'");
+        if (startPointUpdated) {
+            writer.write(" - Local branch '" + startPoint + "' was updated from origin, without being checked out");
+        }
         writer.write(" - You are now on branch '" + featureBranchName + "'");
         writer.write("");
         writer.write("Now, start committing on your feature. When done, use:");
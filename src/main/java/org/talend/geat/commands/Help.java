@@ -14,11 +14,6 @@ public class Help extends Command {
         super();
     }
 
-    @Override
-    public CommandNames getNames() {
-        return new CommandNames("help");
-    }
-
     @Override
     public CheckLevel getCheckLevel() {
         return CheckLevel.NONE;
@@ -26,11 +21,11 @@ public class Help extends Command {
 
     public void execute(Writer writer) throws IOException {
         writer.write("Available commands are:");
-        for (Command command : CommandsRegistry.INSTANCE.orderedCommands) {
+        // Entries only: commands classes are not loaded
+        for (CommandEntry command : CommandsRegistry.INSTANCE.orderedCommands) {
             String desc = " - " + command.getNames().getMainName();
             if (!command.getNames().getAlternateNames().isEmpty()) {
-                desc += " (or " + command.getNames().getAlternateNames()
-                        + ")";
+                desc += " (or " + command.getNames().getAlternateNames() + ")";
             }
             desc += " - " + command.getDescription();
 
@@ -42,8 +37,4 @@ public class Help extends Command {
         return "";
     }
 
-    public String getDescription() {
-        return "Displays this help";
-    }
-
 }
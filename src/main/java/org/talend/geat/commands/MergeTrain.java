@@ -0,0 +1,136 @@
+package org.talend.geat.commands;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.talend.geat.GitUtils;
+import org.talend.geat.RepositoryContext;
+import org.talend.geat.SanityCheck.CheckLevel;
+import org.talend.geat.exception.IllegalCommandArgumentException;
+import org.talend.geat.exception.IncorrectRepositoryStateException;
+import org.talend.geat.exception.InterruptedCommandException;
+
+/**
+ * Command that finish many features at once, in the given order. Means:
+ * <ul>
+ * <li>fetch develop branch and all feature branches, in one connection</li>
+ * <li>squash or rebase each feature branch on the result of the previous ones, in memory</li>
+ * <li>push develop branch and delete feature branches on remote, in one single push</li>
+ * <li>delete feature branches</li>
+ * </ul>
+ * 
+ * Stops at the first feature that conflicts: features before it are finished, the others are left untouched.
+ */
+public class MergeTrain extends Command {
+
+    protected static final String NAME     = "merge-train";
+
+    protected List<String>        features = new ArrayList<String>();
+
+    protected MergePolicy         mergePolicy;
+
+    protected MergeTrain() {
+        super();
+    }
+
+    public String getUsage() {
+        String usage = "<feature-name|pattern>... [--squash|--rebase";
+        // The repository is not opened (and its config not written) only to print usage:
+        if (getOpenedContext() != null) {
+            usage += ", default=--" + getOpenedContext().getConfiguration().get("finishmergemode");
+        }
+        return usage + "]";
+    }
+
+    protected Command innerParseArgs(String[] args) throws IllegalCommandArgumentException,
+            IncorrectRepositoryStateException {
+        String prefix = getContext().getConfiguration().get("featurePrefix") + "/";
+        Set<String> names = new LinkedHashSet<String>();
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--squash")) {
+                mergePolicy = MergePolicy.SQUASH;
+            } else if (args[i].equals("--rebase")) {
+                mergePolicy = MergePolicy.REBASE;
+            } else if (args[i].startsWith("--")) {
+                throw IllegalCommandArgumentException.build(this);
+            } else if (args[i].contains("*")) {
+                names.addAll(expand(prefix, args[i]));
+            } else {
+                names.add(args[i]);
+            }
+        }
+        if (names.isEmpty()) {
+            throw IllegalCommandArgumentException.build(this);
+        }
+        features = new ArrayList<String>(names);
+        if (mergePolicy == null) {
+            mergePolicy = MergePolicy.valueOf(getContext().getConfiguration().get("finishmergemode").toUpperCase());
+        }
+        return this;
+    }
+
+    /**
+     * @return names of the local or remote feature branches matching this pattern, where * matches any characters
+     */
+    private List<String> expand(String prefix, String pattern) throws IllegalCommandArgumentException,
+            IncorrectRepositoryStateException {
+        StringBuilder regex = new StringBuilder(Pattern.quote(prefix));
+        String[] parts = pattern.split("\\*", -1);
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                regex.append(".*");
+            }
+            if (parts[i].length() > 0) {
+                regex.append(Pattern.quote(parts[i]));
+            }
+        }
+        List<String> names = new ArrayList<String>();
+        try {
+            for (String branch : GitUtils.listBranches(getContext(), regex.toString())) {
+                names.add(branch.substring(prefix.length()));
+            }
+        } catch (GitAPIException e) {
+            throw new IllegalCommandArgumentException("Cannot list feature branches matching '" + pattern + "': "
+                    + e.getMessage());
+        }
+        if (names.isEmpty()) {
+            throw new IllegalCommandArgumentException("No feature branch matches '" + pattern + "'");
+        }
+        return names;
+    }
+
+    @Override
+    public CheckLevel getCheckLevel() {
+        return CheckLevel.NO_UNCOMMITTED_CHANGES;
+    }
+
+    public void execute(Writer writer) throws IncorrectRepositoryStateException, IOException, GitAPIException,
+            InterruptedCommandException {
+        RepositoryContext context = getContext();
+
+        GitUtils.mergeTrain(writer, context, features, mergePolicy, getNames().getMainName());
+    }
+
+    public List<String> getFeatures() {
+        return features;
+    }
+
+    public void setFeatures(List<String> features) {
+        this.features = features;
+    }
+
+    public Enum<MergePolicy> getMergePolicy() {
+        return mergePolicy;
+    }
+
+    public void setMergePolicy(MergePolicy mergePolicy) {
+        this.mergePolicy = mergePolicy;
+    }
+
+}
@@ -11,16 +11,10 @@ import org.talend.geat.SanityCheck.CheckLevel;
  */
 public class Version extends Command {
 
-
     protected Version() {
         super();
     }
 
-    @Override
-    public CommandNames getNames() {
-        return new CommandNames("version", "vers", "vv");
-    }
-
     @Override
     public CheckLevel getCheckLevel() {
         return CheckLevel.NONE;
@@ -35,8 +29,4 @@ public class Version extends Command {
         return "";
     }
 
-    public String getDescription() {
-        return "Displays GEAT version";
-    }
-
 }
@@ -0,0 +1,123 @@
+package org.talend.geat.daemon;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.Properties;
+
+/**
+ * Where a running daemon can be reached: the loopback port it listens on and the token a client must send first.
+ * 
+ * Stored in a file only readable by the current user, in ~/.geat by default (can be changed with the 'geat.daemon.dir'
+ * system property). The file is named after the daemon: the geat daemon (DAEMON) or the credentials agent (AGENT).
+ */
+public class DaemonEndpoint {
+
+    public static final String DAEMON = "daemon";
+
+    public static final String AGENT  = "agent";
+
+    private final String       name;
+
+    private int                port;
+
+    private String             token;
+
+    public DaemonEndpoint(String name, int port, String token) {
+        super();
+        this.name = name;
+        this.port = port;
+        this.token = token;
+    }
+
+    public static DaemonEndpoint create(int port) {
+        return create(DAEMON, port);
+    }
+
+    public static DaemonEndpoint create(String name, int port) {
+        return new DaemonEndpoint(name, port, new BigInteger(128, new SecureRandom()).toString(16));
+    }
+
+    public static File getFolder() {
+        String folder = System.getProperty("geat.daemon.dir");
+        if (folder == null) {
+            return new File(System.getProperty("user.home"), ".geat");
+        }
+        return new File(folder);
+    }
+
+    /**
+     * @return the endpoint of the running daemon, or null if no daemon has been started
+     */
+    public static DaemonEndpoint read() {
+        return read(DAEMON);
+    }
+
+    /**
+     * @return the endpoint of this running daemon, or null if it has not been started
+     */
+    public static DaemonEndpoint read(String name) {
+        File file = new File(getFolder(), name);
+        if (!file.exists()) {
+            return null;
+        }
+        Properties props = new Properties();
+        try {
+            InputStream in = new FileInputStream(file);
+            try {
+                props.load(in);
+            } finally {
+                in.close();
+            }
+            return new DaemonEndpoint(name, Integer.parseInt(props.getProperty("port")), props.getProperty("token"));
+        } catch (IOException e) {
+            return null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public void write() throws IOException {
+        File folder = getFolder();
+        folder.mkdirs();
+        File file = new File(folder, name);
+        file.createNewFile();
+        // Token is a secret: user only
+        file.setReadable(false, false);
+        file.setWritable(false, false);
+        file.setReadable(true, true);
+        file.setWritable(true, true);
+
+        Properties props = new Properties();
+        props.setProperty("port", Integer.toString(port));
+        props.setProperty("token", token);
+        OutputStream out = new FileOutputStream(file);
+        try {
+            props.store(out, "GEAT " + name);
+        } finally {
+            out.close();
+        }
+    }
+
+    public static void delete() {
+        delete(DAEMON);
+    }
+
+    public static void delete(String name) {
+        new File(getFolder(), name).delete();
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+}
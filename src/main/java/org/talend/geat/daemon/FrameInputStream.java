@@ -0,0 +1,62 @@
+package org.talend.geat.daemon;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the client standard input forwarded as frames of the daemon protocol. Used as System.in while the daemon runs
+ * a command, so questions asked to the user are answered from the client terminal.
+ */
+public class FrameInputStream extends InputStream {
+
+    private DataInputStream in;
+
+    private int             remaining = 0;
+
+    private boolean         eof       = false;
+
+    public FrameInputStream(DataInputStream in) {
+        super();
+        this.in = in;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        int read = read(b, 0, 1);
+        return read < 0 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (remaining == 0) {
+            if (eof) {
+                return -1;
+            }
+            remaining = in.readInt();
+            if (remaining < 0) {
+                eof = true;
+                remaining = 0;
+            }
+        }
+        int read = in.read(b, off, Math.min(len, remaining));
+        if (read < 0) {
+            eof = true;
+            return -1;
+        }
+        remaining -= read;
+        return read;
+    }
+
+    /**
+     * Socket is owned by the daemon, closing the command input must not close it.
+     */
+    @Override
+    public void close() throws IOException {
+    }
+
+}
@@ -0,0 +1,50 @@
+package org.talend.geat.daemon;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Sends everything written to it as output frames of the daemon protocol. Used as System.out while the daemon runs a
+ * command.
+ */
+public class FrameOutputStream extends OutputStream {
+
+    private DataOutputStream out;
+
+    public FrameOutputStream(DataOutputStream out) {
+        super();
+        this.out = out;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return;
+        }
+        synchronized (out) {
+            out.writeByte(GeatDaemon.FRAME_OUTPUT);
+            out.writeInt(len);
+            out.write(b, off, len);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Socket is owned by the daemon, closing the command output must not close it.
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+
+}
@@ -0,0 +1,159 @@
+package org.talend.geat.daemon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+import org.talend.geat.Configuration;
+
+/**
+ * Thin client of GeatDaemon: forwards arguments, working dir and standard input to the daemon, and prints what the
+ * command outputs. Environment variables are not forwarded (see GeatDaemon).
+ * 
+ * Must not use any JGit class, so that forwarding a command does not pay JGit loading.
+ */
+public class GeatClient {
+
+    /**
+     * Returned by forward() when the daemon cannot be reached. In this case, the command has not been run.
+     */
+    public static final int DAEMON_UNREACHABLE = -1;
+
+    /**
+     * @return true if the command should be sent to a running daemon
+     */
+    public static boolean isDaemonAvailable(String[] args) {
+        if (System.getenv("GEAT_NO_DAEMON") != null || isDaemonStart(args) || isAgent(args)) {
+            return false;
+        }
+        return DaemonEndpoint.read() != null;
+    }
+
+    /**
+     * @return true if a daemon answers on the published endpoint. A stale endpoint is removed.
+     */
+    public static boolean isDaemonRunning() {
+        Socket socket = connect(DaemonEndpoint.read());
+        if (socket == null) {
+            return false;
+        }
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Nothing to do
+        }
+        return true;
+    }
+
+    public static int forward(String[] args) {
+        return forward(args, System.in, System.out);
+    }
+
+    public static int forward(String[] args, final InputStream stdin, OutputStream stdout) {
+        // Read once: the token must be the one of the daemon listening on this port
+        DaemonEndpoint endpoint = DaemonEndpoint.read();
+        Socket socket = connect(endpoint);
+        if (socket == null) {
+            return DAEMON_UNREACHABLE;
+        }
+        try {
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeUTF(endpoint.getToken());
+            out.writeUTF(System.getProperty("user.dir"));
+            out.writeInt(args.length);
+            for (String arg : args) {
+                out.writeUTF(arg);
+            }
+            out.flush();
+
+            Thread stdinPump = new Thread("geat-client-stdin") {
+
+                @Override
+                public void run() {
+                    byte[] buffer = new byte[8192];
+                    try {
+                        int read;
+                        while ((read = stdin.read(buffer)) >= 0) {
+                            out.writeInt(read);
+                            out.write(buffer, 0, read);
+                            out.flush();
+                        }
+                        out.writeInt(-1);
+                        out.flush();
+                    } catch (IOException e) {
+                        // Command is over
+                    }
+                }
+            };
+            stdinPump.setDaemon(true);
+            stdinPump.start();
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            byte[] buffer = new byte[8192];
+            while (true) {
+                byte frame = in.readByte();
+                if (frame == GeatDaemon.FRAME_EXIT) {
+                    stdout.flush();
+                    return in.readInt();
+                }
+                int length = in.readInt();
+                while (length > 0) {
+                    int read = in.read(buffer, 0, Math.min(buffer.length, length));
+                    if (read < 0) {
+                        throw new IOException("Unexpected end of stream");
+                    }
+                    stdout.write(buffer, 0, read);
+                    length -= read;
+                }
+                stdout.flush();
+            }
+        } catch (IOException e) {
+            System.out.println("ERROR: Lost connection with GEAT daemon (" + e.getMessage() + ")");
+            return 1;
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Nothing to do
+            }
+        }
+    }
+
+    private static Socket connect(DaemonEndpoint endpoint) {
+        if (endpoint == null) {
+            return null;
+        }
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), endpoint.getPort()),
+                    Configuration.INSTANCE.getAsInt("geat.daemon.connectTimeout"));
+            return socket;
+        } catch (IOException e) {
+            // Daemon died without cleaning its endpoint:
+            DaemonEndpoint.delete();
+            return null;
+        }
+    }
+
+    /**
+     * 'daemon' and 'daemon start' must run in this JVM, other 'daemon' commands are answered by the daemon itself.
+     */
+    private static boolean isDaemonStart(String[] args) {
+        return args.length > 0 && args[0].equals("daemon") && (args.length == 1 || args[1].equals("start"));
+    }
+
+    /**
+     * The credentials agent is a process of its own, it must not be started inside the daemon.
+     */
+    private static boolean isAgent(String[] args) {
+        return args.length > 0 && args[0].equals(DaemonEndpoint.AGENT);
+    }
+
+}
@@ -0,0 +1,217 @@
+package org.talend.geat.daemon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.eclipse.jgit.lib.Repository;
+import org.talend.geat.Configuration;
+import org.talend.geat.GeatMain;
+import org.talend.geat.GitConfiguration;
+import org.talend.geat.GitUtils;
+import org.talend.geat.exception.IncorrectRepositoryStateException;
+import org.talend.geat.security.KeepAliveHttpConnectionFactory;
+import org.talend.geat.security.PooledSshSessionFactory;
+
+/**
+ * Long-lived process running geat commands sent by GeatClient.
+ * 
+ * Commands run in this JVM, one after the other: JGit classes stay loaded and opened repositories (with their parsed
+ * config, refs and pack indexes) stay in JGit's RepositoryCache from one command to another. The daemon keeps its own
+ * handle on each repository it served, so the one closed by a command at its end is not released. SSH sessions and
+ * HTTPS connections to remotes stay opened as well (see PooledSshSessionFactory and KeepAliveHttpConnectionFactory).
+ * 
+ * Working trees of repositories whose geat.watchWorkTree is true are also watched, so that checking they are clean
+ * only costs the changes made since the previous command (see WorkTreeWatcher).
+ * 
+ * Commands see the environment the daemon was started with, not the one of the client that forwarded them: for
+ * instance, the ssh-agent is the one of the daemon's SSH_AUTH_SOCK. Restart the daemon after changing these variables,
+ * or set GEAT_NO_DAEMON to run a command with its own environment.
+ * 
+ * Listens on the loopback interface only, and a client must first send the token stored in the user-only endpoint file
+ * (see DaemonEndpoint).
+ */
+public class GeatDaemon {
+
+    public static final byte        FRAME_OUTPUT = 'O';
+
+    public static final byte        FRAME_EXIT   = 'X';
+
+    private ServerSocket            serverSocket;
+
+    private DaemonEndpoint          endpoint;
+
+    private volatile boolean        running;
+
+    private int                     commandsCount;
+
+    // Repositories kept opened, by work tree:
+    private Map<String, Repository> workTrees    = new TreeMap<String, Repository>();
+
+    public GeatDaemon() {
+        super();
+    }
+
+    /**
+     * Binds the daemon and publishes its endpoint. Commands are not served before a call to serve().
+     */
+    public void start() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        serverSocket.setSoTimeout(Configuration.INSTANCE.getAsInt("geat.daemon.idleTimeout") * 1000);
+        endpoint = DaemonEndpoint.create(serverSocket.getLocalPort());
+        endpoint.write();
+        running = true;
+    }
+
+    /**
+     * Serves commands until stopped by a 'daemon stop' command or idle timeout.
+     */
+    public void serve() throws IOException {
+        try {
+            while (running) {
+                Socket socket;
+                try {
+                    socket = serverSocket.accept();
+                } catch (SocketTimeoutException e) {
+                    // Idle for too long
+                    break;
+                } catch (SocketException e) {
+                    // Server socket closed by stop()
+                    break;
+                }
+                try {
+                    handle(socket);
+                } catch (IOException e) {
+                    // Client went away, wait for the next one
+                } finally {
+                    socket.close();
+                }
+            }
+        } finally {
+            stop();
+        }
+    }
+
+    public void stop() {
+        running = false;
+        if (WatcherSupport.AVAILABLE) {
+            WorkTreeWatcher.stopAll();
+        }
+        PooledSshSessionFactory.closeAll();
+        for (Repository repository : workTrees.values()) {
+            repository.close();
+        }
+        workTrees.clear();
+        DaemonEndpoint.delete();
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            // Nothing to do
+        }
+    }
+
+    public int getPort() {
+        return endpoint.getPort();
+    }
+
+    private void handle(Socket socket) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+        if (!endpoint.getToken().equals(in.readUTF())) {
+            return;
+        }
+        String cwd = in.readUTF();
+        String[] args = new String[in.readInt()];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = in.readUTF();
+        }
+
+        PrintStream previousOut = System.out;
+        InputStream previousIn = System.in;
+        String previousDir = System.getProperty("user.dir");
+        PrintStream commandOut = new PrintStream(new FrameOutputStream(out), true);
+        int status;
+        try {
+            System.setOut(commandOut);
+            System.setIn(new FrameInputStream(in));
+            System.setProperty("user.dir", cwd);
+            // Configuration singleton is bound to the previous command repository:
+            GitConfiguration.reset();
+
+            if (args.length > 0 && args[0].equals("daemon")) {
+                status = handleDaemonCommand(args, commandOut);
+            } else {
+                rememberWorkTree();
+                status = GeatMain.run(args);
+                commandsCount++;
+            }
+            commandOut.flush();
+        } finally {
+            System.setOut(previousOut);
+            System.setIn(previousIn);
+            System.setProperty("user.dir", previousDir);
+        }
+
+        out.writeByte(FRAME_EXIT);
+        out.writeInt(status);
+        out.flush();
+
+        // Let the client close first: closing with unread input (end of stdin the command did not read) would reset
+        // the connection, and the client could lose the exit status
+        socket.shutdownOutput();
+        socket.setSoTimeout(Configuration.INSTANCE.getAsInt("geat.daemon.connectTimeout"));
+        while (in.read() >= 0) {
+            // Skip
+        }
+    }
+
+    private int handleDaemonCommand(String[] args, PrintStream out) {
+        if (args.length > 1 && args[1].equals("stop")) {
+            running = false;
+            out.println("GEAT daemon stopped after " + commandsCount + " command(s)");
+        } else {
+            out.println("GEAT daemon is running on port " + endpoint.getPort() + ", " + commandsCount
+                    + " command(s) served, " + PooledSshSessionFactory.getOpenedSessionsCount()
+                    + " SSH session(s) and " + KeepAliveHttpConnectionFactory.getConnectionsCount()
+                    + " HTTPS connection(s) opened");
+            for (Map.Entry<String, Repository> workTree : workTrees.entrySet()) {
+                boolean watched = WatcherSupport.AVAILABLE && WorkTreeWatcher.get(workTree.getValue()) != null;
+                out.println(" - " + workTree.getKey() + (watched ? " (watched)" : ""));
+            }
+        }
+        out.println("");
+        return 0;
+    }
+
+    private void rememberWorkTree() {
+        try {
+            String workTree = GitUtils.getWorkingGit();
+            if (!workTrees.containsKey(workTree)) {
+                Repository repository = GitUtils.openRepository();
+                workTrees.put(workTree, repository);
+                if (WatcherSupport.AVAILABLE
+                        && repository.getConfig().getBoolean(GitConfiguration.CONFIG_PREFIX, "watchWorkTree", false)
+                        && !WorkTreeWatcher.watch(repository)) {
+                    System.out.println("WARN: geat.watchWorkTree is ignored, working trees are only watched on Linux.");
+                }
+            }
+        } catch (IncorrectRepositoryStateException e) {
+            // Command will complain itself
+        } catch (IOException e) {
+            // Command will complain itself
+        }
+    }
+
+}
@@ -0,0 +1,28 @@
+package org.talend.geat.daemon;
+
+/**
+ * Tells if working trees can be watched (see WorkTreeWatcher) by the running JVM.
+ * 
+ * GEAT targets Java 6 (see pom.xml). WorkTreeWatcher is the only class using a Java 7 API (java.nio.file), so it is
+ * built with a JDK 7 or later, and only loaded when the running JVM has that API: on Java 6, working trees are never
+ * watched and every dirty check walks the whole working tree. Having the API is not enough: WorkTreeWatcher also
+ * needs Linux (see its class comment).
+ */
+public final class WatcherSupport {
+
+    public static final boolean AVAILABLE = isAvailable();
+
+    private WatcherSupport() {
+        super();
+    }
+
+    private static boolean isAvailable() {
+        try {
+            Class.forName("java.nio.file.WatchService");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,318 @@
+package org.talend.geat.daemon;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Repository;
+
+/**
+ * Records the paths of a working tree that changed since it was last found clean, so that the next dirty check only
+ * has to verify them (see DirtyCheck).
+ * 
+ * Runs in the daemon, for repositories whose geat.watchWorkTree is true, when the JVM has java.nio.file (must not be
+ * loaded otherwise, see WatcherSupport). Only directories that contain tracked files are watched: other files are
+ * untracked, they are not uncommitted changes.
+ * 
+ * Only runs on Linux: checks rely on inotify delivering the events of all directories in one ordered queue (see
+ * sync()). Other platforms do not guarantee it (macOS polls directories one by one), so geat.watchWorkTree is ignored
+ * there and every dirty check walks the whole working tree.
+ * 
+ * Recorded paths can not be trusted, and a full check is needed, after an overflow of events, when a tracked directory
+ * is created again (it is watched again from that full check on), or if the index has been written since the last full
+ * check (new tracked directories, checkout, etc.).
+ */
+public class WorkTreeWatcher implements Runnable {
+
+    // How long to wait for pending events before a check:
+    private static final long                         SYNC_TIMEOUT = 1000;
+
+    private static final String                       SYNC_PREFIX  = "watcher-sync-";
+
+    private static final Map<String, WorkTreeWatcher> watchers     = new HashMap<String, WorkTreeWatcher>();
+
+    private final Repository                          repository;
+
+    private final File                                geatFolder;
+
+    private WatchService                              watchService;
+
+    // Watched directories, relative to the working tree:
+    private final Map<WatchKey, String>               directories  = new HashMap<WatchKey, String>();
+
+    // Directories that contain tracked files, watched or not (deleted ones):
+    private Set<String>                               tracked      = new HashSet<String>();
+
+    private WatchKey                                  geatKey;
+
+    private final Set<String>                         changes      = new HashSet<String>();
+
+    private boolean                                   overflow;
+
+    // True once a full check found the working tree clean with the index below:
+    private boolean                                   baseline;
+
+    private long                                      indexLength;
+
+    private long                                      indexModified;
+
+    private int                                       generation;
+
+    private int                                       syncSent;
+
+    private int                                       syncReceived;
+
+    private WorkTreeWatcher(Repository repository) {
+        super();
+        this.repository = repository;
+        this.geatFolder = new File(repository.getDirectory(), ".geat");
+    }
+
+    /**
+     * Starts watching the working tree of this repository, if not already watched.
+     * 
+     * @return false if the platform is not Linux (see class comment)
+     */
+    public static synchronized boolean watch(Repository repository) throws IOException {
+        String key = repository.getWorkTree().getAbsolutePath();
+        if (watchers.containsKey(key)) {
+            return true;
+        }
+        WorkTreeWatcher watcher = new WorkTreeWatcher(repository);
+        if (!watcher.start()) {
+            return false;
+        }
+        watchers.put(key, watcher);
+        return true;
+    }
+
+    /**
+     * @return the watcher of this repository working tree, null if not watched
+     */
+    public static synchronized WorkTreeWatcher get(Repository repository) {
+        if (repository.isBare()) {
+            return null;
+        }
+        return watchers.get(repository.getWorkTree().getAbsolutePath());
+    }
+
+    public static synchronized void stopAll() {
+        for (WorkTreeWatcher watcher : watchers.values()) {
+            try {
+                watcher.watchService.close();
+            } catch (IOException e) {
+                // Nothing to do
+            }
+        }
+        watchers.clear();
+    }
+
+    private boolean start() throws IOException {
+        if (!System.getProperty("os.name").startsWith("Linux")) {
+            return false;
+        }
+        watchService = FileSystems.getDefault().newWatchService();
+        geatFolder.mkdirs();
+        geatKey = geatFolder.toPath().register(watchService, StandardWatchEventKinds.ENTRY_CREATE);
+        registerTrackedDirectories();
+
+        Thread thread = new Thread(this, "geat-watcher " + repository.getWorkTree().getName());
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    /**
+     * Registers every directory that contains tracked files (registering again a directory is harmless).
+     */
+    private void registerTrackedDirectories() throws IOException {
+        Set<String> tracked = new TreeSet<String>();
+        tracked.add("");
+        DirCache dirCache = repository.readDirCache();
+        for (int i = 0; i < dirCache.getEntryCount(); i++) {
+            String path = dirCache.getEntry(i).getPathString();
+            for (int slash = path.indexOf('/'); slash >= 0; slash = path.indexOf('/', slash + 1)) {
+                tracked.add(path.substring(0, slash));
+            }
+        }
+
+        synchronized (this) {
+            this.tracked = tracked;
+        }
+        for (String directory : tracked) {
+            File file = new File(repository.getWorkTree(), directory);
+            if (file.isDirectory()) {
+                WatchKey key = file.toPath().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                synchronized (this) {
+                    directories.put(key, directory);
+                }
+            }
+        }
+    }
+
+    public void run() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    record(key, event);
+                }
+                if (!key.reset()) {
+                    // Directory deleted, reported by its parent
+                    synchronized (this) {
+                        directories.remove(key);
+                    }
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // Stopped
+        } catch (InterruptedException e) {
+            // Stopped
+        }
+    }
+
+    private synchronized void record(WatchKey key, WatchEvent<?> event) {
+        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+            overflow = true;
+            return;
+        }
+        String name = ((Path) event.context()).toString();
+        if (key == geatKey) {
+            if (name.startsWith(SYNC_PREFIX)) {
+                syncReceived = Math.max(syncReceived, Integer.parseInt(name.substring(SYNC_PREFIX.length())));
+                notifyAll();
+            }
+            return;
+        }
+        String directory = directories.get(key);
+        if (directory == null) {
+            overflow = true;
+        } else if (!directory.isEmpty() || !name.equals(Constants.DOT_GIT)) {
+            String path = directory.isEmpty() ? name : directory + "/" + name;
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && tracked.contains(path)) {
+                // Tracked directory deleted and created again, not watched until the next full check registers it
+                overflow = true;
+            }
+            changes.add(path);
+        }
+    }
+
+    /**
+     * Starts a check: paths changed until now are returned, and recording starts again from an empty set.
+     * 
+     * @return paths (files or directories) to verify, or null if the whole working tree must be verified
+     */
+    public Scan startScan() throws IOException {
+        boolean synced = sync();
+        File index = repository.getIndexFile();
+
+        Scan scan;
+        synchronized (this) {
+            boolean trusted = synced && baseline && !overflow && index.length() == indexLength
+                    && index.lastModified() == indexModified;
+            scan = new Scan(++generation, trusted ? new TreeSet<String>(changes) : null, index.length(),
+                    index.lastModified());
+            changes.clear();
+            overflow = false;
+            baseline = false;
+        }
+        if (scan.getChanges() == null) {
+            // Directories may have been added to the index since the last full check
+            registerTrackedDirectories();
+        }
+        return scan;
+    }
+
+    /**
+     * Ends a check started by startScan().
+     * 
+     * @param clean
+     *            true if no uncommitted change has been found
+     */
+    public synchronized void endScan(Scan scan, boolean clean) {
+        if (clean && scan.generation == generation && !overflow) {
+            baseline = true;
+            indexLength = scan.indexLength;
+            indexModified = scan.indexModified;
+        } else {
+            baseline = false;
+        }
+    }
+
+    /**
+     * Waits for the events of changes made before this call: a marker file is created, and all events before its own
+     * are received once it is. This relies on the events of all keys being queued in the order they happened, as
+     * inotify does (watch() refuses other platforms).
+     * 
+     * @return false if the marker has not been received in time
+     */
+    private boolean sync() throws IOException {
+        int sent;
+        synchronized (this) {
+            sent = ++syncSent;
+        }
+        File marker = new File(geatFolder, SYNC_PREFIX + sent);
+        marker.createNewFile();
+        try {
+            long end = System.currentTimeMillis() + SYNC_TIMEOUT;
+            synchronized (this) {
+                while (syncReceived < sent) {
+                    long remaining = end - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    wait(remaining);
+                }
+            }
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        } finally {
+            marker.delete();
+        }
+    }
+
+    /**
+     * A check in progress.
+     */
+    public static class Scan {
+
+        private final int         generation;
+
+        private final Set<String> changes;
+
+        private final long        indexLength;
+
+        private final long        indexModified;
+
+        private Scan(int generation, Set<String> changes, long indexLength, long indexModified) {
+            this.generation = generation;
+            this.changes = changes;
+            this.indexLength = indexLength;
+            this.indexModified = indexModified;
+        }
+
+        /**
+         * @return paths (files or directories) changed since the last check, null if the whole working tree must be
+         *         verified
+         */
+        public Set<String> getChanges() {
+            return changes;
+        }
+    }
+
+}
@@ -0,0 +1,269 @@
+package org.talend.geat.merge;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevSort;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+
+/**
+ * Finishes a bugfix branch on its start point, then forward-ports it to newer lines, in memory: source is squashed or
+ * rebased on target (see InCoreSquash and InCoreRebase), and the commits it added to target are cherry-picked on each
+ * line (see InCoreCherryPick). Lines are independent, so they are computed in parallel, one walk per thread.
+ * 
+ * Only target is checked out. Lines are moved in order, up to the first one that does not apply without conflicts (see
+ * getPorted()). Source branch is not moved.
+ */
+public class InCoreCascade extends InCoreOperation {
+
+    private final String                source;
+
+    private final String                target;
+
+    private final List<String>          lines;
+
+    private final boolean               squash;
+
+    private final PatchIdCache          patchIdCache;
+
+    private int                         threads          = 0;
+
+    private final List<ObjectId>        portedCommits    = new ArrayList<ObjectId>();
+
+    // Lines moved, with their new commit:
+    private final Map<String, ObjectId> ported           = new LinkedHashMap<String, ObjectId>();
+
+    // Target itself when source does not apply on it:
+    private String                      conflictingLine;
+
+    private String                      conflictingCommit;
+
+    private List<String>                conflictingPaths = Collections.emptyList();
+
+    /**
+     * @param lines
+     *            branches to forward-port source to, oldest first
+     */
+    public InCoreCascade(Repository repository, String source, String target, List<String> lines, boolean squash,
+            PatchIdCache patchIdCache) {
+        super(repository);
+        this.source = source;
+        this.target = target;
+        this.lines = lines;
+        this.squash = squash;
+        this.patchIdCache = patchIdCache;
+    }
+
+    /**
+     * @param squashMessage
+     *            message of the squash commit on target, not used to rebase
+     * @return true if source has been finished on target and ported to all lines
+     */
+    public boolean call(String squashMessage) throws IOException {
+        RevCommit targetCommit = parseBranch(target);
+        ObjectId headTree = getHeadTree();
+
+        RevCommit newTarget = finish(targetCommit, squashMessage);
+        if (newTarget == null) {
+            conflictingLine = target;
+            return false;
+        }
+        portedCommits.addAll(listCommits(newTarget, targetCommit));
+
+        Map<String, RevCommit> lineCommits = new LinkedHashMap<String, RevCommit>();
+        for (String line : lines) {
+            lineCommits.put(line, parseBranch(line));
+        }
+        Map<String, InCoreCherryPick> picks = pickInParallel(lineCommits);
+        for (Entry<String, InCoreCherryPick> pick : picks.entrySet()) {
+            if (pick.getValue().getConflictingCommit() != null) {
+                conflictingLine = pick.getKey();
+                conflictingPaths = pick.getValue().getConflictingPaths();
+                RevCommit commit = pick.getValue().getConflictingCommit();
+                conflictingCommit = commit.abbreviate(7).name() + " '" + commit.getShortMessage() + "'";
+                break;
+            }
+        }
+
+        updateBranch(target, targetCommit, newTarget, "geat: finish " + source);
+        for (Entry<String, ObjectId> line : ported.entrySet()) {
+            updateBranch(line.getKey(), lineCommits.get(line.getKey()), line.getValue(), "geat: forward-port "
+                    + source + " from " + target);
+        }
+        switchTo(target, headTree, newTarget.getTree());
+        return conflictingLine == null;
+    }
+
+    private RevCommit finish(RevCommit targetCommit, String squashMessage) throws IOException {
+        if (squash) {
+            InCoreSquash squash = new InCoreSquash(repository, source, target);
+            try {
+                if (!squash.mergeOn(targetCommit)) {
+                    conflictingPaths = squash.getConflictingPaths();
+                    return null;
+                }
+                return walk.parseCommit(squash.commitOnly(squashMessage));
+            } finally {
+                squash.release();
+            }
+        }
+        InCoreRebase rebase = new InCoreRebase(repository, source, target, patchIdCache);
+        try {
+            RevCommit rebased = rebase.replayOn(targetCommit);
+            if (rebased == null) {
+                conflictingPaths = rebase.getConflictingPaths();
+                conflictingCommit = rebase.getConflictingCommit().abbreviate(7).name() + " '"
+                        + rebase.getConflictingCommit().getShortMessage() + "'";
+                return null;
+            }
+            return walk.parseCommit(rebased);
+        } finally {
+            rebase.release();
+        }
+    }
+
+    /**
+     * Cherry-picks the ported commits on all lines at once. Lines after the first conflicting one are computed anyway,
+     * but not kept.
+     * 
+     * @return picks by line, in the order of lines
+     */
+    private Map<String, InCoreCherryPick> pickInParallel(Map<String, RevCommit> lineCommits) throws IOException {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(poolSize, lineCommits.size())));
+        Map<String, InCoreCherryPick> picks = new LinkedHashMap<String, InCoreCherryPick>();
+        Map<String, Future<RevCommit>> futures = new LinkedHashMap<String, Future<RevCommit>>();
+        try {
+            for (final Entry<String, RevCommit> line : lineCommits.entrySet()) {
+                final InCoreCherryPick pick = new InCoreCherryPick(repository, portedCommits);
+                picks.put(line.getKey(), pick);
+                futures.put(line.getKey(), executor.submit(new Callable<RevCommit>() {
+
+                    public RevCommit call() throws IOException {
+                        return pick.pickOn(line.getValue());
+                    }
+                }));
+            }
+
+            boolean conflicting = false;
+            for (Entry<String, Future<RevCommit>> future : futures.entrySet()) {
+                RevCommit picked = future.getValue().get();
+                conflicting = conflicting || picked == null;
+                if (!conflicting) {
+                    ported.put(future.getKey(), picked.copy());
+                }
+            }
+            return picks;
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } finally {
+            // After a failure, picks still running must be over before their walks are released:
+            for (Future<RevCommit> future : futures.values()) {
+                future.cancel(true);
+            }
+            executor.shutdown();
+            awaitTermination(executor);
+            for (InCoreCherryPick pick : picks.values()) {
+                pick.release();
+            }
+        }
+    }
+
+    /**
+     * Waits for the running tasks of this executor, even if the current thread is interrupted (it stays interrupted).
+     */
+    private static void awaitTermination(ExecutorService executor) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return non-merge commits of from that are not in to, oldest first
+     */
+    private List<ObjectId> listCommits(RevCommit from, RevCommit to) throws IOException {
+        walk.reset();
+        walk.setRevFilter(RevFilter.NO_MERGES);
+        walk.sort(RevSort.TOPO);
+        walk.sort(RevSort.REVERSE, true);
+        walk.markStart(from);
+        walk.markUninteresting(to);
+
+        List<ObjectId> toReturn = new ArrayList<ObjectId>();
+        for (RevCommit commit : walk) {
+            toReturn.add(commit.copy());
+        }
+        walk.reset();
+        walk.setRevFilter(RevFilter.ALL);
+        walk.sort(RevSort.NONE);
+        return toReturn;
+    }
+
+    /**
+     * @param threads
+     *            number of lines cherry-picked at once, 0 for one per available processor
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * @return commits source added to target, that have been cherry-picked on lines, oldest first
+     */
+    public List<ObjectId> getPortedCommits() {
+        return portedCommits;
+    }
+
+    /**
+     * @return lines source has been ported to, in order
+     */
+    public List<String> getPorted() {
+        return new ArrayList<String>(ported.keySet());
+    }
+
+    /**
+     * @return the line the cascade stopped at (target if source does not apply on it), null if all lines are ported
+     */
+    public String getConflictingLine() {
+        return conflictingLine;
+    }
+
+    /**
+     * @return abbreviated id and subject of the commit that did not apply, null if conflicting on the squash
+     */
+    public String getConflictingCommit() {
+        return conflictingCommit;
+    }
+
+    @Override
+    public List<String> getConflictingPaths() {
+        return conflictingPaths;
+    }
+
+}
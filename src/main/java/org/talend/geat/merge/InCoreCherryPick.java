@@ -0,0 +1,59 @@
+package org.talend.geat.merge;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.merge.ResolveMerger;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+/**
+ * Cherry-picks commits on a commit in memory, as git cherry-pick -x does: each commit is merged with its parent as
+ * base, and copied with a "(cherry picked from commit ...)" line. No branch is moved and nothing is checked out.
+ * 
+ * Each instance has its own walk, so that several ones can pick at once from different threads.
+ */
+public class InCoreCherryPick extends InCoreOperation {
+
+    private final List<? extends ObjectId> commits;
+
+    private RevCommit                      conflictingCommit;
+
+    /**
+     * @param commits
+     *            commits to pick, oldest first
+     */
+    public InCoreCherryPick(Repository repository, List<? extends ObjectId> commits) {
+        super(repository);
+        this.commits = commits;
+    }
+
+    /**
+     * @return the last picked commit, or null if a commit does not apply without conflicts (see
+     *         getConflictingCommit())
+     */
+    public RevCommit pickOn(ObjectId onto) throws IOException {
+        RevCommit newHead = walk.parseCommit(onto);
+        for (ObjectId id : commits) {
+            RevCommit commit = walk.parseCommit(id);
+            RevCommit parent = commit.getParentCount() > 0 ? walk.parseCommit(commit.getParent(0)) : null;
+            ResolveMerger merger = merge(parent, newHead, commit);
+            if (merger == null) {
+                conflictingCommit = commit;
+                return null;
+            }
+            newHead = commit(merger.getResultTreeId(), commit.getFullMessage().trim()
+                    + "\n\n(cherry picked from commit " + commit.name() + ")\n", commit.getAuthorIdent(), newHead);
+        }
+        return newHead;
+    }
+
+    /**
+     * @return the commit that did not apply, when picking has stopped on conflicts
+     */
+    public RevCommit getConflictingCommit() {
+        return conflictingCommit;
+    }
+
+}
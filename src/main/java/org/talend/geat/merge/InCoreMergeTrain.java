@@ -0,0 +1,131 @@
+package org.talend.geat.merge;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+/**
+ * Finishes several branches on a target in memory, one after the other: each source is squashed or rebased (see
+ * InCoreSquash and InCoreRebase) on the result of the previous ones. Only the final result is checked out, and target
+ * is moved once. Source branches are not moved.
+ * 
+ * Stops at the first source that does not apply without conflicts: target is then moved to the result of the sources
+ * before it (see getMerged()).
+ */
+public class InCoreMergeTrain extends InCoreOperation {
+
+    private final String       target;
+
+    private final boolean      squash;
+
+    private final PatchIdCache patchIdCache;
+
+    private final List<String> merged           = new ArrayList<String>();
+
+    private String             conflictingSource;
+
+    // Commit of the conflicting source that did not apply, rebase only:
+    private String             conflictingCommit;
+
+    private List<String>       conflictingPaths = Collections.emptyList();
+
+    public InCoreMergeTrain(Repository repository, String target, boolean squash, PatchIdCache patchIdCache) {
+        super(repository);
+        this.target = target;
+        this.squash = squash;
+        this.patchIdCache = patchIdCache;
+    }
+
+    /**
+     * @param sources
+     *            branches to finish, in order, with the message of their squash commit (not used to rebase)
+     * @return true if all sources have been applied
+     */
+    public boolean call(Map<String, String> sources) throws IOException {
+        RevCommit targetCommit = parseBranch(target);
+        ObjectId headTree = getHeadTree();
+
+        ObjectId newHead = targetCommit;
+        for (Map.Entry<String, String> source : sources.entrySet()) {
+            ObjectId applied;
+            if (squash) {
+                applied = squash(source.getKey(), newHead, source.getValue());
+            } else {
+                applied = rebase(source.getKey(), newHead);
+            }
+            if (applied == null) {
+                conflictingSource = source.getKey();
+                break;
+            }
+            newHead = applied;
+            merged.add(source.getKey());
+        }
+
+        if (!merged.isEmpty()) {
+            updateBranch(target, targetCommit, newHead, "geat: merge train of " + merged.size() + " branch(es)");
+            switchTo(target, headTree, walk.parseCommit(newHead).getTree());
+        }
+        return conflictingSource == null;
+    }
+
+    private ObjectId squash(String source, ObjectId onto, String message) throws IOException {
+        InCoreSquash squash = new InCoreSquash(repository, source, target);
+        try {
+            if (!squash.mergeOn(onto)) {
+                conflictingPaths = squash.getConflictingPaths();
+                return null;
+            }
+            return squash.commitOnly(message);
+        } finally {
+            squash.release();
+        }
+    }
+
+    private ObjectId rebase(String source, ObjectId onto) throws IOException {
+        InCoreRebase rebase = new InCoreRebase(repository, source, target, patchIdCache);
+        try {
+            RevCommit rebased = rebase.replayOn(onto);
+            if (rebased == null) {
+                conflictingPaths = rebase.getConflictingPaths();
+                conflictingCommit = rebase.getConflictingCommit().abbreviate(7).name() + " '"
+                        + rebase.getConflictingCommit().getShortMessage() + "'";
+            }
+            return rebased;
+        } finally {
+            rebase.release();
+        }
+    }
+
+    /**
+     * @return sources applied on target, in order
+     */
+    public List<String> getMerged() {
+        return merged;
+    }
+
+    /**
+     * @return the source the train stopped at, null if all sources have been applied
+     */
+    public String getConflictingSource() {
+        return conflictingSource;
+    }
+
+    /**
+     * @return abbreviated id and subject of the commit of the conflicting source that did not apply (rebase only)
+     */
+    public String getConflictingCommit() {
+        return conflictingCommit;
+    }
+
+    @Override
+    public List<String> getConflictingPaths() {
+        return conflictingPaths;
+    }
+
+}
@@ -0,0 +1,213 @@
+package org.talend.geat.merge;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheCheckout;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.RefUpdate.Result;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.merge.MergeStrategy;
+import org.eclipse.jgit.merge.ResolveMerger;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.talend.geat.ParallelCheckout;
+
+/**
+ * Common superclass of operations that compute their commits in memory, without going through the index and the
+ * working tree. Only the final switch to the resulting branch touches the working tree, and only for files that differ.
+ * 
+ * Branches are moved first (see updateBranch()), each only if it has not moved since it was read, and the working tree
+ * is switched last (see switchTo()): a branch moved by someone else leaves index and working tree untouched, and if a
+ * step fails, branches already moved are put back.
+ */
+public abstract class InCoreOperation {
+
+    protected final Repository            repository;
+
+    protected final RevWalk               walk;
+
+    private int                           checkoutThreads  = 1;
+
+    // Paths of the last merge that could not be merged without conflicts:
+    private List<String>                  conflictingPaths = Collections.emptyList();
+
+    // Branches moved since the last switchTo(), with their previous and new ids:
+    private final Map<String, ObjectId[]> moved            = new LinkedHashMap<String, ObjectId[]>();
+
+    public InCoreOperation(Repository repository) {
+        super();
+        this.repository = repository;
+        this.walk = new RevWalk(repository);
+    }
+
+    protected RevCommit parseBranch(String branch) throws IOException {
+        ObjectId id = repository.resolve(Constants.R_HEADS + branch);
+        if (id == null) {
+            throw new IOException("No local branch named '" + branch + "'");
+        }
+        return walk.parseCommit(id);
+    }
+
+    /**
+     * @return a merger working in memory only, or null if it could not merge these trees without conflicts
+     */
+    protected ResolveMerger merge(RevCommit base, RevCommit ours, RevCommit theirs) throws IOException {
+        ResolveMerger merger = (ResolveMerger) MergeStrategy.RECURSIVE.newMerger(repository, true);
+        if (base != null) {
+            merger.setBase(base);
+        }
+        if (merger.merge(ours, theirs)) {
+            return merger;
+        }
+        conflictingPaths = new ArrayList<String>(merger.getUnmergedPaths());
+        if (merger.getFailingPaths() != null) {
+            conflictingPaths.addAll(merger.getFailingPaths().keySet());
+        }
+        return null;
+    }
+
+    protected RevCommit commit(ObjectId tree, String message, PersonIdent author, ObjectId... parents)
+            throws IOException {
+        CommitBuilder commit = new CommitBuilder();
+        commit.setTreeId(tree);
+        commit.setParentIds(parents);
+        commit.setAuthor(author);
+        commit.setCommitter(new PersonIdent(repository));
+        commit.setMessage(message);
+
+        ObjectInserter inserter = repository.newObjectInserter();
+        try {
+            ObjectId id = inserter.insert(commit);
+            inserter.flush();
+            return walk.parseCommit(id);
+        } finally {
+            inserter.release();
+        }
+    }
+
+    /**
+     * Moves a branch, only if it still points to oldId. Must be followed by switchTo(). If the branch has moved, the
+     * branches already moved by this operation are put back.
+     */
+    protected void updateBranch(String branch, ObjectId oldId, ObjectId newId, String reflog) throws IOException {
+        try {
+            moveBranch(branch, oldId, newId, reflog);
+        } catch (IOException e) {
+            throw restoreBranches(e);
+        }
+        moved.put(branch, new ObjectId[] { oldId.copy(), newId.copy() });
+    }
+
+    private void moveBranch(String branch, ObjectId oldId, ObjectId newId, String reflog) throws IOException {
+        RefUpdate update = repository.updateRef(Constants.R_HEADS + branch);
+        update.setExpectedOldObjectId(oldId);
+        update.setNewObjectId(newId);
+        update.setForceUpdate(true);
+        update.setRefLogMessage(reflog, false);
+        Result result = update.update(walk);
+        if (result != Result.FAST_FORWARD && result != Result.FORCED && result != Result.NO_CHANGE) {
+            throw new IOException("Cannot update '" + branch + "': " + result);
+        }
+    }
+
+    /**
+     * Puts back the branches moved by this operation, in reverse order, each only if it has not moved again.
+     * 
+     * @return the cause, or an exception telling which branches could not be put back
+     */
+    private IOException restoreBranches(IOException cause) {
+        List<String> branches = new ArrayList<String>(moved.keySet());
+        Collections.reverse(branches);
+        List<String> notRestored = new ArrayList<String>();
+        for (String branch : branches) {
+            ObjectId[] ids = moved.get(branch);
+            try {
+                moveBranch(branch, ids[1], ids[0], "geat: put back after failure (" + cause.getMessage() + ")");
+            } catch (IOException e) {
+                notRestored.add("'" + branch + "' (was " + ids[0].name() + ")");
+            }
+        }
+        moved.clear();
+        if (notRestored.isEmpty()) {
+            return cause;
+        }
+        return new IOException(cause.getMessage() + ", and branches " + notRestored
+                + " could not be put back: they have moved since", cause);
+    }
+
+    /**
+     * Makes branch the current one, with newTree in index and working tree. They are moved from the tree of current
+     * HEAD: only files that differ are written. Done after moving branches (see updateBranch()): if it fails, they are
+     * put back.
+     * 
+     * @param headTree
+     *            tree of current HEAD
+     * @param newTree
+     *            tree of the commit branch points to
+     */
+    protected void switchTo(String branch, ObjectId headTree, ObjectId newTree) throws IOException {
+        try {
+            DirCache dirCache = repository.lockDirCache();
+            try {
+                if (checkoutThreads == 1) {
+                    DirCacheCheckout checkout = new DirCacheCheckout(repository, headTree, dirCache, newTree);
+                    checkout.setFailOnConflict(true);
+                    checkout.checkout();
+                } else {
+                    new ParallelCheckout(repository, headTree, dirCache, newTree, checkoutThreads).checkout();
+                }
+            } finally {
+                dirCache.unlock();
+            }
+        } catch (IOException e) {
+            throw restoreBranches(e);
+        }
+        moved.clear();
+
+        RefUpdate head = repository.updateRef(Constants.HEAD);
+        head.setRefLogMessage("geat: moving to " + branch, false);
+        Result result = head.link(Constants.R_HEADS + branch);
+        if (result != Result.NEW && result != Result.FORCED && result != Result.NO_CHANGE) {
+            throw new IOException("Cannot checkout '" + branch + "': " + result);
+        }
+    }
+
+    /**
+     * @param checkoutThreads
+     *            number of threads writing files when switching to the result (see ParallelCheckout), 1 to use JGit's
+     *            DirCacheCheckout, 0 for one per available processor
+     */
+    public void setCheckoutThreads(int checkoutThreads) {
+        this.checkoutThreads = checkoutThreads;
+    }
+
+    /**
+     * @return the tree of the current HEAD commit
+     */
+    protected ObjectId getHeadTree() throws IOException {
+        return walk.parseCommit(repository.resolve(Constants.HEAD)).getTree();
+    }
+
+    /**
+     * @return paths that could not be merged, when the operation has stopped on conflicts
+     */
+    public List<String> getConflictingPaths() {
+        return conflictingPaths;
+    }
+
+    public void release() {
+        walk.release();
+    }
+
+}
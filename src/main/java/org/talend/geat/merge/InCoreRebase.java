@@ -0,0 +1,173 @@
+package org.talend.geat.merge;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.merge.ResolveMerger;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevSort;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+
+/**
+ * Rebases a branch on another one in memory, then fast-forwards the other one on it: each commit of source is
+ * cherry-picked on target with an in-memory merger, without using the index nor the working tree. Finally target is
+ * checked out, writing only files that differ from current HEAD.
+ * 
+ * As git rebase does, merge commits are not replayed, nor commits whose changes are already in target (same patch-id,
+ * see PatchIdCache).
+ */
+public class InCoreRebase extends InCoreOperation {
+
+    private final String       source;
+
+    private final String       target;
+
+    private final PatchIdCache patchIdCache;
+
+    private int                replayed;
+
+    private int                skipped;
+
+    private RevCommit          conflictingCommit;
+
+    public InCoreRebase(Repository repository, String source, String target, PatchIdCache patchIdCache) {
+        super(repository);
+        this.source = source;
+        this.target = target;
+        this.patchIdCache = patchIdCache;
+    }
+
+    /**
+     * @return false if a commit does not apply without conflicts, nothing has been written then
+     */
+    public boolean call() throws IOException {
+        RevCommit targetCommit = parseBranch(target);
+        RevCommit sourceCommit = parseBranch(source);
+        ObjectId headTree = getHeadTree();
+
+        RevCommit newHead = replayOn(targetCommit);
+        if (newHead == null) {
+            return false;
+        }
+
+        updateBranch(source, sourceCommit, newHead, "geat: rebase " + source + " on " + target);
+        updateBranch(target, targetCommit, newHead, "geat: fast-forward " + target + " to " + source);
+        switchTo(target, headTree, newHead.getTree());
+        return true;
+    }
+
+    /**
+     * Replays the commits of source on onto. Only commits are written, no branch is moved.
+     * 
+     * @return the rebased source, or null if a commit does not apply without conflicts (see getConflictingCommit())
+     */
+    public RevCommit replayOn(ObjectId onto) throws IOException {
+        RevCommit ontoCommit = walk.parseCommit(onto);
+        RevCommit newHead = ontoCommit;
+        for (RevCommit commit : getCommitsToReplay(parseBranch(source), ontoCommit)) {
+            newHead = replay(commit, newHead);
+            if (newHead == null) {
+                conflictingCommit = commit;
+                return null;
+            }
+        }
+        return newHead;
+    }
+
+    /**
+     * @return commits of source that are not in target, oldest first, without those whose changes are already in target
+     */
+    protected List<RevCommit> getCommitsToReplay(RevCommit sourceCommit, RevCommit targetCommit) throws IOException {
+        List<RevCommit> toReturn = listCommits(sourceCommit, targetCommit);
+        List<RevCommit> upstream = listCommits(targetCommit, sourceCommit);
+        if (toReturn.isEmpty() || upstream.isEmpty()) {
+            return toReturn;
+        }
+
+        List<RevCommit> all = new ArrayList<RevCommit>(toReturn);
+        all.addAll(upstream);
+        Map<ObjectId, ObjectId> patchIds = patchIdCache.getPatchIds(repository, all);
+        Set<ObjectId> upstreamPatchIds = new HashSet<ObjectId>();
+        for (RevCommit commit : upstream) {
+            upstreamPatchIds.add(patchIds.get(commit));
+        }
+        for (Iterator<RevCommit> iterator = toReturn.iterator(); iterator.hasNext();) {
+            if (upstreamPatchIds.contains(patchIds.get(iterator.next()))) {
+                iterator.remove();
+                skipped++;
+            }
+        }
+        return toReturn;
+    }
+
+    /**
+     * @return non-merge commits of from that are not in to, oldest first
+     */
+    private List<RevCommit> listCommits(RevCommit from, RevCommit to) throws IOException {
+        walk.reset();
+        walk.setRevFilter(RevFilter.NO_MERGES);
+        walk.sort(RevSort.TOPO);
+        walk.markStart(from);
+        walk.markUninteresting(to);
+
+        List<RevCommit> toReturn = new ArrayList<RevCommit>();
+        for (RevCommit commit : walk) {
+            toReturn.add(commit);
+        }
+        walk.reset();
+        walk.setRevFilter(RevFilter.ALL);
+        walk.sort(RevSort.NONE);
+
+        Collections.reverse(toReturn);
+        return toReturn;
+    }
+
+    /**
+     * @return the copy of commit on top of newHead, or null if conflicting
+     */
+    private RevCommit replay(RevCommit commit, RevCommit newHead) throws IOException {
+        walk.parseBody(commit);
+        RevCommit parent = commit.getParentCount() > 0 ? walk.parseCommit(commit.getParent(0)) : null;
+        if (parent != null && parent.equals(newHead)) {
+            // Already on top of newHead, commit can be kept as is
+            return commit;
+        }
+
+        ResolveMerger merger = merge(parent, newHead, commit);
+        if (merger == null) {
+            return null;
+        }
+        replayed++;
+        return commit(merger.getResultTreeId(), commit.getFullMessage(), commit.getAuthorIdent(), newHead);
+    }
+
+    /**
+     * @return how many commits have been rewritten (commits already on top of target are kept as is)
+     */
+    public int getReplayed() {
+        return replayed;
+    }
+
+    /**
+     * @return how many commits have not been replayed because their changes were already in target
+     */
+    public int getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * @return the commit of source that did not apply, when the rebase has stopped on conflicts
+     */
+    public RevCommit getConflictingCommit() {
+        return conflictingCommit;
+    }
+
+}
@@ -0,0 +1,92 @@
+package org.talend.geat.merge;
+
+import java.io.IOException;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.merge.ResolveMerger;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+/**
+ * Squashes a branch on another one in memory: the tree of the squash commit is computed from the merge base, target and
+ * source without using the index nor the working tree. Then target branch is moved and checked out, writing only files
+ * that differ from current HEAD.
+ * 
+ * Use merge() first, and if it succeeds, commit().
+ */
+public class InCoreSquash extends InCoreOperation {
+
+    private final String source;
+
+    private final String target;
+
+    private RevCommit    targetCommit;
+
+    private ObjectId     tree;
+
+    public InCoreSquash(Repository repository, String source, String target) {
+        super(repository);
+        this.source = source;
+        this.target = target;
+    }
+
+    /**
+     * Computes the squashed tree. Nothing is written yet.
+     * 
+     * @return false if there are conflicts, that must be resolved in the working tree
+     */
+    public boolean merge() throws IOException {
+        return mergeOn(parseBranch(target));
+    }
+
+    /**
+     * Computes the tree of source squashed on onto, instead of on target. Nothing is written yet.
+     * 
+     * @return false if there are conflicts
+     */
+    public boolean mergeOn(ObjectId onto) throws IOException {
+        targetCommit = walk.parseCommit(onto);
+        RevCommit sourceCommit = parseBranch(source);
+
+        if (walk.isMergedInto(targetCommit, sourceCommit)) {
+            // Nothing new on target: the result is source as is
+            tree = sourceCommit.getTree();
+            return true;
+        }
+
+        walk.reset();
+        ResolveMerger merger = merge(null, targetCommit, sourceCommit);
+        if (merger == null) {
+            return false;
+        }
+        tree = merger.getResultTreeId();
+        return true;
+    }
+
+    /**
+     * Writes the squash commit on target, and makes target the current branch.
+     * 
+     * @return the squash commit
+     */
+    public RevCommit commit(String message) throws IOException {
+        ObjectId headTree = getHeadTree();
+        RevCommit squash = commitOnly(message);
+        updateBranch(target, targetCommit, squash, "geat: squash " + source);
+        switchTo(target, headTree, tree);
+        return squash;
+    }
+
+    /**
+     * Writes the squash commit, on the commit merge() or mergeOn() squashed on. No branch is moved.
+     * 
+     * @return the squash commit
+     */
+    public RevCommit commitOnly(String message) throws IOException {
+        if (tree == null) {
+            throw new IllegalStateException("merge() must succeed before commit()");
+        }
+        return commit(tree, message, new PersonIdent(repository), targetCommit);
+    }
+
+}
@@ -0,0 +1,161 @@
+package org.talend.geat.merge;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.jgit.diff.PatchIdDiffFormatter;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+/**
+ * Patch-ids of commits (same as git patch-id): two commits with the same patch-id introduce the same changes.
+ * 
+ * Patch-id of a commit never changes, so they are stored, by commit id, in a file (.git/.geat/patch-ids): a commit is
+ * diffed only once, whatever the number of finishes it is involved in.
+ */
+public class PatchIdCache {
+
+    // Under this number of patch-ids to compute, threads cost more than they save:
+    private static final int        PARALLEL_THRESHOLD = 32;
+
+    private final File              file;
+
+    private Map<ObjectId, ObjectId> patchIds;
+
+    // Computed since the file has been read:
+    private Map<ObjectId, ObjectId> added              = new LinkedHashMap<ObjectId, ObjectId>();
+
+    /**
+     * @param file
+     *            where patch-ids are stored, null to keep them in memory only
+     */
+    public PatchIdCache(File file) {
+        super();
+        this.file = file;
+    }
+
+    /**
+     * @return patch-ids of these commits (not merge commits), by commit. Those not known yet are computed, in parallel
+     *         for long histories, and stored.
+     */
+    public Map<ObjectId, ObjectId> getPatchIds(Repository repository, List<RevCommit> commits) throws IOException {
+        load();
+
+        Map<ObjectId, ObjectId> toReturn = new HashMap<ObjectId, ObjectId>();
+        List<RevCommit> missing = new ArrayList<RevCommit>();
+        for (RevCommit commit : commits) {
+            ObjectId patchId = patchIds.get(commit);
+            if (patchId == null) {
+                missing.add(commit);
+            } else {
+                toReturn.put(commit, patchId);
+            }
+        }
+
+        if (missing.size() < PARALLEL_THRESHOLD) {
+            for (RevCommit commit : missing) {
+                toReturn.put(commit, computePatchId(repository, commit));
+            }
+        } else {
+            toReturn.putAll(computeInParallel(repository, missing));
+        }
+
+        for (RevCommit commit : missing) {
+            patchIds.put(commit.copy(), toReturn.get(commit));
+            added.put(commit.copy(), toReturn.get(commit));
+        }
+        save();
+        return toReturn;
+    }
+
+    private Map<ObjectId, ObjectId> computeInParallel(final Repository repository, List<RevCommit> commits)
+            throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            Map<ObjectId, Future<ObjectId>> futures = new HashMap<ObjectId, Future<ObjectId>>();
+            for (final RevCommit commit : commits) {
+                futures.put(commit, executor.submit(new Callable<ObjectId>() {
+
+                    public ObjectId call() throws IOException {
+                        return computePatchId(repository, commit);
+                    }
+                }));
+            }
+
+            Map<ObjectId, ObjectId> toReturn = new HashMap<ObjectId, ObjectId>();
+            for (Entry<ObjectId, Future<ObjectId>> current : futures.entrySet()) {
+                toReturn.put(current.getKey(), current.getValue().get());
+            }
+            return toReturn;
+        } catch (InterruptedException e) {
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Can be called from several threads at once: diffs with its own walk and reader.
+     */
+    protected static ObjectId computePatchId(Repository repository, ObjectId commitId) throws IOException {
+        RevWalk walk = new RevWalk(repository);
+        PatchIdDiffFormatter formatter = new PatchIdDiffFormatter();
+        try {
+            RevCommit commit = walk.parseCommit(commitId);
+            RevCommit parent = commit.getParentCount() > 0 ? walk.parseCommit(commit.getParent(0)) : null;
+            formatter.setRepository(repository);
+            formatter.format(parent == null ? null : parent.getTree(), commit.getTree());
+            return formatter.getCalulatedPatchId();
+        } finally {
+            formatter.release();
+            walk.release();
+        }
+    }
+
+    private void load() throws IOException {
+        if (patchIds != null) {
+            return;
+        }
+        patchIds = new HashMap<ObjectId, ObjectId>();
+        if (file == null || !file.exists()) {
+            return;
+        }
+        for (String line : Files.readLines(file, Charsets.UTF_8)) {
+            String[] split = line.split(" ");
+            if (split.length == 2 && ObjectId.isId(split[0]) && ObjectId.isId(split[1])) {
+                patchIds.put(ObjectId.fromString(split[0]), ObjectId.fromString(split[1]));
+            }
+        }
+    }
+
+    private void save() throws IOException {
+        if (file == null || added.isEmpty()) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (Entry<ObjectId, ObjectId> current : added.entrySet()) {
+            sb.append(current.getKey().name()).append(' ').append(current.getValue().name()).append('\n');
+        }
+        Files.append(sb, file, Charsets.UTF_8);
+        added.clear();
+    }
+
+}
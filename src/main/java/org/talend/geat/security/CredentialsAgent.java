@@ -0,0 +1,138 @@
+package org.talend.geat.security;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.talend.geat.Configuration;
+import org.talend.geat.daemon.DaemonEndpoint;
+
+/**
+ * Long-lived process keeping credentials in memory (HTTPS passwords, SSH passphrases and decrypted SSH identities), so
+ * that they are asked, and keys decrypted, once per session without being written on disk. See
+ * CredentialsAgentClient.
+ * 
+ * Listens on the loopback interface only, and a client must first send the token stored in the user-only endpoint file
+ * (see DaemonEndpoint). Stops, forgetting everything, after geat.agent.idleTimeout seconds without request.
+ */
+public class CredentialsAgent {
+
+    public static final String        GET     = "get";
+
+    public static final String        PUT     = "put";
+
+    public static final String        STATUS  = "status";
+
+    public static final String        STOP    = "stop";
+
+    private ServerSocket              serverSocket;
+
+    private DaemonEndpoint            endpoint;
+
+    private volatile boolean          running;
+
+    // Credentials, by key (see CredentialsAgentClient):
+    private final Map<String, String> secrets = new HashMap<String, String>();
+
+    public CredentialsAgent() {
+        super();
+    }
+
+    /**
+     * Binds the agent and publishes its endpoint. Requests are not served before a call to serve().
+     */
+    public void start() throws IOException {
+        serverSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        serverSocket.setSoTimeout(Configuration.INSTANCE.getAsInt("geat.agent.idleTimeout") * 1000);
+        endpoint = DaemonEndpoint.create(DaemonEndpoint.AGENT, serverSocket.getLocalPort());
+        endpoint.write();
+        running = true;
+    }
+
+    /**
+     * Serves requests until stopped by a 'agent stop' command or idle timeout.
+     */
+    public void serve() throws IOException {
+        try {
+            while (running) {
+                Socket socket;
+                try {
+                    socket = serverSocket.accept();
+                } catch (SocketTimeoutException e) {
+                    // Idle for too long
+                    break;
+                } catch (SocketException e) {
+                    // Server socket closed by stop()
+                    break;
+                }
+                try {
+                    handle(socket);
+                } catch (IOException e) {
+                    // Client went away, wait for the next one
+                } finally {
+                    socket.close();
+                }
+            }
+        } finally {
+            stop();
+        }
+    }
+
+    public void stop() {
+        running = false;
+        secrets.clear();
+        DaemonEndpoint.delete(DaemonEndpoint.AGENT);
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            // Nothing to do
+        }
+    }
+
+    public int getPort() {
+        return endpoint.getPort();
+    }
+
+    /**
+     * A request is the token, an operation and its arguments. The answer is a boolean telling if there is a value,
+     * followed by the value.
+     */
+    private void handle(Socket socket) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+        if (!endpoint.getToken().equals(in.readUTF())) {
+            return;
+        }
+        String operation = in.readUTF();
+        String answer = null;
+        if (operation.equals(GET)) {
+            answer = secrets.get(in.readUTF());
+        } else if (operation.equals(PUT)) {
+            secrets.put(in.readUTF(), in.readUTF());
+            answer = "";
+        } else if (operation.equals(STATUS)) {
+            answer = "GEAT credentials agent is running on port " + endpoint.getPort() + ", " + secrets.size()
+                    + " credential(s) kept";
+        } else if (operation.equals(STOP)) {
+            running = false;
+            answer = "GEAT credentials agent stopped, " + secrets.size() + " credential(s) forgotten";
+        }
+
+        out.writeBoolean(answer != null);
+        if (answer != null) {
+            out.writeUTF(answer);
+        }
+        out.flush();
+    }
+
+}
@@ -0,0 +1,91 @@
+package org.talend.geat.security;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+import org.talend.geat.Configuration;
+import org.talend.geat.daemon.DaemonEndpoint;
+
+/**
+ * Client of CredentialsAgent. Every method is a no-op, returning null, when no agent runs.
+ * 
+ * Keys are 'https:&lt;user&gt;@&lt;host&gt;' for HTTPS passwords, 'ssh-passphrase' for the SSH passphrase and
+ * 'ssh-identity:&lt;file&gt;' for decrypted SSH identities.
+ */
+public class CredentialsAgentClient {
+
+    /**
+     * @return true if an agent answers on the published endpoint. A stale endpoint is removed.
+     */
+    public static boolean isAgentRunning() {
+        return status() != null;
+    }
+
+    /**
+     * @return the credential kept with this key, null if none or no agent
+     */
+    public static String get(String key) {
+        return request(CredentialsAgent.GET, key);
+    }
+
+    /**
+     * Keeps this credential in the agent, if any.
+     * 
+     * @return true if an agent has kept it
+     */
+    public static boolean put(String key, String value) {
+        return request(CredentialsAgent.PUT, key, value) != null;
+    }
+
+    public static String status() {
+        return request(CredentialsAgent.STATUS);
+    }
+
+    public static String stop() {
+        return request(CredentialsAgent.STOP);
+    }
+
+    private static String request(String operation, String... args) {
+        DaemonEndpoint endpoint = DaemonEndpoint.read(DaemonEndpoint.AGENT);
+        if (endpoint == null) {
+            return null;
+        }
+        Socket socket = new Socket();
+        try {
+            try {
+                socket.connect(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), endpoint.getPort()),
+                        Configuration.INSTANCE.getAsInt("geat.daemon.connectTimeout"));
+            } catch (IOException e) {
+                // Agent died without cleaning its endpoint:
+                DaemonEndpoint.delete(DaemonEndpoint.AGENT);
+                return null;
+            }
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeUTF(endpoint.getToken());
+            out.writeUTF(operation);
+            for (String arg : args) {
+                out.writeUTF(arg);
+            }
+            out.flush();
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            return in.readBoolean() ? in.readUTF() : null;
+        } catch (IOException e) {
+            System.out.println("WARN: GEAT credentials agent failed (" + e.getMessage() + ")");
+            return null;
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Nothing to do
+            }
+        }
+    }
+
+}
@@ -1,15 +1,19 @@
 package org.talend.geat.security;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.eclipse.jgit.transport.URIish;
-import org.talend.geat.GitUtils;
-import org.talend.geat.exception.IncorrectRepositoryStateException;
+import org.talend.geat.RepositoryContext;
 
 
 public class CredentialsFactory {
 
-    public static CredentialsProviderBuilder getCredentialsProviderBuilder() throws IncorrectRepositoryStateException {
-        final URIish remoteUrl = GitUtils.getRemoteUrl("origin");
-        if (!remoteUrl.isRemote()) {
+    private static final AtomicInteger buildersCount = new AtomicInteger();
+
+    public static CredentialsProviderBuilder getCredentialsProviderBuilder(RepositoryContext context) {
+        buildersCount.incrementAndGet();
+        final URIish remoteUrl = context.getRemoteUrl("origin");
+        if (remoteUrl == null || !remoteUrl.isRemote()) {
             return new CredentialsProviderEmptyBuilder();
         }
         if (isHttps(remoteUrl)) {
@@ -19,6 +23,13 @@ public class CredentialsFactory {
         }
     }
 
+    /**
+     * @return how many builders have been created in this JVM
+     */
+    public static int getBuildersCount() {
+        return buildersCount.get();
+    }
+
     /**
      * Checks if origin url is based on HTTPS (true) or SSH (false).
      * 
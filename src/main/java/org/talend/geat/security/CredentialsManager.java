@@ -1,11 +1,82 @@
 package org.talend.geat.security;
 
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.jgit.transport.CredentialsProvider;
+import org.eclipse.jgit.transport.HttpTransport;
+import org.eclipse.jgit.transport.JschConfigSessionFactory;
+import org.eclipse.jgit.transport.OpenSshConfig;
+import org.eclipse.jgit.transport.SshSessionFactory;
+import org.eclipse.jgit.transport.URIish;
+import org.eclipse.jgit.util.FS;
+import org.talend.geat.RepositoryContext;
 import org.talend.geat.exception.IllegalCommandArgumentException;
 import org.talend.geat.exception.IncorrectRepositoryStateException;
 
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+
+/**
+ * Credentials of remotes, resolved once per process (a command, a batch or the daemon) and per remote URL.
+ */
 public class CredentialsManager {
 
-    public static void init() throws IllegalCommandArgumentException, IncorrectRepositoryStateException {
-        CredentialsFactory.getCredentialsProviderBuilder().install();
+    // Credentials already resolved, by remote URL (null value for a remote without credentials):
+    private static final Map<String, CredentialsProvider> providers = new HashMap<String, CredentialsProvider>();
+
+    /**
+     * @return the credentials of origin, resolved on first call for its URL (see CredentialsFactory), null if none
+     */
+    public static synchronized CredentialsProvider getCredentialsProvider(RepositoryContext context)
+            throws IllegalCommandArgumentException, IncorrectRepositoryStateException {
+        String key = getKey(context);
+        if (!providers.containsKey(key)) {
+            providers.put(key, CredentialsFactory.getCredentialsProviderBuilder(context).build(context));
+        }
+        return providers.get(key);
+    }
+
+    /**
+     * @return what the credentials of origin are resolved for: contexts with equal keys get the same provider
+     */
+    public static String getKey(RepositoryContext context) {
+        URIish remoteUrl = context.getRemoteUrl("origin");
+        return remoteUrl == null ? null : remoteUrl.toString();
     }
+
+    /**
+     * Installs the SSH session factory and the HTTP connection factory geat uses, if not done yet. SSH sessions get
+     * their credentials from the provider of the transport command (see DeferredCredentialsProvider), and their
+     * identities from the running ssh-agent if any, or else from the credentials agent when it holds them decrypted.
+     */
+    public static synchronized void installTransports() {
+        if (!(SshSessionFactory.getInstance() instanceof PooledSshSessionFactory)) {
+            JschConfigSessionFactory sessionFactory = new JschConfigSessionFactory() {
+
+                @Override
+                protected void configure(OpenSshConfig.Host hc, Session session) {
+                    // Pooled sessions must not keep the JVM alive once the command is done:
+                    session.setDaemonThread(true);
+                }
+
+                @Override
+                protected JSch getJSch(OpenSshConfig.Host hc, FS fs) throws JSchException {
+                    JSch jsch = super.getJSch(hc, fs);
+                    // Keys of the running ssh-agent, or else identities already decrypted by the credentials agent:
+                    if (!SshAgentIdentityRepository.install(jsch)) {
+                        CredentialsProviderSshBuilder.useAgentIdentities(jsch);
+                    }
+                    return jsch;
+                }
+            };
+            // One session per host for the whole process, instead of one per transport call:
+            SshSessionFactory.setInstance(new PooledSshSessionFactory(sessionFactory));
+        }
+        if (!(HttpTransport.getConnectionFactory() instanceof KeepAliveHttpConnectionFactory)) {
+            HttpTransport.setConnectionFactory(KeepAliveHttpConnectionFactory.INSTANCE);
+        }
+    }
+
 }
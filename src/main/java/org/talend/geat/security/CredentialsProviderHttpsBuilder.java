@@ -1,10 +1,11 @@
 package org.talend.geat.security;
 
 import org.eclipse.jgit.transport.CredentialsProvider;
+import org.eclipse.jgit.transport.URIish;
 import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
 import org.talend.geat.GitConfiguration;
 import org.talend.geat.InputsUtils;
-import org.talend.geat.MyGit;
+import org.talend.geat.RepositoryContext;
 import org.talend.geat.exception.IllegalCommandArgumentException;
 import org.talend.geat.exception.IncorrectRepositoryStateException;
 
@@ -13,14 +14,13 @@ public class CredentialsProviderHttpsBuilder implements CredentialsProviderBuild
 
     private static String password;
 
-    public void install() throws IllegalCommandArgumentException, IncorrectRepositoryStateException {
-        MyGit.credentialsProvider = build();
-    }
-
-    public CredentialsProvider build() throws IllegalCommandArgumentException, IncorrectRepositoryStateException {
-        String username = GitConfiguration.getInstance().get("user.email");
+    public CredentialsProvider build(RepositoryContext context) throws IllegalCommandArgumentException,
+            IncorrectRepositoryStateException {
+        String username = context.getConfiguration().get("user.email");
         if (password == null || password.length() == 0) {
-            password = findPassword(username);
+            URIish remoteUrl = context.getRemoteUrl("origin");
+            password = findPassword(context.getConfiguration(), username, "https:" + username + "@"
+                    + (remoteUrl == null ? null : remoteUrl.getHost()));
         }
         if (password == null) {
             throw new IllegalCommandArgumentException("Password cannot be null");
@@ -29,13 +29,20 @@ public class CredentialsProviderHttpsBuilder implements CredentialsProviderBuild
         return new UsernamePasswordCredentialsProvider(username, password);
     }
 
-    private String findPassword(String username) throws IncorrectRepositoryStateException {
-        String toReturn = GitConfiguration.getInstance().get("httpspwd");
+    /**
+     * Looks for the password in the credentials agent first, then in git config, then asks the user. A password asked
+     * while an agent runs is kept by the agent rather than saved in git config.
+     */
+    private String findPassword(GitConfiguration configuration, String username, String agentKey) {
+        String toReturn = CredentialsAgentClient.get(agentKey);
+        if (toReturn == null) {
+            toReturn = configuration.get("httpspwd");
+        }
         if (toReturn == null) {
             toReturn = InputsUtils.askUser("HTTPS password for [" + username + "]", null);
-            if (toReturn != null
+            if (toReturn != null && !CredentialsAgentClient.put(agentKey, toReturn)
                     && InputsUtils.askUserAsBoolean("Do you want to save this password in your local gitconfig file")) {
-                GitConfiguration.getInstance().set(GitConfiguration.CONFIG_PREFIX, "httpspwd", toReturn);
+                configuration.set(GitConfiguration.CONFIG_PREFIX, "httpspwd", toReturn);
             }
         }
 
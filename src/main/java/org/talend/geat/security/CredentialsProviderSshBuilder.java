@@ -1,42 +1,47 @@
 package org.talend.geat.security;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.eclipse.jgit.errors.UnsupportedCredentialItem;
 import org.eclipse.jgit.transport.CredentialItem;
 import org.eclipse.jgit.transport.CredentialsProvider;
-import org.eclipse.jgit.transport.CredentialsProviderUserInfo;
-import org.eclipse.jgit.transport.JschConfigSessionFactory;
-import org.eclipse.jgit.transport.OpenSshConfig;
-import org.eclipse.jgit.transport.SshSessionFactory;
 import org.eclipse.jgit.transport.URIish;
+import org.eclipse.jgit.util.FS;
 import org.talend.geat.GitConfiguration;
 import org.talend.geat.InputsUtils;
+import org.talend.geat.RepositoryContext;
 import org.talend.geat.exception.IncorrectRepositoryStateException;
 
-import com.jcraft.jsch.Session;
-import com.jcraft.jsch.UserInfo;
+import com.google.common.base.Charsets;
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.KeyPair;
 
 
 public class CredentialsProviderSshBuilder implements CredentialsProviderBuilder {
 
-    private static String sshPassphrase;
+    protected static final String PASSPHRASE_KEY      = "ssh-passphrase";
 
-    public void install() throws IncorrectRepositoryStateException {
-        final CredentialsProvider credentialsProvider = build();
+    protected static final String IDENTITY_KEY_PREFIX = "ssh-identity:";
 
-        JschConfigSessionFactory sessionFactory = new JschConfigSessionFactory() {
+    // Identities JSch loads by default:
+    private static final String[] IDENTITY_FILES      = { "identity", "id_rsa", "id_dsa" };
 
-            @Override
-            protected void configure(OpenSshConfig.Host hc, Session session) {
-                UserInfo userInfo = new CredentialsProviderUserInfo(session, credentialsProvider);
-                session.setUserInfo(userInfo);
-            }
-        };
-        SshSessionFactory.setInstance(sessionFactory);
-    }
+    private static String         sshPassphrase;
 
-    public CredentialsProvider build() throws IncorrectRepositoryStateException {
-        final String sshPassphrase = (CredentialsProviderSshBuilder.sshPassphrase == null ? findSshPassphrase()
-                : CredentialsProviderSshBuilder.sshPassphrase);
+    public CredentialsProvider build(RepositoryContext context) throws IncorrectRepositoryStateException {
+        SshAgentIdentityRepository sshAgent = SshAgentIdentityRepository.getInstance();
+        if (sshAgent != null && sshAgent.isAvailable()) {
+            // Sessions authenticate through ssh-agent, see CredentialsManager.installTransports()
+            return null;
+        }
+        final String sshPassphrase = (CredentialsProviderSshBuilder.sshPassphrase == null ? findSshPassphrase(context
+                .getConfiguration()) : CredentialsProviderSshBuilder.sshPassphrase);
         if (sshPassphrase == null) {
             System.out.println("WARN: SSH not set.");
             return null;
@@ -65,16 +70,103 @@ public class CredentialsProviderSshBuilder implements CredentialsProviderBuilder
         return provider;
     }
 
-    private String findSshPassphrase() throws IncorrectRepositoryStateException {
-        String sshPassphrase = GitConfiguration.getInstance().get("sshpassphrase");
-        if (sshPassphrase == null) {
+    /**
+     * Looks for the passphrase in the credentials agent first, then in git config, then asks the user. When an agent
+     * runs, it keeps the passphrase and the identities it decrypts, rather than saving the passphrase in git config.
+     */
+    private String findSshPassphrase(GitConfiguration configuration) {
+        String sshPassphrase = CredentialsAgentClient.get(PASSPHRASE_KEY);
+        if (sshPassphrase != null) {
+            return sshPassphrase;
+        }
+        sshPassphrase = configuration.get("sshpassphrase");
+        if (sshPassphrase != null) {
+            keepInAgent(sshPassphrase);
+        } else {
             sshPassphrase = InputsUtils.askUser("SSH passphrase, leave empty to skip", null);
-            if (InputsUtils.askUserAsBoolean("Do you want to save this passphrase in your local gitconfig file")) {
-                GitConfiguration.getInstance().set(GitConfiguration.CONFIG_PREFIX, "sshpassphrase", sshPassphrase);
+            if (!keepInAgent(sshPassphrase)
+                    && InputsUtils
+                            .askUserAsBoolean("Do you want to save this passphrase in your local gitconfig file")) {
+                configuration.set(GitConfiguration.CONFIG_PREFIX, "sshpassphrase", sshPassphrase);
             }
         }
 
         return sshPassphrase;
     }
 
+    /**
+     * Gives the passphrase and the default identities it decrypts to the credentials agent, if one runs.
+     * 
+     * @return true if an agent has kept them
+     */
+    private static boolean keepInAgent(String sshPassphrase) {
+        if (sshPassphrase == null || !CredentialsAgentClient.put(PASSPHRASE_KEY, sshPassphrase)) {
+            return false;
+        }
+        File sshFolder = new File(FS.DETECTED.userHome(), ".ssh");
+        for (String name : IDENTITY_FILES) {
+            File file = new File(sshFolder, name);
+            if (!file.isFile()) {
+                continue;
+            }
+            try {
+                String decrypted = decrypt(file.getAbsolutePath(), sshPassphrase);
+                if (decrypted != null) {
+                    CredentialsAgentClient.put(IDENTITY_KEY_PREFIX + file.getAbsolutePath(), decrypted);
+                }
+            } catch (JSchException e) {
+                System.out.println("WARN: cannot read SSH identity " + file + " (" + e.getMessage() + ")");
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the private key of this file, unencrypted, or null if it is not encrypted or the passphrase is wrong
+     */
+    protected static String decrypt(String identityFile, String sshPassphrase) throws JSchException {
+        KeyPair keyPair = KeyPair.load(new JSch(), identityFile);
+        try {
+            if (!keyPair.isEncrypted() || !keyPair.decrypt(sshPassphrase)) {
+                return null;
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            keyPair.writePrivateKey(out);
+            return new String(out.toByteArray(), Charsets.US_ASCII);
+        } finally {
+            keyPair.dispose();
+        }
+    }
+
+    /**
+     * Replaces the identities of this JSch that the credentials agent holds decrypted, so that sessions do not decrypt
+     * them again.
+     * 
+     * JSch can only remove identities by name with a deprecated method: all of them are removed, then added again in
+     * the same order, the others loaded again from their files (JGit only adds identities from files).
+     */
+    @SuppressWarnings("unchecked")
+    public static void useAgentIdentities(JSch jsch) throws JSchException {
+        List<String> names = new ArrayList<String>(jsch.getIdentityNames());
+        Map<String, String> decrypted = new HashMap<String, String>();
+        for (String name : names) {
+            String key = CredentialsAgentClient.get(IDENTITY_KEY_PREFIX + name);
+            if (key != null) {
+                decrypted.put(name, key);
+            }
+        }
+        if (decrypted.isEmpty()) {
+            return;
+        }
+
+        jsch.removeAllIdentity();
+        for (String name : names) {
+            if (decrypted.containsKey(name)) {
+                jsch.addIdentity(name, decrypted.get(name).getBytes(Charsets.US_ASCII), null, null);
+            } else {
+                jsch.addIdentity(name);
+            }
+        }
+    }
+
 }
@@ -0,0 +1,73 @@
+package org.talend.geat.security;
+
+import org.eclipse.jgit.errors.UnsupportedCredentialItem;
+import org.eclipse.jgit.transport.CredentialItem;
+import org.eclipse.jgit.transport.CredentialsProvider;
+import org.eclipse.jgit.transport.URIish;
+import org.talend.geat.RepositoryContext;
+import org.talend.geat.exception.IllegalCommandArgumentException;
+import org.talend.geat.exception.IncorrectRepositoryStateException;
+
+/**
+ * Credentials of origin, resolved (see CredentialsManager) only when a transport asks for them: an HTTPS remote that
+ * challenges the request, an SSH key that needs its passphrase. A network operation that needs no credentials, and a
+ * local one, never resolves them.
+ */
+public class DeferredCredentialsProvider extends CredentialsProvider {
+
+    private final RepositoryContext context;
+
+    private CredentialsProvider     provider;
+
+    private boolean                 resolved;
+
+    public DeferredCredentialsProvider(RepositoryContext context) {
+        super();
+        this.context = context;
+    }
+
+    private CredentialsProvider resolve() {
+        if (!resolved) {
+            try {
+                provider = CredentialsManager.getCredentialsProvider(context);
+            } catch (IllegalCommandArgumentException e) {
+                throw new UnsupportedCredentialItem(context.getRemoteUrl("origin"), e.getMessage());
+            } catch (IncorrectRepositoryStateException e) {
+                throw new UnsupportedCredentialItem(context.getRemoteUrl("origin"), e.getMessage());
+            }
+            resolved = true;
+        }
+        return provider;
+    }
+
+    /**
+     * @return what identifies the credentials this provider resolves to, see CredentialsManager.getKey()
+     */
+    public String getCredentialsKey() {
+        return CredentialsManager.getKey(context);
+    }
+
+    @Override
+    public boolean isInteractive() {
+        // Questions are asked while resolving, never by JGit
+        return false;
+    }
+
+    @Override
+    public boolean supports(CredentialItem... items) {
+        return resolve() != null && provider.supports(items);
+    }
+
+    @Override
+    public boolean get(URIish uri, CredentialItem... items) throws UnsupportedCredentialItem {
+        return resolve() != null && provider.get(uri, items);
+    }
+
+    @Override
+    public void reset(URIish uri) {
+        if (provider != null) {
+            provider.reset(uri);
+        }
+    }
+
+}
@@ -0,0 +1,277 @@
+package org.talend.geat.security;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.Proxy;
+import java.net.ProtocolException;
+import java.net.Socket;
+import java.net.URL;
+import java.security.KeyManagementException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+
+import org.eclipse.jgit.transport.http.HttpConnection;
+import org.eclipse.jgit.transport.http.HttpConnectionFactory;
+
+/**
+ * Creates JGit's HTTP connections so that they are kept alive from one request to another, and from one transport call
+ * to another (ls-remote, fetch, push): the JDK only reuses an idle connection to a host if it was opened by the same
+ * SSLSocketFactory, but JGit creates a new one for each request when http.sslVerify is false.
+ * 
+ * HTTPS connections therefore share one socket factory per trust policy, which also counts the sockets opened.
+ */
+public class KeepAliveHttpConnectionFactory implements HttpConnectionFactory {
+
+    public static final KeepAliveHttpConnectionFactory INSTANCE      = new KeepAliveHttpConnectionFactory();
+
+    private static final AtomicInteger                 requestsCount = new AtomicInteger();
+
+    private static final AtomicInteger                 socketsCount  = new AtomicInteger();
+
+    private SSLSocketFactory                           defaultFactory;
+
+    // Factories created by configure(), by key and trust managers classes:
+    private final Map<String, SSLSocketFactory>        factories     = new HashMap<String, SSLSocketFactory>();
+
+    private KeepAliveHttpConnectionFactory() {
+        super();
+    }
+
+    public HttpConnection create(URL url) throws IOException {
+        return create(url, null);
+    }
+
+    public HttpConnection create(URL url, Proxy proxy) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) (proxy == null ? url.openConnection() : url
+                .openConnection(proxy));
+        if (connection instanceof HttpsURLConnection) {
+            ((HttpsURLConnection) connection).setSSLSocketFactory(getDefaultFactory());
+        }
+        requestsCount.incrementAndGet();
+        return new KeepAliveHttpConnection(connection);
+    }
+
+    private synchronized SSLSocketFactory getDefaultFactory() {
+        if (defaultFactory == null) {
+            defaultFactory = new CountingSSLSocketFactory(HttpsURLConnection.getDefaultSSLSocketFactory());
+        }
+        return defaultFactory;
+    }
+
+    private synchronized SSLSocketFactory getFactory(KeyManager[] km, TrustManager[] tm, SecureRandom random)
+            throws NoSuchAlgorithmException, KeyManagementException {
+        String key = classNames(km) + "/" + classNames(tm);
+        SSLSocketFactory factory = factories.get(key);
+        if (factory == null) {
+            SSLContext context = SSLContext.getInstance("TLS");
+            context.init(km, tm, random);
+            factory = new CountingSSLSocketFactory(context.getSocketFactory());
+            factories.put(key, factory);
+        }
+        return factory;
+    }
+
+    private static String classNames(Object[] objects) {
+        StringBuilder names = new StringBuilder();
+        if (objects != null) {
+            for (Object object : objects) {
+                names.append(object.getClass().getName()).append(',');
+            }
+        }
+        return names.toString();
+    }
+
+    /**
+     * @return how many HTTP requests JGit has made in this JVM
+     */
+    public static int getRequestsCount() {
+        return requestsCount.get();
+    }
+
+    /**
+     * @return how many HTTPS connections have been opened in this JVM, requests made on kept alive ones excepted
+     */
+    public static int getConnectionsCount() {
+        return socketsCount.get();
+    }
+
+    private class KeepAliveHttpConnection implements HttpConnection {
+
+        private final HttpURLConnection connection;
+
+        public KeepAliveHttpConnection(HttpURLConnection connection) {
+            super();
+            this.connection = connection;
+        }
+
+        public int getResponseCode() throws IOException {
+            return connection.getResponseCode();
+        }
+
+        public URL getURL() {
+            return connection.getURL();
+        }
+
+        public String getResponseMessage() throws IOException {
+            return connection.getResponseMessage();
+        }
+
+        public Map<String, List<String>> getHeaderFields() {
+            return connection.getHeaderFields();
+        }
+
+        public void setRequestProperty(String key, String value) {
+            connection.setRequestProperty(key, value);
+        }
+
+        public void setRequestMethod(String method) throws ProtocolException {
+            connection.setRequestMethod(method);
+        }
+
+        public void setUseCaches(boolean usecaches) {
+            connection.setUseCaches(usecaches);
+        }
+
+        public void setConnectTimeout(int timeout) {
+            connection.setConnectTimeout(timeout);
+        }
+
+        public void setReadTimeout(int timeout) {
+            connection.setReadTimeout(timeout);
+        }
+
+        public String getContentType() {
+            return connection.getContentType();
+        }
+
+        public InputStream getInputStream() throws IOException {
+            return connection.getInputStream();
+        }
+
+        public String getHeaderField(String name) {
+            return connection.getHeaderField(name);
+        }
+
+        public int getContentLength() {
+            return connection.getContentLength();
+        }
+
+        public void setInstanceFollowRedirects(boolean followRedirects) {
+            connection.setInstanceFollowRedirects(followRedirects);
+        }
+
+        public void setDoOutput(boolean dooutput) {
+            connection.setDoOutput(dooutput);
+        }
+
+        public void setFixedLengthStreamingMode(int contentLength) {
+            connection.setFixedLengthStreamingMode(contentLength);
+        }
+
+        public OutputStream getOutputStream() throws IOException {
+            return connection.getOutputStream();
+        }
+
+        public void setChunkedStreamingMode(int chunklen) {
+            connection.setChunkedStreamingMode(chunklen);
+        }
+
+        public String getRequestMethod() {
+            return connection.getRequestMethod();
+        }
+
+        public boolean usingProxy() {
+            return connection.usingProxy();
+        }
+
+        public void connect() throws IOException {
+            connection.connect();
+        }
+
+        public void configure(KeyManager[] km, TrustManager[] tm, SecureRandom random)
+                throws NoSuchAlgorithmException, KeyManagementException {
+            if (connection instanceof HttpsURLConnection) {
+                ((HttpsURLConnection) connection).setSSLSocketFactory(getFactory(km, tm, random));
+            }
+        }
+
+        public void setHostnameVerifier(HostnameVerifier hostnameVerifier) {
+            if (connection instanceof HttpsURLConnection) {
+                ((HttpsURLConnection) connection).setHostnameVerifier(hostnameVerifier);
+            }
+        }
+
+    }
+
+    private static class CountingSSLSocketFactory extends SSLSocketFactory {
+
+        private final SSLSocketFactory factory;
+
+        public CountingSSLSocketFactory(SSLSocketFactory factory) {
+            super();
+            this.factory = factory;
+        }
+
+        private static Socket count(Socket socket) {
+            socketsCount.incrementAndGet();
+            return socket;
+        }
+
+        @Override
+        public String[] getDefaultCipherSuites() {
+            return factory.getDefaultCipherSuites();
+        }
+
+        @Override
+        public String[] getSupportedCipherSuites() {
+            return factory.getSupportedCipherSuites();
+        }
+
+        @Override
+        public Socket createSocket() throws IOException {
+            return count(factory.createSocket());
+        }
+
+        @Override
+        public Socket createSocket(Socket s, String host, int port, boolean autoClose) throws IOException {
+            return count(factory.createSocket(s, host, port, autoClose));
+        }
+
+        @Override
+        public Socket createSocket(String host, int port) throws IOException {
+            return count(factory.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+            return count(factory.createSocket(host, port, localHost, localPort));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress host, int port) throws IOException {
+            return count(factory.createSocket(host, port));
+        }
+
+        @Override
+        public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort)
+                throws IOException {
+            return count(factory.createSocket(address, port, localAddress, localPort));
+        }
+
+    }
+
+}
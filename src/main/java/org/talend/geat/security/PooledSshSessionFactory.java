@@ -0,0 +1,181 @@
+package org.talend.geat.security;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.jgit.errors.TransportException;
+import org.eclipse.jgit.transport.CredentialsProvider;
+import org.eclipse.jgit.transport.RemoteSession;
+import org.eclipse.jgit.transport.SshSessionFactory;
+import org.eclipse.jgit.transport.URIish;
+import org.eclipse.jgit.util.FS;
+
+/**
+ * Keeps the SSH sessions opened by another factory, one per user, host, port and credentials, for the whole process (a
+ * command, a batch or the daemon): JGit releases its session at the end of each transport call (ls-remote, fetch,
+ * push), which would otherwise cost a key exchange and an authentication each time. Each call still opens its own exec
+ * channel, multiplexed over the pooled session.
+ * 
+ * A pooled session that the server has closed since the previous call fails on exec: it is then replaced by a new one,
+ * authenticated with the credentials provider of the latest call (the previous ones may belong to a closed repository).
+ * 
+ * Sessions are only disconnected by closeAll(), or when the JVM exits.
+ */
+public class PooledSshSessionFactory extends SshSessionFactory {
+
+    // Opened sessions, by [user@host:port, credentials] lists (see getCredentialsKey()):
+    private static final Map<Object, PooledSession> sessions            = new HashMap<Object, PooledSession>();
+
+    private static int                              openedSessionsCount = 0;
+
+    private static int                              channelsCount       = 0;
+
+    private final SshSessionFactory                 factory;
+
+    /**
+     * @param factory
+     *            factory opening and authenticating the sessions
+     */
+    public PooledSshSessionFactory(SshSessionFactory factory) {
+        super();
+        this.factory = factory;
+    }
+
+    @Override
+    public RemoteSession getSession(URIish uri, CredentialsProvider credentialsProvider, FS fs, int tms)
+            throws TransportException {
+        Object key = Arrays.asList(uri.getUser() + "@" + uri.getHost() + ":" + uri.getPort(),
+                getCredentialsKey(credentialsProvider));
+        synchronized (sessions) {
+            PooledSession session = sessions.get(key);
+            if (session == null) {
+                session = new PooledSession(factory, uri, credentialsProvider, fs, tms);
+                sessions.put(key, session);
+            } else {
+                session.credentialsProvider = credentialsProvider;
+            }
+            return session;
+        }
+    }
+
+    /**
+     * @return what identifies the credentials of this provider: the credentials key of origin for geat's own providers
+     *         (resolved once per remote URL), the provider itself otherwise
+     */
+    private static Object getCredentialsKey(CredentialsProvider credentialsProvider) {
+        if (credentialsProvider instanceof DeferredCredentialsProvider) {
+            return "origin " + ((DeferredCredentialsProvider) credentialsProvider).getCredentialsKey();
+        }
+        return credentialsProvider;
+    }
+
+    @Override
+    public void releaseSession(RemoteSession session) {
+        // Kept for the next calls, see closeAll()
+    }
+
+    /**
+     * Disconnects all pooled sessions.
+     */
+    public static void closeAll() {
+        synchronized (sessions) {
+            for (PooledSession session : sessions.values()) {
+                session.close();
+            }
+            sessions.clear();
+        }
+    }
+
+    /**
+     * @return how many SSH sessions have been opened in this JVM
+     */
+    public static int getOpenedSessionsCount() {
+        synchronized (sessions) {
+            return openedSessionsCount;
+        }
+    }
+
+    /**
+     * @return how many exec channels have been opened over pooled sessions in this JVM
+     */
+    public static int getChannelsCount() {
+        synchronized (sessions) {
+            return channelsCount;
+        }
+    }
+
+    private static class PooledSession implements RemoteSession {
+
+        private final SshSessionFactory   factory;
+
+        private final URIish              uri;
+
+        // Provider of the latest call, used to open the session again:
+        private CredentialsProvider       credentialsProvider;
+
+        private final FS                  fs;
+
+        private final int                 tms;
+
+        private RemoteSession             session;
+
+        // True once an exec succeeded on the current session:
+        private boolean                   used;
+
+        public PooledSession(SshSessionFactory factory, URIish uri, CredentialsProvider credentialsProvider, FS fs,
+                int tms) throws TransportException {
+            super();
+            this.factory = factory;
+            this.uri = uri;
+            this.credentialsProvider = credentialsProvider;
+            this.fs = fs;
+            this.tms = tms;
+            open();
+        }
+
+        private void open() throws TransportException {
+            session = factory.getSession(uri, credentialsProvider, fs, tms);
+            used = false;
+            openedSessionsCount++;
+        }
+
+        public Process exec(String commandName, int timeout) throws IOException {
+            synchronized (sessions) {
+                channelsCount++;
+                if (session == null) {
+                    open();
+                }
+                try {
+                    Process process = session.exec(commandName, timeout);
+                    used = true;
+                    return process;
+                } catch (IOException e) {
+                    if (!used) {
+                        throw e;
+                    }
+                    // Closed by the server since the previous call
+                    close();
+                    open();
+                    Process process = session.exec(commandName, timeout);
+                    used = true;
+                    return process;
+                }
+            }
+        }
+
+        public void disconnect() {
+            // Owned by the pool, see closeAll()
+        }
+
+        public void close() {
+            if (session != null) {
+                factory.releaseSession(session);
+                session = null;
+            }
+        }
+
+    }
+
+}
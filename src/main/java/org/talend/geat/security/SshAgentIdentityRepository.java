@@ -0,0 +1,364 @@
+package org.talend.geat.security;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.talend.geat.Configuration;
+
+import com.google.common.base.Charsets;
+import com.jcraft.jsch.Identity;
+import com.jcraft.jsch.IdentityRepository;
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+
+/**
+ * Identities of the running ssh-agent (the one SSH_AUTH_SOCK points to): JSch lists the agent keys and has the agent
+ * sign with them, so private keys are neither read nor decrypted by geat and no passphrase is asked.
+ * 
+ * Java cannot open the agent Unix socket, requests are therefore sent through a connector process relaying its standard
+ * input and output to the socket, given by 'geat.sshAgent.connector' (socat by default, '%s' being replaced by the
+ * socket path). The connector is started on first request and kept for the next ones, until close().
+ * 
+ * Identities are listed once per SSH session (see install()), not each time JSch asks for them. An agent that does not
+ * answer within 'geat.sshAgent.timeout' milliseconds is not asked anymore: its connector is stopped, and sessions
+ * authenticate with the other identities.
+ * 
+ * Identities are managed with ssh-add: add() and remove() are refused.
+ */
+public class SshAgentIdentityRepository implements IdentityRepository {
+
+    // See the ssh-agent protocol:
+    protected static final int                FAILURE             = 5;
+
+    protected static final int                REQUEST_IDENTITIES  = 11;
+
+    protected static final int                IDENTITIES_ANSWER   = 12;
+
+    protected static final int                SIGN_REQUEST        = 13;
+
+    protected static final int                SIGN_RESPONSE       = 14;
+
+    private static SshAgentIdentityRepository instance;
+
+    private final String[]                    connector;
+
+    // Reads answers, so that requests can give up a connector that does not answer:
+    private final ExecutorService             reader;
+
+    private int                               timeout;
+
+    private Process                           process;
+
+    private DataInputStream                   in;
+
+    private OutputStream                      out;
+
+    // Identities listed by the last refresh(), null until then:
+    private Vector<Identity>                  identities;
+
+    private volatile boolean                  timedOut;
+
+    /**
+     * @param connector
+     *            command relaying its standard input and output to the agent
+     */
+    public SshAgentIdentityRepository(String... connector) {
+        super();
+        this.connector = connector;
+        this.timeout = Configuration.INSTANCE.getAsInt("geat.sshAgent.timeout");
+        this.reader = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "geat-ssh-agent");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * @return the repository of the agent SSH_AUTH_SOCK points to, null if this variable is not set
+     */
+    public static synchronized SshAgentIdentityRepository getInstance() {
+        String socket = System.getenv("SSH_AUTH_SOCK");
+        if (instance == null && socket != null) {
+            String[] connector = Configuration.INSTANCE.getAsString("geat.sshAgent.connector").split(" ");
+            for (int i = 0; i < connector.length; i++) {
+                connector[i] = String.format(connector[i], socket);
+            }
+            instance = new SshAgentIdentityRepository(connector);
+        }
+        return instance;
+    }
+
+    /**
+     * Makes sessions of this JSch authenticate through the running ssh-agent, if it holds identities.
+     * 
+     * @return false if there is no usable agent, the identities of the JSch are then unchanged
+     */
+    public static boolean install(JSch jsch) throws JSchException {
+        SshAgentIdentityRepository agent = getInstance();
+        if (agent == null) {
+            return false;
+        }
+        // ssh-add may have changed them since the previous session:
+        agent.refresh();
+        if (!agent.isAvailable()) {
+            return false;
+        }
+        jsch.setIdentityRepository(agent);
+        return true;
+    }
+
+    /**
+     * @return true if the agent answers and holds at least one identity
+     */
+    public boolean isAvailable() {
+        return !getIdentities().isEmpty();
+    }
+
+    public synchronized Vector<Identity> getIdentities() {
+        if (identities == null) {
+            refresh();
+        }
+        return new Vector<Identity>(identities);
+    }
+
+    /**
+     * Lists the identities of the agent again.
+     */
+    public synchronized void refresh() {
+        identities = new Vector<Identity>();
+        try {
+            DataInputStream answer = request(REQUEST_IDENTITIES, new byte[0]);
+            if (answer.readUnsignedByte() != IDENTITIES_ANSWER) {
+                return;
+            }
+            int count = answer.readInt();
+            for (int i = 0; i < count; i++) {
+                byte[] blob = readString(answer);
+                identities.add(new AgentIdentity(blob, new String(readString(answer), Charsets.UTF_8)));
+            }
+        } catch (IOException e) {
+            // No agent, or not reachable
+        }
+    }
+
+    public boolean add(byte[] identity) {
+        return false;
+    }
+
+    public boolean remove(byte[] blob) {
+        return false;
+    }
+
+    public void removeAll() {
+        // Managed with ssh-add
+    }
+
+    /**
+     * @return the signature of these data by the key of this blob, in SSH format, null if the agent refused
+     */
+    protected byte[] sign(byte[] blob, byte[] data) {
+        try {
+            SshBuffer payload = new SshBuffer();
+            payload.writeString(blob);
+            payload.writeString(data);
+            payload.writeInt(0);
+            DataInputStream answer = request(SIGN_REQUEST, payload.toByteArray());
+            if (answer.readUnsignedByte() != SIGN_RESPONSE) {
+                return null;
+            }
+            return readString(answer);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Sends a message to the agent through the connector, started if needed. The connector is stopped if it fails or
+     * does not answer in time.
+     * 
+     * @return the answer, starting with its type
+     */
+    protected synchronized DataInputStream request(int type, byte[] payload) throws IOException {
+        if (timedOut) {
+            throw new IOException("ssh-agent did not answer within " + timeout + "ms");
+        }
+        if (process == null) {
+            startConnector();
+        }
+        try {
+            SshBuffer message = new SshBuffer();
+            message.writeInt(payload.length + 1);
+            message.writeByte(type);
+            message.write(payload);
+            out.write(message.toByteArray());
+            out.flush();
+
+            final DataInputStream current = in;
+            Future<byte[]> answer = reader.submit(new Callable<byte[]>() {
+
+                public byte[] call() throws IOException {
+                    byte[] answer = new byte[current.readInt()];
+                    current.readFully(answer);
+                    return answer;
+                }
+            });
+            return new DataInputStream(new ByteArrayInputStream(answer.get(timeout, TimeUnit.MILLISECONDS)));
+        } catch (IOException e) {
+            close();
+            throw e;
+        } catch (ExecutionException e) {
+            close();
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        } catch (TimeoutException e) {
+            // The reader stays blocked until the connector output is closed, it is not used anymore
+            timedOut = true;
+            close();
+            throw new IOException("ssh-agent did not answer within " + timeout + "ms");
+        } catch (InterruptedException e) {
+            close();
+            throw new IOException(e);
+        }
+    }
+
+    private void startConnector() throws IOException {
+        process = new ProcessBuilder(connector).start();
+        in = new DataInputStream(process.getInputStream());
+        out = process.getOutputStream();
+
+        // Its errors are not read otherwise, and a full pipe would block it:
+        final InputStream errors = process.getErrorStream();
+        Thread drain = new Thread("geat-ssh-agent-stderr") {
+
+            @Override
+            public void run() {
+                byte[] buffer = new byte[1024];
+                try {
+                    while (errors.read(buffer) >= 0) {
+                        // Ignored
+                    }
+                } catch (IOException e) {
+                    // Connector stopped
+                }
+            }
+        };
+        drain.setDaemon(true);
+        drain.start();
+    }
+
+    /**
+     * Stops the connector, if started. The next request starts a new one.
+     */
+    public synchronized void close() {
+        if (process != null) {
+            process.destroy();
+            process = null;
+            in = null;
+            out = null;
+        }
+    }
+
+    /**
+     * @param timeout
+     *            milliseconds to wait for an answer of the agent, see 'geat.sshAgent.timeout'
+     */
+    public void setTimeout(int timeout) {
+        this.timeout = timeout;
+    }
+
+    protected static byte[] readString(DataInputStream in) throws IOException {
+        byte[] value = new byte[in.readInt()];
+        in.readFully(value);
+        return value;
+    }
+
+    /**
+     * Writes SSH wire format values: uint32 are big-endian and strings are prefixed with their length.
+     */
+    protected static class SshBuffer extends DataOutputStream {
+
+        public SshBuffer() {
+            super(new ByteArrayOutputStream());
+        }
+
+        public void writeString(byte[] value) throws IOException {
+            writeInt(value.length);
+            write(value);
+        }
+
+        public byte[] toByteArray() {
+            return ((ByteArrayOutputStream) out).toByteArray();
+        }
+
+    }
+
+    /**
+     * A key of the agent: JSch only sees its public part, signatures are made by the agent.
+     */
+    private class AgentIdentity implements Identity {
+
+        private final byte[] blob;
+
+        private final String comment;
+
+        public AgentIdentity(byte[] blob, String comment) {
+            super();
+            this.blob = blob;
+            this.comment = comment;
+        }
+
+        public boolean setPassphrase(byte[] passphrase) throws JSchException {
+            return true;
+        }
+
+        public byte[] getPublicKeyBlob() {
+            return blob;
+        }
+
+        public byte[] getSignature(byte[] data) {
+            return sign(blob, data);
+        }
+
+        public boolean decrypt() {
+            return true;
+        }
+
+        public String getAlgName() {
+            try {
+                return new String(readString(new DataInputStream(new ByteArrayInputStream(blob))), Charsets.UTF_8);
+            } catch (IOException e) {
+                return "";
+            }
+        }
+
+        public String getName() {
+            return comment;
+        }
+
+        public boolean isEncrypted() {
+            return false;
+        }
+
+        public void clear() {
+            // Nothing kept
+        }
+
+    }
+
+}
@@ -0,0 +1,75 @@
+package org.talend.geat;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+public class DirtyCheckTest {
+
+    @Test
+    public void testClean() throws GitAPIException, IOException {
+        Git git = JUnitUtils.createTempRepo();
+        JUnitUtils.createInitialCommit(git, "file1");
+        Assert.assertNull(DirtyCheck.findFirstChange(git.getRepository()));
+    }
+
+    @Test
+    public void testUntrackedOnly() throws GitAPIException, IOException {
+        Git git = JUnitUtils.createTempRepo();
+        JUnitUtils.createInitialCommit(git, "file1");
+        File root = git.getRepository().getWorkTree();
+        Files.write("untracked", new File(root, "file2"), Charsets.UTF_8);
+        File output = new File(root, "target/classes/Some.class");
+        Files.createParentDirs(output);
+        Files.write("untracked", output, Charsets.UTF_8);
+
+        Assert.assertFalse(git.status().call().hasUncommittedChanges());
+        Assert.assertNull(DirtyCheck.findFirstChange(git.getRepository()));
+    }
+
+    @Test
+    public void testModified() throws GitAPIException, IOException {
+        Git git = JUnitUtils.createTempRepo();
+        JUnitUtils.createInitialCommit(git, "file1");
+        new File(git.getRepository().getWorkTree(), "dir").mkdir();
+        File file2 = JUnitUtils.createInitialCommit(git, "dir/file2");
+        Files.write("changed", file2, Charsets.UTF_8);
+        Assert.assertEquals("dir/file2", DirtyCheck.findFirstChange(git.getRepository()));
+
+        // Staged:
+        git.add().addFilepattern("dir/file2").call();
+        Assert.assertEquals("dir/file2", DirtyCheck.findFirstChange(git.getRepository()));
+    }
+
+    @Test
+    public void testAdded() throws GitAPIException, IOException {
+        Git git = JUnitUtils.createTempRepo();
+        File file1 = new File(git.getRepository().getWorkTree(), "file1");
+        file1.createNewFile();
+        git.add().addFilepattern("file1").call();
+
+        // No HEAD yet:
+        Assert.assertEquals("file1", DirtyCheck.findFirstChange(git.getRepository()));
+    }
+
+    @Test
+    public void testMissingAndRemoved() throws GitAPIException, IOException {
+        Git git = JUnitUtils.createTempRepo();
+        JUnitUtils.createInitialCommit(git, "file1");
+        new File(git.getRepository().getWorkTree(), "dir").mkdir();
+        File file2 = JUnitUtils.createInitialCommit(git, "dir/file2");
+        file2.delete();
+        Assert.assertEquals("dir/file2", DirtyCheck.findFirstChange(git.getRepository()));
+
+        git.rm().addFilepattern("dir/file2").call();
+        Assert.assertEquals("dir/file2", DirtyCheck.findFirstChange(git.getRepository()));
+    }
+
+}
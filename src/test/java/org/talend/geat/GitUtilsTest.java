@@ -3,13 +3,17 @@ package org.talend.geat;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.api.errors.RefNotFoundException;
+import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.transport.RemoteRefUpdate;
+import org.eclipse.jgit.util.FileUtils;
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
@@ -49,6 +53,26 @@ public class GitUtilsTest {
         Assert.assertEquals(expected, listBranches);
     }
 
+    @Test
+    public void testListNewerLines() throws IOException, GitAPIException {
+        Git git = JUnitUtils.createTempRepo();
+        createInitialCommit(git, "myFile");
+        for (String line : new String[] { "maintenance/5.10", "maintenance/5.4", "maintenance/5.3", "release/5.4.10",
+                "release/5.4.2", "release/5.5.0", "release/5.05.0", "maintenance/tagada" }) {
+            git.branchCreate().setName(line).call();
+        }
+        RepositoryContext context = new RepositoryContext(git.getRepository());
+
+        // Same version ordered by name, unversioned maintenance/tagada skipped:
+        Assert.assertEquals(Arrays.asList("release/5.4.2", "release/5.4.10", "maintenance/5.4", "release/5.05.0",
+                "release/5.5.0", "maintenance/5.10", "master"), GitUtils.listNewerLines(context, "release/5.4.1"));
+        Assert.assertEquals(Arrays.asList("release/5.05.0", "release/5.5.0", "maintenance/5.10", "master"),
+                GitUtils.listNewerLines(context, "maintenance/5.4"));
+        Assert.assertEquals(Arrays.asList("master"), GitUtils.listNewerLines(context, "maintenance/5.10"));
+        Assert.assertEquals(Arrays.asList("master"), GitUtils.listNewerLines(context, "maintenance/tagada"));
+        Assert.assertTrue(GitUtils.listNewerLines(context, "master").isEmpty());
+    }
+
     @Test
     public void testHasRemoteBasic() throws IOException, GitAPIException {
         Git git = JUnitUtils.createTempRepo();
@@ -104,6 +128,42 @@ public class GitUtilsTest {
         return git;
     }
 
+    @Test
+    public void testPushExpecting() throws GitAPIException, IOException, IncorrectRepositoryStateException {
+        Git remote = JUnitUtils.createTempRepo();
+        createInitialCommit(remote, "file1");
+        Git git = Git.cloneRepository().setURI(remote.getRepository().getWorkTree().getAbsolutePath())
+                .setDirectory(Files.createTempDir()).call();
+        git.branchCreate().setName("theBranch").call();
+        RepositoryContext context = new RepositoryContext(git.getRepository());
+
+        RemoteRefUpdate update = GitUtils.pushExpecting(context, "theBranch", false, ObjectId.zeroId());
+        Assert.assertEquals(RemoteRefUpdate.Status.OK, update.getStatus());
+        ObjectId pushed = remote.getRepository().resolve("theBranch");
+        Assert.assertEquals(pushed, git.getRepository().resolve("origin/theBranch"));
+
+        // Create only:
+        git.checkout().setName("theBranch").call();
+        createInitialCommit(git, "file2");
+        update = GitUtils.pushExpecting(context, "theBranch", false, ObjectId.zeroId());
+        Assert.assertEquals(RemoteRefUpdate.Status.REJECTED_REMOTE_CHANGED, update.getStatus());
+        Assert.assertEquals(pushed, remote.getRepository().resolve("theBranch"));
+        try {
+            GitUtils.checkPushed(update);
+            Assert.fail();
+        } catch (IncorrectRepositoryStateException e) {
+            Assert.assertEquals("Origin refused to update 'theBranch' (REJECTED_REMOTE_CHANGED).", e.getMessage());
+        }
+
+        // Delete only if not updated meanwhile:
+        update = GitUtils.pushExpecting(context, "theBranch", true, git.getRepository().resolve("theBranch"));
+        Assert.assertEquals(RemoteRefUpdate.Status.REJECTED_REMOTE_CHANGED, update.getStatus());
+        update = GitUtils.pushExpecting(context, "theBranch", true, pushed);
+        Assert.assertEquals(RemoteRefUpdate.Status.OK, update.getStatus());
+        Assert.assertNull(remote.getRepository().getRef("theBranch"));
+        Assert.assertNull(git.getRepository().getRef("origin/theBranch"));
+    }
+
     private void createInitialCommit(Git git, String fileName) throws IOException, GitAPIException {
         File aFile = new File(git.getRepository().getDirectory().getAbsoluteFile().getParentFile(), fileName);
         aFile.createNewFile();
@@ -169,6 +229,118 @@ public class GitUtilsTest {
         Assert.assertTrue(file2.exists());
     }
 
+    @Test
+    public void testCallFetchUpToDate() throws GitAPIException, IOException, IncorrectRepositoryStateException {
+        Git remote = JUnitUtils.createTempRepo();
+        createInitialCommit(remote, "file1");
+        remote.branchCreate().setName("theBranch").call();
+
+        File tempDir = Files.createTempDir();
+        Git.cloneRepository().setDirectory(tempDir).setRemote("origin")
+                .setURI(remote.getRepository().getDirectory().getParentFile().getAbsolutePath()).call();
+
+        Git git = Git.open(tempDir);
+        System.setProperty("user.dir", tempDir.getAbsolutePath());
+        RepositoryContext context = new RepositoryContext(git.getRepository());
+        Assert.assertTrue(context.isRemoteTrackingUpToDate("theBranch"));
+
+        // origin is not contacted anymore once its branches are known:
+        FileUtils.delete(remote.getRepository().getDirectory().getParentFile(), FileUtils.RECURSIVE);
+        Assert.assertTrue(GitUtils.hasRemoteBranch(context, "theBranch"));
+        Assert.assertTrue(GitUtils.callFetch(context, "theBranch"));
+        Assert.assertTrue(GitUtils.hasLocalBranch(git.getRepository(), "theBranch"));
+    }
+
+    @Test
+    public void testCallFetchAll() throws GitAPIException, IOException, IncorrectRepositoryStateException {
+        Git remote = JUnitUtils.createTempRepo();
+        createInitialCommit(remote, "file1");
+        remote.branchCreate().setName("theBranch").call();
+
+        File tempDir = Files.createTempDir();
+        Git.cloneRepository().setDirectory(tempDir).setRemote("origin")
+                .setURI(remote.getRepository().getDirectory().getParentFile().getAbsolutePath()).call();
+        Git git = Git.open(tempDir);
+        System.setProperty("user.dir", tempDir.getAbsolutePath());
+
+        createInitialCommit(remote, "file2");
+        remote.checkout().setName("theBranch").call();
+        createInitialCommit(remote, "file3");
+
+        RepositoryContext context = new RepositoryContext(git.getRepository());
+        Assert.assertEquals(2, GitUtils.callFetchAll(context, "master", "theBranch", "noSuchBranch"));
+        Assert.assertEquals(remote.getRepository().resolve("master"), git.getRepository().resolve("master"));
+        Assert.assertEquals(remote.getRepository().resolve("theBranch"), git.getRepository().resolve("theBranch"));
+
+        // Now up to date:
+        context = new RepositoryContext(git.getRepository());
+        Assert.assertEquals(0, GitUtils.callFetchAll(context, "master", "theBranch"));
+
+        // Branch that is not the current one is fast-forwarded without checkout:
+        createInitialCommit(remote, "file4");
+        context = new RepositoryContext(git.getRepository());
+        Assert.assertEquals(1, GitUtils.callFetchAll(context, "master", "theBranch"));
+        Assert.assertEquals(remote.getRepository().resolve("theBranch"), git.getRepository().resolve("theBranch"));
+        Assert.assertEquals("master", git.getRepository().getBranch());
+        Assert.assertFalse(new File(tempDir, "file3").exists());
+        Assert.assertFalse(new File(tempDir, "file4").exists());
+    }
+
+    @Test
+    public void testStartBranch() throws GitAPIException, IOException, IncorrectRepositoryStateException {
+        Git remote = JUnitUtils.createTempRepo();
+        createInitialCommit(remote, "file1");
+        remote.branchCreate().setName("maintenance/1.0").call();
+
+        File tempDir = Files.createTempDir();
+        Git.cloneRepository().setDirectory(tempDir).setRemote("origin")
+                .setURI(remote.getRepository().getDirectory().getParentFile().getAbsolutePath()).call();
+        Git git = Git.open(tempDir);
+        System.setProperty("user.dir", tempDir.getAbsolutePath());
+
+        createInitialCommit(remote, "file2");
+        remote.checkout().setName("maintenance/1.0").call();
+        createInitialCommit(remote, "file3");
+
+        // Current start point is behind origin: new branch is based on origin, then start point is fast-forwarded
+        RepositoryContext context = new RepositoryContext(git.getRepository());
+        Assert.assertTrue(GitUtils.startBranch(context, "master", "feature/f1"));
+        Assert.assertEquals("feature/f1", git.getRepository().getBranch());
+        Assert.assertEquals(remote.getRepository().resolve("master"), git.getRepository().resolve("feature/f1"));
+        Assert.assertEquals(remote.getRepository().resolve("master"), git.getRepository().resolve("master"));
+        Assert.assertNull(git.getRepository().getConfig().getString("branch", "feature/f1", "merge"));
+        Assert.assertTrue(new File(tempDir, "file2").exists());
+
+        // Start point does not exist locally: created from origin, not checked out
+        context = new RepositoryContext(git.getRepository());
+        Assert.assertTrue(GitUtils.startBranch(context, "maintenance/1.0", "bugfix/1.0/b1"));
+        Assert.assertEquals("bugfix/1.0/b1", git.getRepository().getBranch());
+        Assert.assertEquals(remote.getRepository().resolve("maintenance/1.0"),
+                git.getRepository().resolve("bugfix/1.0/b1"));
+        Assert.assertEquals(remote.getRepository().resolve("maintenance/1.0"),
+                git.getRepository().resolve("maintenance/1.0"));
+        Assert.assertTrue(new File(tempDir, "file3").exists());
+        Assert.assertFalse(new File(tempDir, "file2").exists());
+
+        // Local start point has its own commits: they are kept
+        git.checkout().setName("master").call();
+        createInitialCommit(git, "file4");
+        context = new RepositoryContext(git.getRepository());
+        Assert.assertFalse(GitUtils.startBranch(context, "master", "feature/f2"));
+        Assert.assertEquals(git.getRepository().resolve("master"), git.getRepository().resolve("feature/f2"));
+        Assert.assertTrue(new File(tempDir, "file4").exists());
+
+        // Updating start point can be disabled:
+        createInitialCommit(remote, "file5");
+        context = new RepositoryContext(git.getRepository());
+        context.getConfiguration().set("updateLocalStartPoint", "false");
+        Assert.assertFalse(GitUtils.startBranch(context, "maintenance/1.0", "bugfix/1.0/b2"));
+        Assert.assertEquals(remote.getRepository().resolve("maintenance/1.0"),
+                git.getRepository().resolve("bugfix/1.0/b2"));
+        Assert.assertNotEquals(remote.getRepository().resolve("maintenance/1.0"),
+                git.getRepository().resolve("maintenance/1.0"));
+    }
+
     @Test
     public void testCallFetchWithLocalNoOtherBranches() throws GitAPIException, IOException,
             IncorrectRepositoryStateException {
@@ -0,0 +1,110 @@
+package org.talend.geat;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.util.FS;
+import org.junit.Assert;
+import org.junit.Test;
+import org.talend.geat.SanityCheck.CheckLevel;
+import org.talend.geat.exception.IncorrectRepositoryStateException;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.io.Files;
+
+public class IndexRefreshTest {
+
+    private static final int FILES     = 200;
+
+    private static final int FILE_SIZE = 10000;
+
+    @Test
+    public void testRefresh() throws GitAPIException, IOException, IncorrectRepositoryStateException {
+        Git git = createRepo();
+        smudgeIndex(git.getRepository());
+
+        // Every file is hashed, by every check, until the index is written again:
+        Assert.assertEquals(FILES * FILE_SIZE, hashedBySanityCheck(git.getRepository()));
+        Assert.assertEquals(FILES * FILE_SIZE, hashedBySanityCheck(git.getRepository()));
+
+        Assert.assertEquals(FILES, IndexRefresh.refresh(git.getRepository()));
+        Assert.assertEquals(0, hashedBySanityCheck(git.getRepository()));
+        Assert.assertEquals(0, IndexRefresh.refresh(git.getRepository()));
+    }
+
+    @Test
+    public void testRefreshAfterCheckout() throws GitAPIException, IOException, IncorrectRepositoryStateException {
+        Git git = createRepo();
+        File root = git.getRepository().getWorkTree();
+        git.checkout().setCreateBranch(true).setName("feature/feature1").call();
+        for (int i = 0; i < FILES; i++) {
+            write(root, "dir" + (i % 10) + "/file" + i + ".txt", Strings.repeat("b", FILE_SIZE));
+        }
+        git.commit().setAll(true).setMessage("Changes").call();
+        git.checkout().setName("master").call();
+
+        RepositoryContext context = new RepositoryContext(git.getRepository());
+        GitUtils.checkout(context, "feature/feature1");
+        context.close();
+
+        Assert.assertEquals("feature/feature1", git.getRepository().getBranch());
+        Assert.assertEquals(0, hashedBySanityCheck(git.getRepository()));
+    }
+
+    @Test
+    public void testModifiedStaySmudged() throws GitAPIException, IOException, IncorrectRepositoryStateException {
+        Git git = createRepo();
+        smudgeIndex(git.getRepository());
+        File root = git.getRepository().getWorkTree();
+        write(root, "dir1/file1.txt", Strings.repeat("b", FILE_SIZE));
+
+        Assert.assertEquals(FILES - 1, IndexRefresh.refresh(git.getRepository()));
+        Assert.assertEquals("dir1/file1.txt", DirtyCheck.findFirstChange(git.getRepository()));
+    }
+
+    private static Git createRepo() throws GitAPIException, IOException {
+        Git git = JUnitUtils.createTempRepo();
+        File root = git.getRepository().getWorkTree();
+        for (int i = 0; i < FILES; i++) {
+            write(root, "dir" + (i % 10) + "/file" + i + ".txt", Strings.repeat("a", FILE_SIZE));
+        }
+        git.add().addFilepattern(".").call();
+        git.commit().setMessage("Initial commit").call();
+        return git;
+    }
+
+    /**
+     * Marks every entry as racily clean, as an index written in the same second as its files is.
+     */
+    private static void smudgeIndex(Repository repository) throws IOException {
+        // Without repository, smudged entries are not verified again when writing
+        DirCache dirCache = DirCache.lock(repository.getIndexFile(), FS.DETECTED);
+        try {
+            for (int i = 0; i < dirCache.getEntryCount(); i++) {
+                dirCache.getEntry(i).smudgeRacilyClean();
+            }
+            dirCache.write();
+            Assert.assertTrue(dirCache.commit());
+        } finally {
+            dirCache.unlock();
+        }
+    }
+
+    private static long hashedBySanityCheck(Repository repository) throws IncorrectRepositoryStateException {
+        long before = WorkTreeStatus.getHashedBytesCount();
+        SanityCheck.check(new RepositoryContext(repository), CheckLevel.NO_UNCOMMITTED_CHANGES);
+        return WorkTreeStatus.getHashedBytesCount() - before;
+    }
+
+    private static void write(File root, String path, String content) throws IOException {
+        File file = new File(root, path);
+        Files.createParentDirs(file);
+        Files.write(content, file, Charsets.UTF_8);
+    }
+
+}
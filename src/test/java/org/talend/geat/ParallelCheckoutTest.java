@@ -0,0 +1,98 @@
+package org.talend.geat;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.CheckoutConflictException;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.Assert;
+import org.junit.Test;
+import org.talend.geat.exception.IncorrectRepositoryStateException;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+public class ParallelCheckoutTest {
+
+    @Test
+    public void testCheckout() throws GitAPIException, IOException {
+        Git git = JUnitUtils.createTempRepo();
+        File root = git.getRepository().getWorkTree();
+        for (int i = 0; i < 1000; i++) {
+            write(root, "dir" + (i % 10) + "/file" + i + ".txt", "content of file " + i);
+        }
+        write(root, "removed/file.txt", "removed");
+        git.add().addFilepattern(".").call();
+        git.commit().setMessage("Initial commit").call();
+        ObjectId headTree = git.getRepository().resolve("HEAD^{tree}");
+
+        git.checkout().setCreateBranch(true).setName("maintenance/1.0").call();
+        for (int i = 0; i < 1000; i += 2) {
+            write(root, "dir" + (i % 10) + "/file" + i + ".txt", "changed " + i);
+        }
+        write(root, "added/sub/file.txt", "added");
+        git.rm().addFilepattern("removed/file.txt").call();
+        git.add().addFilepattern(".").call();
+        git.commit().setMessage("Changes").call();
+        ObjectId newTree = git.getRepository().resolve("HEAD^{tree}");
+        git.checkout().setName("master").call();
+        File unchanged = new File(root, "dir1/file1.txt");
+        unchanged.setLastModified(1000000000000L);
+
+        DirCache dirCache = git.getRepository().lockDirCache();
+        ParallelCheckout checkout = new ParallelCheckout(git.getRepository(), headTree, dirCache, newTree, 4);
+        try {
+            checkout.checkout();
+        } finally {
+            dirCache.unlock();
+        }
+
+        Assert.assertEquals(501, checkout.getWritten());
+        Assert.assertEquals("changed 998", Files.toString(new File(root, "dir8/file998.txt"), Charsets.UTF_8));
+        Assert.assertEquals("added", Files.toString(new File(root, "added/sub/file.txt"), Charsets.UTF_8));
+        Assert.assertFalse(new File(root, "removed").exists());
+        Assert.assertEquals(1000000000000L, unchanged.lastModified());
+
+        // Index matches the new tree, with correct stat data:
+        git.getRepository().updateRef("HEAD").link("refs/heads/maintenance/1.0");
+        Assert.assertTrue(git.status().call().isClean());
+        Assert.assertNull(DirtyCheck.findFirstChange(git.getRepository()));
+    }
+
+    @Test
+    public void testCheckoutConflict() throws GitAPIException, IOException, IncorrectRepositoryStateException {
+        Git git = JUnitUtils.createTempRepo();
+        File file1 = JUnitUtils.createInitialCommit(git, "file1");
+        git.checkout().setCreateBranch(true).setName("feature/feature1").call();
+        Files.write("feature", file1, Charsets.UTF_8);
+        git.commit().setAll(true).setMessage("On feature").call();
+        git.checkout().setName("master").call();
+        Files.write("local change", file1, Charsets.UTF_8);
+
+        RepositoryContext context = new RepositoryContext(git.getRepository());
+        context.getConfiguration().set("checkoutThreads", "4");
+        try {
+            GitUtils.checkout(context, "feature/feature1");
+            Assert.fail("Local change should not be overwritten");
+        } catch (CheckoutConflictException e) {
+            Assert.assertEquals("file1", e.getConflictingPaths().get(0));
+        }
+        Assert.assertEquals("master", git.getRepository().getBranch());
+        Assert.assertEquals("local change", Files.toString(file1, Charsets.UTF_8));
+
+        Files.write("", file1, Charsets.UTF_8);
+        GitUtils.checkout(context, "feature/feature1");
+        Assert.assertEquals("feature/feature1", git.getRepository().getBranch());
+        Assert.assertEquals("feature", Files.toString(file1, Charsets.UTF_8));
+    }
+
+    private static void write(File root, String path, String content) throws IOException {
+        File file = new File(root, path);
+        Files.createParentDirs(file);
+        Files.write(content, file, Charsets.UTF_8);
+    }
+
+}
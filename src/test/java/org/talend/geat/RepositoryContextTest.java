@@ -0,0 +1,93 @@
+package org.talend.geat;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.talend.geat.SanityCheck.CheckLevel;
+import org.talend.geat.commands.CommandsRegistry;
+import org.talend.geat.exception.IllegalCommandArgumentException;
+import org.talend.geat.exception.IncorrectRepositoryStateException;
+import org.talend.geat.exception.InterruptedCommandException;
+import org.talend.geat.io.DoNothingWriter;
+
+import com.google.common.io.Files;
+
+public class RepositoryContextTest {
+
+    @Test
+    public void testFeatureStartOpensRepositoryOnce() throws GitAPIException, IOException,
+            IllegalCommandArgumentException, IncorrectRepositoryStateException, InterruptedCommandException {
+        Git git = JUnitUtils.createTempRepo();
+        JUnitUtils.createInitialCommit(git, "file1");
+
+        int before = GitUtils.getOpenedRepositoriesCount();
+        CommandsRegistry.INSTANCE.getCommand("feature-start").parseArgs(new String[] { "feature-start", "tagada" })
+                .setWriter(new DoNothingWriter()).run();
+        Assert.assertEquals(1, GitUtils.getOpenedRepositoriesCount() - before);
+        Assert.assertTrue(GitUtils.hasLocalBranch(git.getRepository(), "feature/tagada"));
+    }
+
+    @Test
+    public void testFeatureFinishRemoteOpensRepositoryOnce() throws GitAPIException, IOException,
+            IllegalCommandArgumentException, IncorrectRepositoryStateException, InterruptedCommandException {
+        Git remote = JUnitUtils.createTempRepo();
+        JUnitUtils.createInitialCommit(remote, "file1");
+        remote.branchCreate().setName("feature/feature1").call();
+        remote.checkout().setName("feature/feature1").call();
+        JUnitUtils.createInitialCommit(remote, "file2");
+        remote.checkout().setName("master").call();
+
+        File tempDir = Files.createTempDir();
+        Git.cloneRepository().setDirectory(tempDir).setRemote("origin")
+                .setURI(remote.getRepository().getDirectory().getParentFile().getAbsolutePath()).call();
+        Git git = Git.open(tempDir);
+        System.setProperty("user.dir", tempDir.getAbsolutePath());
+
+        int before = GitUtils.getOpenedRepositoriesCount();
+        int listingsBefore = RepositoryContext.getRemoteListingsCount();
+        CommandsRegistry.INSTANCE.getCommand("feature-finish")
+                .parseArgs(new String[] { "feature-finish", "feature1", "rebase" }).setWriter(new DoNothingWriter())
+                .run();
+        Assert.assertEquals(1, GitUtils.getOpenedRepositoriesCount() - before);
+        // Branches of origin are listed once, for all fetches and the deletion of the remote branch:
+        Assert.assertEquals(1, RepositoryContext.getRemoteListingsCount() - listingsBefore);
+        Assert.assertFalse(GitUtils.hasLocalBranch(git.getRepository(), "feature/feature1"));
+        Assert.assertFalse(GitUtils.hasRemoteBranch(git.getRepository(), "feature/feature1"));
+    }
+
+    @Test
+    public void testBugfixFinishGuessedTargetOpensRepositoryOnce() throws GitAPIException, IOException,
+            IllegalCommandArgumentException, IncorrectRepositoryStateException, InterruptedCommandException {
+        Git git = JUnitUtils.createTempRepo();
+        JUnitUtils.createInitialCommit(git, "file1");
+        git.branchCreate().setName("maintenance/1.0").call();
+        git.checkout().setCreateBranch(true).setName("bugfix/1.0/tagada").setStartPoint("maintenance/1.0").call();
+        JUnitUtils.createInitialCommit(git, "file2");
+
+        int before = GitUtils.getOpenedRepositoriesCount();
+        CommandsRegistry.INSTANCE.getCommand("bugfix-finish")
+                .parseArgs(new String[] { "bugfix-finish", "tagada", "rebase" })
+                .setWriter(new DoNothingWriter()).run();
+        Assert.assertEquals(1, GitUtils.getOpenedRepositoriesCount() - before);
+        Assert.assertFalse(GitUtils.hasLocalBranch(git.getRepository(), "bugfix/1.0/tagada"));
+    }
+
+    @Test
+    public void testChecked() {
+        RepositoryContext context = new RepositoryContext(null);
+        Assert.assertFalse(context.isChecked(CheckLevel.GIT_REPO_ONLY));
+
+        context.setChecked(CheckLevel.NO_UNCOMMITTED_CHANGES);
+        Assert.assertTrue(context.isChecked(CheckLevel.GIT_REPO_ONLY));
+        Assert.assertTrue(context.isChecked(CheckLevel.NO_UNCOMMITTED_CHANGES));
+
+        // A weaker check does not lower what has been checked:
+        context.setChecked(CheckLevel.GIT_REPO_ONLY);
+        Assert.assertTrue(context.isChecked(CheckLevel.NO_UNCOMMITTED_CHANGES));
+    }
+
+}
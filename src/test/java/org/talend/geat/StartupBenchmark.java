@@ -0,0 +1,100 @@
+package org.talend.geat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+
+import com.google.common.base.Joiner;
+import com.google.common.io.ByteStreams;
+
+/**
+ * Measures the startup of geat commands, each one in a new JVM as from the command line: time to the first byte of
+ * output, and time to exit. Commands are run without daemon, in a small synthetic repository.
+ * 
+ * Not a JUnit test. Package the jar, then run it from the test classpath, for example:
+ * 
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.talend.geat.StartupBenchmark -Dexec.args="target/GitEasyAtTalend-0.3.2-SNAPSHOT.jar 10"
+ * </pre>
+ * 
+ * Arguments are the jar (or classpath) to run, the number of runs (best time is kept), and JVM options to add, for
+ * example -XX:SharedArchiveFile=target/geat.jsa to compare with the class data sharing archive of the appcds profile.
+ */
+public class StartupBenchmark {
+
+    private static final String[][] COMMANDS = { { "help" }, { "version" }, { "feature-start" },
+            { "feature-finish" }, { "feature-start", "startup" } };
+
+    public static void main(String[] args) throws Exception {
+        String classpath = new File(args[0]).getAbsolutePath();
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        List<String> jvmOptions = Arrays.asList(args).subList(Math.min(2, args.length), args.length);
+
+        File repository = createRepository();
+        System.out.println("Repository " + repository + ", JVM options " + jvmOptions);
+
+        System.out.println("command                         first output (ms)    exit (ms)");
+        for (String[] command : COMMANDS) {
+            long bestFirst = Long.MAX_VALUE;
+            long bestExit = Long.MAX_VALUE;
+            for (int i = 0; i < runs; i++) {
+                String[] commandArgs = command;
+                if (command.length > 1) {
+                    // A new branch each time:
+                    commandArgs = new String[] { command[0], command[1] + i };
+                }
+                long[] times = measure(repository, classpath, jvmOptions, commandArgs);
+                bestFirst = Math.min(bestFirst, times[0]);
+                bestExit = Math.min(bestExit, times[1]);
+            }
+            System.out.println(String.format("%-30s %18d %12d", Joiner.on(' ').join(command), bestFirst, bestExit));
+        }
+    }
+
+    private static File createRepository() throws GitAPIException, IOException {
+        Git git = JUnitUtils.createTempRepo();
+        JUnitUtils.createInitialCommit(git, "file1");
+        File root = git.getRepository().getWorkTree();
+        git.getRepository().close();
+        return root;
+    }
+
+    /**
+     * @return time to the first byte of output, and time to exit, in ms
+     */
+    private static long[] measure(File repository, String classpath, List<String> jvmOptions, String[] args)
+            throws IOException, InterruptedException {
+        List<String> commandLine = new ArrayList<String>();
+        commandLine.add(new File(System.getProperty("java.home"), "bin/java").getAbsolutePath());
+        commandLine.addAll(jvmOptions);
+        commandLine.add("-cp");
+        commandLine.add(classpath);
+        commandLine.add(GeatMain.class.getName());
+        commandLine.addAll(Arrays.asList(args));
+
+        ProcessBuilder builder = new ProcessBuilder(commandLine).directory(repository).redirectErrorStream(true);
+        builder.environment().put("GEAT_NO_DAEMON", "true");
+        long start = System.nanoTime();
+        Process process = builder.start();
+        // No input, a prompt must not block
+        process.getOutputStream().close();
+        InputStream output = process.getInputStream();
+        try {
+            output.read();
+            long first = System.nanoTime();
+            ByteStreams.toByteArray(output);
+            process.waitFor();
+            long exit = System.nanoTime();
+            return new long[] { (first - start) / 1000000, (exit - start) / 1000000 };
+        } finally {
+            output.close();
+        }
+    }
+
+}
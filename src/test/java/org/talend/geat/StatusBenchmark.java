@@ -0,0 +1,86 @@
+package org.talend.geat;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+/**
+ * Measures how WorkTreeStatus scales with its number of threads, from 1 to the number of available processors, on a
+ * clean working tree: once with trusted timestamps (stat only), once with all files touched since the index was written
+ * (every file is hashed).
+ * 
+ * Not a JUnit test. Run it from the test classpath, for example:
+ * 
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.talend.geat.StatusBenchmark -Dexec.args="100000 5"
+ * </pre>
+ * 
+ * Arguments are the number of files of the synthetic repository, and the number of runs (best time is kept).
+ */
+public class StatusBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int files = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        Git git = createRepository(files);
+        int processors = Runtime.getRuntime().availableProcessors();
+        System.out.println("Repository with " + files + " files, " + processors + " processors");
+
+        long[] stat = new long[processors + 1];
+        for (int threads = 1; threads <= processors; threads++) {
+            stat[threads] = measure(git, threads, runs);
+        }
+
+        // Same size, newer timestamps: index can not be trusted anymore, contents are compared
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < files; i++) {
+            getFile(git.getRepository().getWorkTree(), i).setLastModified(now);
+        }
+        long[] hash = new long[processors + 1];
+        for (int threads = 1; threads <= processors; threads++) {
+            hash[threads] = measure(git, threads, runs);
+        }
+
+        System.out.println("threads    stat (ms)  speedup    hash (ms)  speedup");
+        for (int threads = 1; threads <= processors; threads++) {
+            System.out.println(String.format("%7d %12d %8.2f %12d %8.2f", threads, stat[threads], (double) stat[1]
+                    / stat[threads], hash[threads], (double) hash[1] / hash[threads]));
+        }
+    }
+
+    private static long measure(Git git, int threads, int runs) throws IOException {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            if (!new WorkTreeStatus(git.getRepository(), threads).call().isClean()) {
+                throw new IllegalStateException("Working tree should be clean");
+            }
+            best = Math.min(best, (System.nanoTime() - start) / 1000000);
+        }
+        return best;
+    }
+
+    private static Git createRepository(int files) throws GitAPIException, IOException {
+        File dir = Files.createTempDir();
+        Git git = Git.init().setDirectory(dir).call();
+        for (int i = 0; i < files; i++) {
+            File file = getFile(dir, i);
+            Files.createParentDirs(file);
+            Files.write("content of file " + i, file, Charsets.UTF_8);
+        }
+        git.add().addFilepattern(".").call();
+        git.commit().setMessage("Initial commit").call();
+        return git;
+    }
+
+    private static File getFile(File dir, int i) {
+        return new File(dir, "dir" + (i % 100) + "/sub" + (i % 7) + "/file" + i + ".txt");
+    }
+
+}
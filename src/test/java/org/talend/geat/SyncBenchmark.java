@@ -0,0 +1,129 @@
+package org.talend.geat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+/**
+ * Compares how a finish brings its target and source branches up to date with origin: the previous way (checkout and
+ * pull --rebase of each branch) and GitUtils.callFetchAll() (one fetch, refs of non-current branches moved without
+ * checkout).
+ * 
+ * Not a JUnit test. Run it from the test classpath, for example:
+ * 
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.talend.geat.SyncBenchmark -Dexec.args="100000 1000"
+ * </pre>
+ * 
+ * Arguments are the number of files of the synthetic repository, and the number of files changed on origin on each
+ * branch.
+ */
+public class SyncBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int files = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int changes = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+
+        File origin = Files.createTempDir();
+        Git remote = Git.init().setDirectory(origin).call();
+        for (int i = 0; i < files; i++) {
+            write(origin, i, "content of file " + i);
+        }
+        commit(remote);
+        remote.branchCreate().setName("feature/bench").call();
+        System.out.println("Repository with " + files + " files: " + origin);
+
+        File previous = cloneOrigin(origin);
+        File current = cloneOrigin(origin);
+        // Feature branch exists locally, user is on master:
+        Git.open(previous).branchCreate().setName("feature/bench").setStartPoint("origin/feature/bench").call();
+        Git.open(current).branchCreate().setName("feature/bench").setStartPoint("origin/feature/bench").call();
+
+        // Both branches move on origin:
+        for (int i = 0; i < changes; i++) {
+            write(origin, i, "master change " + i);
+        }
+        commit(remote);
+        remote.checkout().setName("feature/bench").call();
+        for (int i = files - changes; i < files; i++) {
+            write(origin, i, "feature change " + i);
+        }
+        commit(remote);
+
+        Map<String, Long> before = snapshot(previous);
+        Thread.sleep(1100);
+        long start = System.nanoTime();
+        Git git = Git.open(previous);
+        for (String branch : new String[] { "master", "feature/bench" }) {
+            git.checkout().setName(branch).call();
+            git.pull().setRebase(true).setRemote("origin").call();
+        }
+        git.checkout().setName("master").call();
+        long previousTime = (System.nanoTime() - start) / 1000000;
+        int previousWrites = countRewritten(previous, before);
+
+        before = snapshot(current);
+        Thread.sleep(1100);
+        start = System.nanoTime();
+        RepositoryContext context = new RepositoryContext(Git.open(current).getRepository());
+        GitUtils.callFetchAll(context, "master", "feature/bench");
+        long currentTime = (System.nanoTime() - start) / 1000000;
+        int currentWrites = countRewritten(current, before);
+
+        System.out.println("                       time (ms)  files written");
+        System.out.println(String.format("checkout + pull       %10d %14d", previousTime, previousWrites));
+        System.out.println(String.format("callFetchAll          %10d %14d", currentTime, currentWrites));
+    }
+
+    private static void write(File dir, int i, String content) throws IOException {
+        File file = new File(dir, "dir" + (i % 100) + "/file" + i + ".txt");
+        Files.createParentDirs(file);
+        Files.write(content, file, Charsets.UTF_8);
+    }
+
+    private static void commit(Git git) throws GitAPIException {
+        git.add().addFilepattern(".").call();
+        git.commit().setMessage("Commit").call();
+    }
+
+    private static File cloneOrigin(File origin) throws GitAPIException {
+        File dir = Files.createTempDir();
+        Git.cloneRepository().setDirectory(dir).setRemote("origin").setURI(origin.getAbsolutePath()).call();
+        return dir;
+    }
+
+    private static Map<String, Long> snapshot(File workTree) {
+        Map<String, Long> toReturn = new HashMap<String, Long>();
+        for (File dir : workTree.listFiles()) {
+            if (dir.isDirectory() && !dir.getName().equals(".git")) {
+                for (File file : dir.listFiles()) {
+                    toReturn.put(file.getPath(), file.lastModified());
+                }
+            }
+        }
+        return toReturn;
+    }
+
+    /**
+     * @return how many files of the working tree have been written (or deleted) since the snapshot
+     */
+    private static int countRewritten(File workTree, Map<String, Long> before) {
+        Map<String, Long> after = snapshot(workTree);
+        int toReturn = 0;
+        for (Entry<String, Long> current : before.entrySet()) {
+            if (!current.getValue().equals(after.get(current.getKey()))) {
+                toReturn++;
+            }
+        }
+        return toReturn;
+    }
+
+}
@@ -0,0 +1,94 @@
+package org.talend.geat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.Status;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+public class WorkTreeStatusTest {
+
+    @Test
+    public void testSameAsStatus() throws GitAPIException, IOException {
+        // Enough files for several ranges:
+        Git git = createRepository(2100);
+        File root = git.getRepository().getWorkTree();
+
+        WorkTreeStatus status = new WorkTreeStatus(git.getRepository(), 4).call();
+        Assert.assertTrue(status.isClean());
+
+        Files.write("modified", new File(root, "dir0/file0.txt"), Charsets.UTF_8);
+        Files.write("modified", new File(root, "dir20/file2099.txt"), Charsets.UTF_8);
+        new File(root, "dir15/file1515.txt").delete();
+        Files.write("added", new File(root, "dir3/added.txt"), Charsets.UTF_8);
+        git.add().addFilepattern("dir3/added.txt").call();
+        Files.write("changed", new File(root, "dir7/file707.txt"), Charsets.UTF_8);
+        git.add().addFilepattern("dir7/file707.txt").call();
+        git.rm().addFilepattern("dir8/file808.txt").call();
+        File untracked = new File(root, "untracked/file.txt");
+        Files.createParentDirs(untracked);
+        Files.write("untracked", untracked, Charsets.UTF_8);
+
+        status = new WorkTreeStatus(git.getRepository(), 4).call();
+        Status expected = git.status().call();
+        Assert.assertFalse(status.isClean());
+        Assert.assertEquals(expected.getAdded(), status.getAdded());
+        Assert.assertEquals(expected.getChanged(), status.getChanged());
+        Assert.assertEquals(expected.getRemoved(), status.getRemoved());
+        Assert.assertEquals(expected.getMissing(), status.getMissing());
+        Assert.assertEquals(expected.getModified(), status.getModified());
+        Assert.assertEquals(2, status.getModified().size());
+
+        // Whatever the number of threads:
+        Assert.assertEquals(status.getModified(), new WorkTreeStatus(git.getRepository(), 1).call().getModified());
+        Assert.assertNotNull(new WorkTreeStatus(git.getRepository(), 4).findFirstChange());
+    }
+
+    @Test
+    public void testFirstChangeInLastRange() throws GitAPIException, IOException {
+        Git git = createRepository(2100);
+        File root = git.getRepository().getWorkTree();
+        Assert.assertNull(new WorkTreeStatus(git.getRepository(), 4).findFirstChange());
+
+        Files.write("modified", new File(root, "dir20/file2099.txt"), Charsets.UTF_8);
+        Assert.assertEquals("dir20/file2099.txt", new WorkTreeStatus(git.getRepository(), 4).findFirstChange());
+    }
+
+    @Test
+    public void testPaths() throws GitAPIException, IOException {
+        Git git = JUnitUtils.createTempRepo();
+        File file1 = JUnitUtils.createInitialCommit(git, "file1");
+        JUnitUtils.createInitialCommit(git, "file2");
+        Files.write("modified", file1, Charsets.UTF_8);
+
+        // Only these paths of the working tree are verified:
+        Assert.assertTrue(new WorkTreeStatus(git.getRepository(), 1).setPaths(Arrays.asList("file2")).call()
+                .isClean());
+        Assert.assertTrue(new WorkTreeStatus(git.getRepository(), 1).setPaths(new ArrayList<String>()).call()
+                .isClean());
+        Assert.assertEquals("file1",
+                new WorkTreeStatus(git.getRepository(), 1).setPaths(Arrays.asList("file1")).findFirstChange());
+    }
+
+    private static Git createRepository(int files) throws GitAPIException, IOException {
+        Git git = JUnitUtils.createTempRepo();
+        File root = git.getRepository().getWorkTree();
+        for (int i = 0; i < files; i++) {
+            File file = new File(root, "dir" + (i / 100) + "/file" + i + ".txt");
+            Files.createParentDirs(file);
+            Files.write("content of file " + i, file, Charsets.UTF_8);
+        }
+        git.add().addFilepattern(".").call();
+        git.commit().setMessage("Initial commit").call();
+        return git;
+    }
+
+}
@@ -0,0 +1,85 @@
+package org.talend.geat.commands;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.talend.geat.GitUtils;
+import org.talend.geat.JUnitUtils;
+import org.talend.geat.exception.IllegalCommandArgumentException;
+import org.talend.geat.exception.IncorrectRepositoryStateException;
+import org.talend.geat.exception.InterruptedCommandException;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.io.Files;
+
+public class BatchTest {
+
+    @Test
+    public void testBatch() throws GitAPIException, IOException, IllegalCommandArgumentException,
+            IncorrectRepositoryStateException, InterruptedCommandException {
+        Git git = JUnitUtils.createTempRepo();
+        JUnitUtils.createInitialCommit(git, "file1");
+        File root = git.getRepository().getWorkTree();
+        // Commands run in the repository given by cd:
+        System.setProperty("user.dir", Files.createTempDir().getAbsolutePath());
+
+        String[] results = batch("# A comment", "", "cd " + root.getAbsolutePath(), "feature-start tagada",
+                "feature-start tagada", "feature-start", "tagada", "batch");
+        Assert.assertEquals(5, results.length);
+        Assert.assertTrue(results[0], results[0].startsWith("{\"command\":\"feature-start tagada\",\"directory\":\""
+                + root.getAbsolutePath() + "\",\"status\":\"ok\","));
+        Assert.assertTrue(results[0], results[0].contains("\"Summary of actions:\""));
+        Assert.assertTrue(results[1], results[1].contains("\"status\":\"refused\",\"millis\""));
+        Assert.assertTrue(results[1],
+                results[1].contains("\"error\":\"A local branch named 'feature/tagada' already exist."));
+        Assert.assertTrue(results[2], results[2].contains("\"status\":\"usage\""));
+        Assert.assertTrue(results[3], results[3].contains("\"error\":\"Unknown command in batch: tagada\""));
+        Assert.assertTrue(results[4], results[4].contains("\"error\":\"Unknown command in batch: batch\""));
+        Assert.assertEquals("feature/tagada", git.getRepository().getBranch());
+
+        Files.write("on feature", new File(root, "file1"), Charsets.UTF_8);
+        git.commit().setAll(true).setMessage("On feature").call();
+
+        results = batch("cd " + root.getAbsolutePath(), "feature-finish tagada squash", "> Squashed in batch");
+        Assert.assertEquals(1, results.length);
+        Assert.assertTrue(results[0], results[0].contains("\"status\":\"ok\""));
+        Assert.assertEquals("master", git.getRepository().getBranch());
+        Assert.assertFalse(GitUtils.hasLocalBranch(git.getRepository(), "feature/tagada"));
+        Assert.assertEquals("Squashed in batch", git.log().setMaxCount(1).call().iterator().next().getFullMessage());
+    }
+
+    @Test
+    public void testQuote() {
+        Assert.assertEquals("\"a \\\"b\\\" \\\\ c\\n\\td\\u0001\"", Batch.quote("a \"b\" \\ c\n\td\u0001"));
+    }
+
+    /**
+     * Runs a batch of these lines, from a file.
+     * 
+     * @return result lines
+     */
+    private static String[] batch(String... lines) throws IOException, IllegalCommandArgumentException,
+            IncorrectRepositoryStateException, GitAPIException, InterruptedCommandException {
+        File input = File.createTempFile("batch", ".txt");
+        Files.write(Joiner.on('\n').join(lines), input, Charsets.UTF_8);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        PrintStream previousOut = System.out;
+        try {
+            System.setOut(new PrintStream(output, true));
+            CommandsRegistry.INSTANCE.getCommand(Batch.NAME).parseArgs(new String[] { Batch.NAME, input.getPath() })
+                    .run();
+        } finally {
+            System.setOut(previousOut);
+        }
+        return new String(output.toByteArray(), Charsets.UTF_8).split("\n");
+    }
+
+}
@@ -5,6 +5,9 @@ import java.io.IOException;
 
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.revwalk.RevCommit;
 import org.junit.Assert;
 import org.junit.Test;
 import org.talend.geat.GitUtils;
@@ -13,6 +16,8 @@ import org.talend.geat.exception.IllegalCommandArgumentException;
 import org.talend.geat.exception.IncorrectRepositoryStateException;
 import org.talend.geat.exception.InterruptedCommandException;
 
+import com.google.common.base.Charsets;
+import com.google.common.collect.Iterables;
 import com.google.common.io.Files;
 
 public class BugfixFinishTest extends Bug21Test {
@@ -402,4 +407,176 @@ public class BugfixFinishTest extends Bug21Test {
         Assert.assertTrue(file4.exists());
         Assert.assertFalse(GitUtils.hasLocalBranch(git.getRepository(), "bugfix/5.4.2/myBug"));
     }
+
+    @Test
+    public void testParseArgsCascade() throws IllegalCommandArgumentException, GitAPIException, IOException,
+            IncorrectRepositoryStateException {
+        Git git = JUnitUtils.createTempRepo();
+        JUnitUtils.createInitialCommit(git, "file1");
+        git.branchCreate().setName("bugfix/1.0/myBug").call();
+
+        BugfixFinish command = (BugfixFinish) CommandsRegistry.INSTANCE.getCommand(BugfixFinish.NAME).parseArgs(
+                new String[] { BugfixFinish.NAME, "--cascade", "myBug", "rebase", "--publish" });
+        Assert.assertEquals("myBug", command.featureName);
+        Assert.assertEquals(MergePolicy.REBASE, command.mergePolicy);
+        Assert.assertEquals("maintenance/1.0", command.target);
+        Assert.assertTrue(command.isCascade());
+        Assert.assertTrue(command.isPublish());
+    }
+
+    @Test
+    public void testExecuteCascade() throws GitAPIException, IOException, IncorrectRepositoryStateException,
+            InterruptedCommandException {
+        Git git = createRepoWithLines();
+
+        BugfixFinish command = new BugfixFinish();
+        command.setFeatureName("myBug");
+        command.setMergePolicy(MergePolicy.REBASE);
+        command.setTarget("maintenance/1.0");
+        command.setCascade(true);
+        command.run();
+
+        Assert.assertEquals("maintenance/1.0", git.getRepository().getBranch());
+        Assert.assertEquals("fixed", Files.toString(new File(git.getRepository().getWorkTree(), "fix"),
+                Charsets.UTF_8));
+        Assert.assertFalse(GitUtils.hasLocalBranch(git.getRepository(), "bugfix/1.0/myBug"));
+        ObjectId fix = git.getRepository().resolve("refs/heads/maintenance/1.0");
+        for (String line : new String[] { "release/1.1.0", "maintenance/1.1", "master" }) {
+            RevCommit head = git.log().add(git.getRepository().resolve("refs/heads/" + line)).call().iterator().next();
+            Assert.assertEquals(line, "Fix myBug\n\n(cherry picked from commit " + fix.name() + ")\n",
+                    head.getFullMessage());
+            Assert.assertEquals(line, "Initial commit (add " + line.replace('/', '-') + ")", head.getParent(0)
+                    .getShortMessage());
+        }
+        // Older line untouched:
+        Assert.assertEquals(1, Iterables.size(git.log().add(git.getRepository().resolve("refs/heads/maintenance/0.9"))
+                .call()));
+    }
+
+    @Test
+    public void testExecuteCascadeConflict() throws GitAPIException, IOException, IncorrectRepositoryStateException {
+        Git git = createRepoWithLines();
+        git.checkout().setName("maintenance/1.1").call();
+        Files.write("fixed differently", new File(git.getRepository().getWorkTree(), "fix"), Charsets.UTF_8);
+        git.add().addFilepattern("fix").call();
+        git.commit().setMessage("Other fix").call();
+        ObjectId maintenance11 = git.getRepository().resolve("refs/heads/maintenance/1.1");
+        ObjectId master = git.getRepository().resolve("refs/heads/master");
+
+        BugfixFinish command = new BugfixFinish();
+        command.setFeatureName("myBug");
+        command.setMergePolicy(MergePolicy.REBASE);
+        command.setTarget("maintenance/1.0");
+        command.setCascade(true);
+        try {
+            command.run();
+            Assert.fail();
+        } catch (InterruptedCommandException e) {
+            Assert.assertEquals("BugFix 'bugfix/1.0/myBug' does not apply on 'maintenance/1.1' without conflicts, "
+                    + "the cascade stopped there.", e.getMessage());
+            Assert.assertTrue(e.getDetails(), e.getDetails().contains("git cherry-pick -x "
+                    + git.getRepository().resolve("refs/heads/maintenance/1.0").name()));
+            Assert.assertTrue(e.getDetails(), e.getDetails().contains("Then on 'master' too."));
+        }
+
+        // Finished on start point, ported up to the conflicting line:
+        Assert.assertEquals("maintenance/1.0", git.getRepository().getBranch());
+        Assert.assertFalse(GitUtils.hasLocalBranch(git.getRepository(), "bugfix/1.0/myBug"));
+        Assert.assertEquals("Fix myBug", git.log().add(git.getRepository().resolve("refs/heads/release/1.1.0")).call()
+                .iterator().next().getShortMessage());
+        Assert.assertEquals(maintenance11, git.getRepository().resolve("refs/heads/maintenance/1.1"));
+        Assert.assertEquals(master, git.getRepository().resolve("refs/heads/master"));
+    }
+
+    @Test
+    public void testExecuteCascadePublish() throws GitAPIException, IOException, IncorrectRepositoryStateException,
+            InterruptedCommandException {
+        Git remote = createRepoWithLines();
+        remote.checkout().setCreateBranch(true).setName("other").call();
+        Git git = Git.cloneRepository().setDirectory(Files.createTempDir())
+                .setURI(remote.getRepository().getWorkTree().getAbsolutePath()).call();
+        System.setProperty("user.dir", git.getRepository().getWorkTree().getAbsolutePath());
+
+        BugfixFinish command = new BugfixFinish();
+        command.setFeatureName("myBug");
+        command.setMergePolicy(MergePolicy.REBASE);
+        command.setTarget("maintenance/1.0");
+        command.setCascade(true);
+        command.setPublish(true);
+        command.run();
+
+        for (String line : new String[] { "maintenance/1.0", "release/1.1.0", "maintenance/1.1", "master" }) {
+            ObjectId local = git.getRepository().resolve("refs/heads/" + line);
+            Assert.assertEquals(line, local, remote.getRepository().resolve("refs/heads/" + line));
+            Assert.assertEquals(line, local, git.getRepository().resolve("refs/remotes/origin/" + line));
+        }
+        Assert.assertFalse(GitUtils.hasLocalBranch(remote.getRepository(), "bugfix/1.0/myBug"));
+        Assert.assertFalse(GitUtils.hasLocalBranch(git.getRepository(), "bugfix/1.0/myBug"));
+    }
+
+    @Test
+    public void testExecuteCascadePublishNotPutBack() throws GitAPIException, IOException,
+            InterruptedCommandException {
+        Git remote = createRepoWithLines();
+        remote.checkout().setCreateBranch(true).setName("other").call();
+        Git git = Git.cloneRepository().setDirectory(Files.createTempDir())
+                .setURI(remote.getRepository().getWorkTree().getAbsolutePath()).call();
+        System.setProperty("user.dir", git.getRepository().getWorkTree().getAbsolutePath());
+        ObjectId remoteTarget = remote.getRepository().resolve("refs/heads/maintenance/1.0");
+        // Origin cannot update master, and refuses to rewind the lines it has updated:
+        File lock = new File(remote.getRepository().getDirectory(), "refs/heads/master.lock");
+        Files.touch(lock);
+        StoredConfig config = remote.getRepository().getConfig();
+        config.setBoolean("receive", null, "denyNonFastForwards", true);
+        config.save();
+
+        BugfixFinish command = new BugfixFinish();
+        command.setFeatureName("myBug");
+        command.setMergePolicy(MergePolicy.REBASE);
+        command.setTarget("maintenance/1.0");
+        command.setCascade(true);
+        command.setPublish(true);
+        try {
+            command.run();
+            Assert.fail();
+        } catch (IncorrectRepositoryStateException e) {
+            Assert.assertEquals("Origin refused to update 'master' (REJECTED_OTHER_REASON), and refused to put back "
+                    + "the branches it had already updated: it is half published.", e.getMessage());
+            Assert.assertTrue(e.getDetails(), e.getDetails().contains(
+                    "git push --force origin " + remoteTarget.name() + ":refs/heads/maintenance/1.0"));
+            Assert.assertTrue(e.getDetails(), e.getDetails().contains("geat " + BugfixFinish.NAME));
+        } finally {
+            lock.delete();
+        }
+
+        // Bugfix branch put back on origin, local target back to the fetched one:
+        Assert.assertTrue(GitUtils.hasLocalBranch(remote.getRepository(), "bugfix/1.0/myBug"));
+        Assert.assertFalse(remoteTarget.equals(remote.getRepository().resolve("refs/heads/maintenance/1.0")));
+        Assert.assertEquals(remoteTarget, git.getRepository().resolve("refs/heads/maintenance/1.0"));
+        Assert.assertTrue(GitUtils.hasLocalBranch(git.getRepository(), "bugfix/1.0/myBug"));
+    }
+
+    /**
+     * @return a repository with maintenance/0.9, maintenance/1.0, release/1.1.0, maintenance/1.1 and master, each with
+     *         its own commit, and a bugfix/1.0/myBug branch adding a file, on maintenance/1.0
+     */
+    private static Git createRepoWithLines() throws GitAPIException, IOException {
+        Git git = JUnitUtils.createTempRepo();
+        JUnitUtils.createInitialCommit(git, "file1");
+        for (String line : new String[] { "maintenance/0.9", "maintenance/1.0", "release/1.1.0", "maintenance/1.1" }) {
+            git.branchCreate().setName(line).call();
+        }
+        for (String line : new String[] { "maintenance/1.0", "release/1.1.0", "maintenance/1.1", "master" }) {
+            git.checkout().setName(line).call();
+            JUnitUtils.createInitialCommit(git, line.replace('/', '-'));
+        }
+        git.checkout().setName("maintenance/1.0").call();
+        git.checkout().setCreateBranch(true).setName("bugfix/1.0/myBug").call();
+        Files.write("fixed", new File(git.getRepository().getWorkTree(), "fix"), Charsets.UTF_8);
+        git.add().addFilepattern("fix").call();
+        git.commit().setMessage("Fix myBug").call();
+        git.checkout().setName("master").call();
+        return git;
+    }
+
 }
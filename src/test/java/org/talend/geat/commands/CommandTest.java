@@ -144,4 +144,16 @@ public class CommandTest {
         com.parseArgs(new String[] { "real" }).run();
         Assert.assertEquals("real", com.aString);
     }
+
+    @Test
+    public void testCloseWithoutRun() throws GitAPIException, IncorrectRepositoryStateException,
+            IllegalCommandArgumentException {
+        DoNothingCommand com = getDoNothingCommandInstance(true);
+        com.parseArgs(new String[] { "real" });
+        Assert.assertNotNull(com.getOpenedContext());
+        com.close();
+        Assert.assertNull(com.getOpenedContext());
+        com.close();
+    }
+
 }
@@ -1,9 +1,16 @@
 package org.talend.geat.commands;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.util.List;
 
 import org.junit.Assert;
 import org.junit.Test;
+import org.talend.geat.GeatMain;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.CharStreams;
 
 public class CommandsRegistryTest {
 
@@ -25,11 +32,55 @@ public class CommandsRegistryTest {
         Assert.assertEquals(new FeatureStart(), command);
     }
 
+    @Test
+    public void testNotRegistered() {
+        Command command = new Help() {
+        };
+        try {
+            command.getNames();
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("Command " + command.getClass().getName()));
+        }
+    }
+
     @Test
     public void testCommandOrder() {
-        List<Command> orderedCommands = CommandsRegistry.INSTANCE.orderedCommands;
-        Assert.assertEquals(new Help(), orderedCommands.get(0));
-        Assert.assertEquals(new Version(), orderedCommands.get(1));
+        List<CommandEntry> orderedCommands = CommandsRegistry.INSTANCE.orderedCommands;
+        Assert.assertEquals("help", orderedCommands.get(0).getNames().getMainName());
+        Assert.assertEquals("version", orderedCommands.get(1).getNames().getMainName());
+    }
+
+    @Test
+    public void testEntries() {
+        for (CommandEntry entry : CommandsRegistry.INSTANCE.orderedCommands) {
+            Command command = CommandsRegistry.INSTANCE.getCommand(entry.getNames().getMainName());
+            Assert.assertEquals(entry.getClassName(), command.getClass().getCanonicalName());
+            Assert.assertSame(entry.getNames(), command.getNames());
+            Assert.assertEquals(entry.getDescription(), command.getDescription());
+        }
+    }
+
+    @Test
+    public void testHelpAndVersionLoadNoJGit() throws IOException, InterruptedException {
+        for (String command : new String[] { "help", "version" }) {
+            ProcessBuilder builder = new ProcessBuilder(new File(System.getProperty("java.home"), "bin/java")
+                    .getAbsolutePath(), "-verbose:class", "-cp", System.getProperty("java.class.path"),
+                    GeatMain.class.getName(), command).redirectErrorStream(true);
+            builder.environment().put("GEAT_NO_DAEMON", "true");
+            Process process = builder.start();
+            InputStreamReader reader = new InputStreamReader(process.getInputStream(), Charsets.UTF_8);
+            String output;
+            try {
+                output = CharStreams.toString(reader);
+            } finally {
+                reader.close();
+            }
+            process.waitFor();
+
+            Assert.assertTrue(output, output.contains("org.talend.geat.commands.CommandsRegistry"));
+            Assert.assertFalse(command, output.contains("org.eclipse.jgit"));
+        }
     }
 
 }
@@ -2,16 +2,21 @@ package org.talend.geat.commands;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.StringWriter;
 
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.StoredConfig;
 import org.junit.Assert;
 import org.junit.Test;
 import org.talend.geat.GitUtils;
 import org.talend.geat.JUnitUtils;
+import org.talend.geat.RepositoryContext;
 import org.talend.geat.exception.IllegalCommandArgumentException;
 import org.talend.geat.exception.IncorrectRepositoryStateException;
 import org.talend.geat.exception.InterruptedCommandException;
+import org.talend.geat.io.DoNothingWriter;
 
 import com.google.common.io.Files;
 
@@ -147,6 +152,174 @@ public class FeatureFinishTest extends Bug21Test {
         Assert.assertFalse(GitUtils.hasRemoteBranch(git.getRepository(), "feature/feature1"));
     }
 
+    @Test
+    public void testParseArgsPublish() throws IllegalCommandArgumentException, GitAPIException, IOException,
+            IncorrectRepositoryStateException {
+        FeatureFinish command = (FeatureFinish) createCommandInstance().parseArgs(
+                new String[] { "feature-finish", "myFeature", "--publish", "rebase" });
+        Assert.assertEquals("myFeature", command.featureName);
+        Assert.assertEquals(MergePolicy.REBASE, command.mergePolicy);
+        Assert.assertTrue(command.publish);
+    }
+
+    @Test
+    public void testExecutePublish() throws GitAPIException, IOException, IncorrectRepositoryStateException,
+            InterruptedCommandException {
+        Git remote = createRemoteWithFeature();
+        Git git = Git.cloneRepository().setDirectory(Files.createTempDir())
+                .setURI(remote.getRepository().getWorkTree().getAbsolutePath()).call();
+        System.setProperty("user.dir", git.getRepository().getWorkTree().getAbsolutePath());
+
+        FeatureFinish command = new FeatureFinish();
+        command.setFeatureName("feature1");
+        command.setMergePolicy(MergePolicy.REBASE);
+        command.setPublish(true);
+        command.run();
+
+        ObjectId master = git.getRepository().resolve("refs/heads/master");
+        Assert.assertEquals(master, remote.getRepository().resolve("refs/heads/master"));
+        Assert.assertEquals(master, git.getRepository().resolve("refs/remotes/origin/master"));
+        Assert.assertFalse(GitUtils.hasLocalBranch(remote.getRepository(), "feature/feature1"));
+        Assert.assertFalse(GitUtils.hasLocalBranch(git.getRepository(), "feature/feature1"));
+        Assert.assertNull(git.getRepository().getRef("refs/remotes/origin/feature/feature1"));
+    }
+
+    @Test
+    public void testExecutePublishTargetMoved() throws GitAPIException, IOException,
+            IncorrectRepositoryStateException, InterruptedCommandException {
+        Git remote = createRemoteWithFeature();
+        Git git = Git.cloneRepository().setDirectory(Files.createTempDir())
+                .setURI(remote.getRepository().getWorkTree().getAbsolutePath()).call();
+        ObjectId remoteFeature = remote.getRepository().resolve("refs/heads/feature/feature1");
+
+        // Origin listed, then master pushed by someone else before the finish is published:
+        RepositoryContext context = new RepositoryContext(git.getRepository());
+        Assert.assertNotNull(context.getRemoteBranch("master"));
+        remote.checkout().setName("master").call();
+        JUnitUtils.createInitialCommit(remote, "file5");
+        remote.checkout().setName("other").call();
+        ObjectId remoteMaster = remote.getRepository().resolve("refs/heads/master");
+
+        try {
+            GitUtils.merge(new DoNothingWriter(), context, "feature1", "feature", "master", "feature",
+                    MergePolicy.REBASE, FeatureFinish.NAME, true);
+            Assert.fail();
+        } catch (IncorrectRepositoryStateException e) {
+            Assert.assertEquals("Remote branches 'master' or 'feature/feature1' have been updated since they were "
+                    + "fetched, nothing was published.", e.getMessage());
+        }
+
+        // Nothing published, local master back to the fetched one and feature kept:
+        Assert.assertEquals(remoteMaster, remote.getRepository().resolve("refs/heads/master"));
+        Assert.assertEquals(remoteFeature, remote.getRepository().resolve("refs/heads/feature/feature1"));
+        Assert.assertEquals(git.getRepository().resolve("refs/remotes/origin/master"),
+                git.getRepository().resolve("refs/heads/master"));
+        Assert.assertTrue(GitUtils.hasLocalBranch(git.getRepository(), "feature/feature1"));
+    }
+
+    @Test
+    public void testExecutePublishTargetRefused() throws GitAPIException, IOException,
+            IncorrectRepositoryStateException, InterruptedCommandException {
+        Git remote = createRemoteWithFeature();
+        Git git = Git.cloneRepository().setDirectory(Files.createTempDir())
+                .setURI(remote.getRepository().getWorkTree().getAbsolutePath()).call();
+        ObjectId remoteMaster = remote.getRepository().resolve("refs/heads/master");
+        ObjectId remoteFeature = remote.getRepository().resolve("refs/heads/feature/feature1");
+        // Origin deletes the feature branch, but cannot update master:
+        File lock = new File(remote.getRepository().getDirectory(), "refs/heads/master.lock");
+        Files.touch(lock);
+
+        RepositoryContext context = new RepositoryContext(git.getRepository());
+        try {
+            GitUtils.merge(new DoNothingWriter(), context, "feature1", "feature", "master", "feature",
+                    MergePolicy.REBASE, FeatureFinish.NAME, true);
+            Assert.fail();
+        } catch (IncorrectRepositoryStateException e) {
+            Assert.assertEquals("Origin refused to update 'master' (REJECTED_OTHER_REASON), nothing was published.",
+                    e.getMessage());
+        } finally {
+            lock.delete();
+        }
+
+        // Feature branch put back on origin, local master back to the fetched one and feature kept:
+        Assert.assertEquals(remoteMaster, remote.getRepository().resolve("refs/heads/master"));
+        Assert.assertEquals(remoteFeature, remote.getRepository().resolve("refs/heads/feature/feature1"));
+        Assert.assertEquals(remoteFeature, git.getRepository().resolve("refs/remotes/origin/feature/feature1"));
+        Assert.assertEquals(remoteMaster, git.getRepository().resolve("refs/heads/master"));
+        Assert.assertTrue(GitUtils.hasLocalBranch(git.getRepository(), "feature/feature1"));
+    }
+
+    @Test
+    public void testExecutePublishDeletionRefused() throws GitAPIException, IOException,
+            IncorrectRepositoryStateException, InterruptedCommandException {
+        Git remote = createRemoteWithFeature();
+        Git git = Git.cloneRepository().setDirectory(Files.createTempDir())
+                .setURI(remote.getRepository().getWorkTree().getAbsolutePath()).call();
+        ObjectId remoteFeature = remote.getRepository().resolve("refs/heads/feature/feature1");
+        // Origin updates master, but does not delete branches:
+        StoredConfig config = remote.getRepository().getConfig();
+        config.setBoolean("receive", null, "denyDeletes", true);
+        config.save();
+
+        StringWriter output = new StringWriter();
+        RepositoryContext context = new RepositoryContext(git.getRepository());
+        GitUtils.merge(output, context, "feature1", "feature", "master", "feature", MergePolicy.REBASE,
+                FeatureFinish.NAME, true);
+
+        // Finish published, only the remote feature branch is left:
+        Assert.assertEquals(git.getRepository().resolve("refs/heads/master"),
+                remote.getRepository().resolve("refs/heads/master"));
+        Assert.assertEquals(remoteFeature, remote.getRepository().resolve("refs/heads/feature/feature1"));
+        Assert.assertFalse(GitUtils.hasLocalBranch(git.getRepository(), "feature/feature1"));
+        String text = output.toString();
+        Assert.assertTrue(text, text.contains("WARN: origin refused to delete 'feature/feature1'"
+                + " (REJECTED_OTHER_REASON)"));
+        Assert.assertTrue(text, text.contains("git push origin :feature/feature1"));
+        Assert.assertTrue(text, text.contains("'master' has been pushed to origin, and 'feature/feature1' kept there"));
+    }
+
+    @Test
+    public void testExecutePublishTargetUnchanged() throws GitAPIException, IOException,
+            IncorrectRepositoryStateException, InterruptedCommandException {
+        // Feature without commits of its own: master does not move, origin already has it
+        Git remote = JUnitUtils.createTempRepo();
+        JUnitUtils.createInitialCommit(remote, "file1");
+        remote.branchCreate().setName("feature/feature1").call();
+        JUnitUtils.createInitialCommit(remote, "file2");
+        remote.checkout().setCreateBranch(true).setName("other").call();
+        ObjectId remoteMaster = remote.getRepository().resolve("refs/heads/master");
+        Git git = Git.cloneRepository().setDirectory(Files.createTempDir())
+                .setURI(remote.getRepository().getWorkTree().getAbsolutePath()).call();
+
+        StringWriter output = new StringWriter();
+        RepositoryContext context = new RepositoryContext(git.getRepository());
+        GitUtils.merge(output, context, "feature1", "feature", "master", "feature", MergePolicy.REBASE,
+                FeatureFinish.NAME, true);
+
+        Assert.assertEquals(remoteMaster, remote.getRepository().resolve("refs/heads/master"));
+        Assert.assertEquals(remoteMaster, git.getRepository().resolve("refs/heads/master"));
+        Assert.assertFalse(GitUtils.hasLocalBranch(remote.getRepository(), "feature/feature1"));
+        Assert.assertFalse(GitUtils.hasLocalBranch(git.getRepository(), "feature/feature1"));
+        String text = output.toString();
+        Assert.assertFalse(text, text.contains("WARN"));
+        Assert.assertTrue(text, text.contains("'master' has been pushed to origin, and 'feature/feature1' deleted"));
+    }
+
+    /**
+     * @return a repository with a master and a feature/feature1 branch, on a third branch so that both can be pushed
+     */
+    private static Git createRemoteWithFeature() throws GitAPIException, IOException {
+        Git remote = JUnitUtils.createTempRepo();
+        JUnitUtils.createInitialCommit(remote, "file1");
+        remote.branchCreate().setName("feature/feature1").call();
+        JUnitUtils.createInitialCommit(remote, "file4");
+        remote.checkout().setName("feature/feature1").call();
+        JUnitUtils.createInitialCommit(remote, "file2");
+        JUnitUtils.createInitialCommit(remote, "file3");
+        remote.checkout().setCreateBranch(true).setName("other").call();
+        return remote;
+    }
+
     private FeatureFinish createCommandInstance() throws GitAPIException, IOException {
         Git git = JUnitUtils.createTempRepo();
         JUnitUtils.createInitialCommit(git, "file1");
@@ -1,5 +1,21 @@
 package org.talend.geat.commands;
 
+import java.io.IOException;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.talend.geat.GitUtils;
+import org.talend.geat.JUnitUtils;
+import org.talend.geat.RepositoryContext;
+import org.talend.geat.exception.IllegalCommandArgumentException;
+import org.talend.geat.exception.IncorrectRepositoryStateException;
+import org.talend.geat.exception.InterruptedCommandException;
+import org.talend.geat.io.DoNothingWriter;
+
+import com.google.common.io.Files;
+
 public class FeaturePushTest extends Bug21Test {
 
     @Override
@@ -7,4 +23,45 @@ public class FeaturePushTest extends Bug21Test {
         return new FeaturePush();
     }
 
+    @Test
+    public void testCreateOnly() throws GitAPIException, IOException, IllegalCommandArgumentException,
+            IncorrectRepositoryStateException, InterruptedCommandException {
+        Git remote = JUnitUtils.createTempRepo();
+        JUnitUtils.createInitialCommit(remote, "file1");
+        String remotePath = remote.getRepository().getWorkTree().getAbsolutePath();
+        Git clone1 = Git.cloneRepository().setURI(remotePath).setDirectory(Files.createTempDir()).call();
+        Git clone2 = Git.cloneRepository().setURI(remotePath).setDirectory(Files.createTempDir()).call();
+        clone1.branchCreate().setName("feature/tagada").call();
+        clone2.checkout().setCreateBranch(true).setName("feature/tagada").call();
+        JUnitUtils.createInitialCommit(clone2, "file2");
+        int listings = RepositoryContext.getRemoteListingsCount();
+
+        featurePush(clone1, "tagada");
+        Assert.assertTrue(GitUtils.hasLocalBranch(remote.getRepository(), "feature/tagada"));
+        Assert.assertEquals("feature/tagada", clone1.getRepository().getBranch());
+        Assert.assertNotNull(clone1.getRepository().getRef("refs/remotes/origin/feature/tagada"));
+        Assert.assertEquals("origin",
+                clone1.getRepository().getConfig().getString("branch", "feature/tagada", "remote"));
+
+        // Same feature pushed from another clone:
+        try {
+            featurePush(clone2, "tagada");
+            Assert.fail();
+        } catch (IncorrectRepositoryStateException e) {
+            Assert.assertEquals("A remote branch named 'feature/tagada' already exists.", e.getMessage());
+        }
+        Assert.assertEquals(clone1.getRepository().resolve("feature/tagada"),
+                remote.getRepository().resolve("feature/tagada"));
+        Assert.assertNull(clone2.getRepository().getConfig().getString("branch", "feature/tagada", "remote"));
+        // No listing of origin before pushing:
+        Assert.assertEquals(listings, RepositoryContext.getRemoteListingsCount());
+    }
+
+    private static void featurePush(Git git, String featureName) throws IllegalCommandArgumentException,
+            IncorrectRepositoryStateException, IOException, GitAPIException, InterruptedCommandException {
+        System.setProperty("user.dir", git.getRepository().getWorkTree().getAbsolutePath());
+        CommandsRegistry.INSTANCE.getCommand(FeaturePush.NAME)
+                .parseArgs(new String[] { FeaturePush.NAME, featureName }).setWriter(new DoNothingWriter()).run();
+    }
+
 }
@@ -0,0 +1,138 @@
+package org.talend.geat.commands;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Assert;
+import org.junit.Test;
+import org.talend.geat.GitUtils;
+import org.talend.geat.JUnitUtils;
+import org.talend.geat.exception.IllegalCommandArgumentException;
+import org.talend.geat.exception.IncorrectRepositoryStateException;
+import org.talend.geat.exception.InterruptedCommandException;
+import org.talend.geat.io.DoNothingWriter;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Iterables;
+import com.google.common.io.Files;
+
+public class MergeTrainTest {
+
+    @Test
+    public void testParseArgs() throws GitAPIException, IOException, IllegalCommandArgumentException,
+            IncorrectRepositoryStateException {
+        Git git = JUnitUtils.createTempRepo();
+        JUnitUtils.createInitialCommit(git, "file1");
+        git.branchCreate().setName("feature/tdi-1").call();
+        git.branchCreate().setName("feature/tdi-2").call();
+        git.branchCreate().setName("feature/other").call();
+        System.setProperty("user.dir", git.getRepository().getWorkTree().getAbsolutePath());
+
+        MergeTrain command = (MergeTrain) CommandsRegistry.INSTANCE.getCommand(MergeTrain.NAME).parseArgs(
+                new String[] { MergeTrain.NAME, "other", "tdi-*", "tdi-1", "--squash" });
+        Assert.assertEquals(Arrays.asList("other", "tdi-1", "tdi-2"), command.getFeatures());
+        Assert.assertEquals(MergePolicy.SQUASH, command.getMergePolicy());
+
+        try {
+            CommandsRegistry.INSTANCE.getCommand(MergeTrain.NAME)
+                    .parseArgs(new String[] { MergeTrain.NAME, "--rebase" });
+            Assert.fail();
+        } catch (IllegalCommandArgumentException e) {
+            // Expected
+        }
+        try {
+            CommandsRegistry.INSTANCE.getCommand(MergeTrain.NAME)
+                    .parseArgs(new String[] { MergeTrain.NAME, "bug-*" });
+            Assert.fail();
+        } catch (IllegalCommandArgumentException e) {
+            Assert.assertEquals("No feature branch matches 'bug-*'", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testExecute() throws GitAPIException, IOException, IncorrectRepositoryStateException,
+            InterruptedCommandException, IllegalCommandArgumentException {
+        Git remote = JUnitUtils.createTempRepo();
+        JUnitUtils.createInitialCommit(remote, "file1");
+        remote.branchCreate().setName("feature/feature1").call();
+        remote.branchCreate().setName("feature/feature2").call();
+        JUnitUtils.createInitialCommit(remote, "file2");
+        remote.checkout().setName("feature/feature1").call();
+        JUnitUtils.createInitialCommit(remote, "file3");
+        remote.checkout().setName("feature/feature2").call();
+        JUnitUtils.createInitialCommit(remote, "file4");
+        JUnitUtils.createInitialCommit(remote, "file5");
+        remote.checkout().setCreateBranch(true).setName("other").call();
+        Git git = Git.cloneRepository().setDirectory(Files.createTempDir())
+                .setURI(remote.getRepository().getWorkTree().getAbsolutePath()).call();
+        System.setProperty("user.dir", git.getRepository().getWorkTree().getAbsolutePath());
+
+        CommandsRegistry.INSTANCE.getCommand(MergeTrain.NAME)
+                .parseArgs(new String[] { MergeTrain.NAME, "feature*", "--rebase" }).setWriter(new DoNothingWriter())
+                .run();
+
+        ObjectId master = git.getRepository().resolve("refs/heads/master");
+        Assert.assertEquals("master", git.getRepository().getBranch());
+        Assert.assertEquals(master, remote.getRepository().resolve("refs/heads/master"));
+        Assert.assertEquals(master, git.getRepository().resolve("refs/remotes/origin/master"));
+        // file2 on master, then 1 commit of feature1 and 2 of feature2:
+        Assert.assertEquals(5, Iterables.size(git.log().add(master).call()));
+        for (String name : new String[] { "file2", "file3", "file4", "file5" }) {
+            Assert.assertTrue(name, new File(git.getRepository().getWorkTree(), name).exists());
+        }
+        for (String feature : new String[] { "feature/feature1", "feature/feature2" }) {
+            Assert.assertFalse(GitUtils.hasLocalBranch(remote.getRepository(), feature));
+            Assert.assertFalse(GitUtils.hasLocalBranch(git.getRepository(), feature));
+        }
+    }
+
+    @Test
+    public void testExecuteConflict() throws GitAPIException, IOException, IncorrectRepositoryStateException {
+        Git git = JUnitUtils.createTempRepo();
+        File file1 = JUnitUtils.createInitialCommit(git, "file1");
+        git.branchCreate().setName("feature/feature1").call();
+        git.branchCreate().setName("feature/feature2").call();
+        git.branchCreate().setName("feature/feature3").call();
+        git.checkout().setName("feature/feature1").call();
+        JUnitUtils.createInitialCommit(git, "file2");
+        git.checkout().setName("feature/feature2").call();
+        Files.write("on feature2", file1, Charsets.UTF_8);
+        RevCommit conflicting = git.commit().setAll(true).setMessage("Change file1").call();
+        git.checkout().setName("feature/feature3").call();
+        JUnitUtils.createInitialCommit(git, "file3");
+        git.checkout().setName("master").call();
+        Files.write("on master", file1, Charsets.UTF_8);
+        git.commit().setAll(true).setMessage("Change file1 on master").call();
+        ObjectId feature2 = git.getRepository().resolve("refs/heads/feature/feature2");
+        System.setProperty("user.dir", git.getRepository().getWorkTree().getAbsolutePath());
+
+        MergeTrain command = new MergeTrain();
+        command.setFeatures(Arrays.asList("feature1", "feature2", "feature3"));
+        command.setMergePolicy(MergePolicy.REBASE);
+        try {
+            command.setWriter(new DoNothingWriter()).run();
+            Assert.fail();
+        } catch (InterruptedCommandException e) {
+            Assert.assertEquals("Feature 'feature/feature2' does not apply on 'master' without conflicts, the train "
+                    + "stopped there.", e.getMessage());
+            Assert.assertTrue(e.getDetails(),
+                    e.getDetails().contains("Commit " + conflicting.abbreviate(7).name() + " 'Change file1'"));
+            Assert.assertTrue(e.getDetails(), e.getDetails().contains("geat feature-finish feature2 rebase"));
+            Assert.assertTrue(e.getDetails(), e.getDetails().contains("geat merge-train feature3 --rebase"));
+        }
+
+        // feature1 finished, the others untouched:
+        Assert.assertEquals("master", git.getRepository().getBranch());
+        Assert.assertTrue(new File(git.getRepository().getWorkTree(), "file2").exists());
+        Assert.assertEquals("on master", Files.toString(file1, Charsets.UTF_8));
+        Assert.assertFalse(GitUtils.hasLocalBranch(git.getRepository(), "feature/feature1"));
+        Assert.assertEquals(feature2, git.getRepository().resolve("refs/heads/feature/feature2"));
+        Assert.assertTrue(GitUtils.hasLocalBranch(git.getRepository(), "feature/feature3"));
+    }
+
+}
@@ -0,0 +1,188 @@
+package org.talend.geat.commands;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.talend.geat.GitUtils;
+import org.talend.geat.JUnitUtils;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.CharStreams;
+import com.google.common.io.Files;
+
+/**
+ * Smoke tests of the native executable (see the native profile in pom.xml): every command is run by the executable,
+ * in a new process, against temporary repositories. Missing reflection or resources metadata shows up here.
+ * 
+ * Skipped if the executable has not been built (geat.native system property, set by the profile).
+ */
+public class NativeCommandsIT {
+
+    private File executable;
+
+    @Before
+    public void before() {
+        String path = System.getProperty("geat.native");
+        Assume.assumeTrue(path != null && new File(path).canExecute());
+        executable = new File(path);
+    }
+
+    @Test
+    public void testHelp() throws IOException, InterruptedException {
+        String output = run(Files.createTempDir(), "help");
+        for (CommandEntry entry : CommandsRegistry.INSTANCE.orderedCommands) {
+            Assert.assertTrue(output, output.contains(entry.getNames().getMainName()));
+        }
+    }
+
+    @Test
+    public void testVersion() throws IOException, InterruptedException {
+        String output = run(Files.createTempDir(), "version");
+        Assert.assertTrue(output, output.startsWith("GitEasyAtTalend "));
+    }
+
+    @Test
+    public void testFeatureStartAndFinish() throws GitAPIException, IOException, InterruptedException {
+        Git git = JUnitUtils.createTempRepo();
+        JUnitUtils.createInitialCommit(git, "file1");
+        File root = git.getRepository().getWorkTree();
+
+        run(root, FeatureStart.NAME, "tagada");
+        Assert.assertEquals("feature/tagada", git.getRepository().getBranch());
+        Files.write("on feature", new File(root, "file1"), Charsets.UTF_8);
+        git.commit().setAll(true).setMessage("On feature").call();
+
+        run(root, FeatureFinish.NAME, "tagada", "rebase");
+        Assert.assertEquals("master", git.getRepository().getBranch());
+        Assert.assertFalse(GitUtils.hasLocalBranch(git.getRepository(), "feature/tagada"));
+        Assert.assertEquals("on feature", Files.toString(new File(root, "file1"), Charsets.UTF_8));
+    }
+
+    @Test
+    public void testFeaturePushAndPull() throws GitAPIException, IOException, InterruptedException {
+        Git origin = JUnitUtils.createTempRepo();
+        JUnitUtils.createInitialCommit(origin, "file1");
+        Git clone1 = cloneRepo(origin);
+        Git clone2 = cloneRepo(origin);
+        File root1 = clone1.getRepository().getWorkTree();
+
+        run(root1, FeatureStart.NAME, "tagada");
+        Files.write("on feature", new File(root1, "file1"), Charsets.UTF_8);
+        clone1.commit().setAll(true).setMessage("On feature").call();
+        run(root1, FeaturePush.NAME, "tagada");
+        Assert.assertTrue(GitUtils.hasLocalBranch(origin.getRepository(), "feature/tagada"));
+
+        run(clone2.getRepository().getWorkTree(), "feature-pull", "tagada");
+        Assert.assertEquals(clone1.getRepository().resolve("feature/tagada"),
+                clone2.getRepository().resolve("feature/tagada"));
+    }
+
+    @Test
+    public void testBugfixStartAndFinish() throws GitAPIException, IOException, InterruptedException {
+        Git git = JUnitUtils.createTempRepo();
+        JUnitUtils.createInitialCommit(git, "file1");
+        git.branchCreate().setName("maintenance/1.0").call();
+        File root = git.getRepository().getWorkTree();
+
+        run(root, BugfixStart.NAME, "tagada", "maintenance/1.0");
+        Assert.assertEquals("bugfix/1.0/tagada", git.getRepository().getBranch());
+        Files.write("fixed", new File(root, "file1"), Charsets.UTF_8);
+        git.commit().setAll(true).setMessage("Fix").call();
+
+        run(root, BugfixFinish.NAME, "tagada", "1.0", "rebase");
+        Assert.assertEquals("maintenance/1.0", git.getRepository().getBranch());
+        Assert.assertFalse(GitUtils.hasLocalBranch(git.getRepository(), "bugfix/1.0/tagada"));
+    }
+
+    @Test
+    public void testDaemonStatus() throws IOException, InterruptedException {
+        String output = run(Files.createTempDir(), Daemon.NAME, "status");
+        Assert.assertTrue(output, output.contains("No GEAT daemon running"));
+    }
+
+    @Test
+    public void testAgentStatus() throws IOException, InterruptedException {
+        String output = run(Files.createTempDir(), Agent.NAME, "status");
+        Assert.assertTrue(output, output.contains("No GEAT credentials agent running"));
+    }
+
+    @Test
+    public void testBatch() throws GitAPIException, IOException, InterruptedException {
+        Git git = JUnitUtils.createTempRepo();
+        JUnitUtils.createInitialCommit(git, "file1");
+        File root = git.getRepository().getWorkTree();
+        File input = new File(Files.createTempDir(), "commands.txt");
+        Files.write("cd " + root.getAbsolutePath() + "\n" + FeatureStart.NAME + " tagada\nversion\n", input,
+                Charsets.UTF_8);
+
+        String output = run(root, Batch.NAME, input.getAbsolutePath());
+        String[] results = output.trim().split("\n");
+        Assert.assertEquals(output, 2, results.length);
+        for (String result : results) {
+            Assert.assertTrue(output, result.contains("\"status\":\"ok\""));
+        }
+        Assert.assertEquals("feature/tagada", git.getRepository().getBranch());
+    }
+
+    @Test
+    public void testMergeTrain() throws GitAPIException, IOException, InterruptedException {
+        Git git = JUnitUtils.createTempRepo();
+        JUnitUtils.createInitialCommit(git, "file1");
+        git.branchCreate().setName("feature/tagada1").call();
+        git.branchCreate().setName("feature/tagada2").call();
+        git.checkout().setName("feature/tagada1").call();
+        JUnitUtils.createInitialCommit(git, "file2");
+        git.checkout().setName("feature/tagada2").call();
+        JUnitUtils.createInitialCommit(git, "file3");
+        git.checkout().setName("master").call();
+        File root = git.getRepository().getWorkTree();
+
+        run(root, MergeTrain.NAME, "tagada*", "--rebase");
+        Assert.assertEquals("master", git.getRepository().getBranch());
+        Assert.assertFalse(GitUtils.hasLocalBranch(git.getRepository(), "feature/tagada1"));
+        Assert.assertFalse(GitUtils.hasLocalBranch(git.getRepository(), "feature/tagada2"));
+        Assert.assertTrue(new File(root, "file2").exists());
+        Assert.assertTrue(new File(root, "file3").exists());
+    }
+
+    private static Git cloneRepo(Git origin) throws GitAPIException {
+        return Git.cloneRepository().setURI(origin.getRepository().getWorkTree().getAbsolutePath())
+                .setDirectory(Files.createTempDir()).call();
+    }
+
+    /**
+     * Runs the executable in this directory, without daemon and with an empty standard input.
+     * 
+     * @return what the command printed
+     */
+    private String run(File directory, String... args) throws IOException, InterruptedException {
+        List<String> commandLine = new ArrayList<String>();
+        commandLine.add(executable.getAbsolutePath());
+        commandLine.addAll(Arrays.asList(args));
+        ProcessBuilder builder = new ProcessBuilder(commandLine).directory(directory).redirectErrorStream(true);
+        builder.environment().put("GEAT_NO_DAEMON", "true");
+        Process process = builder.start();
+        process.getOutputStream().close();
+
+        InputStreamReader reader = new InputStreamReader(process.getInputStream(), Charsets.UTF_8);
+        String output;
+        try {
+            output = CharStreams.toString(reader);
+        } finally {
+            reader.close();
+        }
+        Assert.assertEquals(output, 0, process.waitFor());
+        return output;
+    }
+
+}
@@ -0,0 +1,133 @@
+package org.talend.geat.daemon;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+
+/**
+ * Compares cold (one JVM per command) and warm (forwarded to a daemon) latency of feature-start and feature-finish.
+ * 
+ * Not a JUnit test. Run it from the test classpath, for example:
+ * 
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.talend.geat.daemon.DaemonBenchmark -Dexec.args="20000 10"
+ * </pre>
+ * 
+ * Arguments are the number of files of the synthetic repository, and the number of start/finish cycles.
+ */
+public class DaemonBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int files = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int cycles = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        File repo = createRepository(files);
+        File daemonDir = Files.createTempDir();
+        File noDaemonDir = Files.createTempDir();
+
+        System.out.println("Repository with " + files + " files: " + repo);
+
+        List<Long> coldStart = new ArrayList<Long>();
+        List<Long> coldFinish = new ArrayList<Long>();
+        for (int i = 0; i < cycles; i++) {
+            coldStart.add(geat(repo, noDaemonDir, "feature-start", "cold" + i));
+            coldFinish.add(geat(repo, noDaemonDir, "feature-finish", "cold" + i, "rebase"));
+        }
+
+        Process daemon = java(repo, daemonDir, "daemon").start();
+        while (!new File(daemonDir, "daemon").exists()) {
+            try {
+                daemon.exitValue();
+                System.out.println(new String(ByteStreams.toByteArray(daemon.getInputStream())));
+                throw new IllegalStateException("Daemon did not start");
+            } catch (IllegalThreadStateException e) {
+                Thread.sleep(50);
+            }
+        }
+        List<Long> warmStart = new ArrayList<Long>();
+        List<Long> warmFinish = new ArrayList<Long>();
+        try {
+            for (int i = 0; i < cycles; i++) {
+                warmStart.add(geat(repo, daemonDir, "feature-start", "warm" + i));
+                warmFinish.add(geat(repo, daemonDir, "feature-finish", "warm" + i, "rebase"));
+            }
+        } finally {
+            geat(repo, daemonDir, "daemon", "stop");
+            daemon.waitFor();
+        }
+
+        System.out.println("                 cold (ms)  warm (ms)");
+        System.out.println(String.format("feature-start   %10d %10d", median(coldStart), median(warmStart)));
+        System.out.println(String.format("feature-finish  %10d %10d", median(coldFinish), median(warmFinish)));
+    }
+
+    private static File createRepository(int files) throws GitAPIException, IOException {
+        File dir = Files.createTempDir();
+        Git git = Git.init().setDirectory(dir).call();
+        for (int i = 0; i < files; i++) {
+            File file = new File(dir, "dir" + (i % 100) + "/file" + i + ".txt");
+            Files.createParentDirs(file);
+            Files.write("content of file " + i, file, Charsets.UTF_8);
+        }
+        git.add().addFilepattern(".").call();
+        git.commit().setMessage("Initial commit").call();
+        return dir;
+    }
+
+    private static ProcessBuilder java(File repo, File daemonDir, String... args) {
+        List<String> command = new ArrayList<String>();
+        command.add(new File(System.getProperty("java.home"), "bin/java").getAbsolutePath());
+        command.add("-cp");
+        command.add(absoluteClassPath());
+        command.add("-Dgeat.daemon.dir=" + daemonDir.getAbsolutePath());
+        command.add("org.talend.geat.GeatMain");
+        for (String arg : args) {
+            command.add(arg);
+        }
+        return new ProcessBuilder(command).directory(repo).redirectErrorStream(true);
+    }
+
+    /**
+     * Commands run in the repository folder, so relative entries (like target/classes) would be lost.
+     */
+    private static String absoluteClassPath() {
+        StringBuilder sb = new StringBuilder();
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            if (sb.length() > 0) {
+                sb.append(File.pathSeparator);
+            }
+            sb.append(new File(entry).getAbsolutePath());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return elapsed time in ms
+     */
+    private static long geat(File repo, File daemonDir, String... args) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        Process process = java(repo, daemonDir, args).start();
+        process.getOutputStream().close();
+        InputStream output = process.getInputStream();
+        ByteStreams.toByteArray(output);
+        process.waitFor();
+        return (System.nanoTime() - start) / 1000000;
+    }
+
+    private static long median(List<Long> values) {
+        List<Long> sorted = new ArrayList<Long>(values);
+        Collections.sort(sorted);
+        return sorted.get(sorted.size() / 2);
+    }
+
+}
@@ -0,0 +1,85 @@
+package org.talend.geat.daemon;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.talend.geat.Configuration;
+import org.talend.geat.GitUtils;
+import org.talend.geat.JUnitUtils;
+
+import com.google.common.io.Files;
+
+public class GeatDaemonTest {
+
+    private GeatDaemon daemon;
+
+    private Thread     serving;
+
+    @Before
+    public void before() throws IOException {
+        System.setProperty("geat.daemon.dir", Files.createTempDir().getAbsolutePath());
+        daemon = new GeatDaemon();
+        daemon.start();
+        serving = new Thread() {
+
+            @Override
+            public void run() {
+                try {
+                    daemon.serve();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+        serving.start();
+    }
+
+    @After
+    public void after() throws InterruptedException {
+        daemon.stop();
+        serving.join();
+        System.clearProperty("geat.daemon.dir");
+    }
+
+    private String forward(String... args) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int status = GeatClient.forward(args, new ByteArrayInputStream(new byte[0]), out);
+        Assert.assertEquals(0, status);
+        return out.toString();
+    }
+
+    @Test
+    public void testForwardVersion() {
+        Assert.assertTrue(GeatClient.isDaemonRunning());
+        Assert.assertTrue(forward("version").startsWith(Configuration.INSTANCE.getAsString("geat.name")));
+    }
+
+    @Test
+    public void testForwardUsesClientWorkingDir() throws GitAPIException, IOException {
+        Git git = JUnitUtils.createTempRepo();
+        JUnitUtils.createInitialCommit(git, "file1");
+
+        forward("feature-start", "tagada");
+        Assert.assertTrue(GitUtils.hasLocalBranch(git.getRepository(), "feature/tagada"));
+
+        String status = forward("daemon", "status");
+        Assert.assertTrue(status.contains(git.getRepository().getWorkTree().getAbsolutePath()));
+    }
+
+    @Test
+    public void testStop() throws InterruptedException {
+        Assert.assertTrue(forward("daemon", "stop").startsWith("GEAT daemon stopped"));
+        serving.join();
+        Assert.assertNull(DaemonEndpoint.read());
+        Assert.assertFalse(GeatClient.isDaemonRunning());
+        Assert.assertEquals(GeatClient.DAEMON_UNREACHABLE, GeatClient.forward(new String[] { "version" }));
+    }
+
+}
@@ -0,0 +1,127 @@
+package org.talend.geat.daemon;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.talend.geat.DirtyCheck;
+import org.talend.geat.JUnitUtils;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+public class WorkTreeWatcherTest {
+
+    @After
+    public void after() {
+        WorkTreeWatcher.stopAll();
+    }
+
+    @Test
+    public void testChanges() throws GitAPIException, IOException {
+        Git git = JUnitUtils.createTempRepo();
+        JUnitUtils.createInitialCommit(git, "file1");
+        File dir = new File(git.getRepository().getWorkTree(), "dir");
+        dir.mkdir();
+        File file2 = JUnitUtils.createInitialCommit(git, "dir/file2");
+        Assert.assertTrue(WorkTreeWatcher.watch(git.getRepository()));
+        WorkTreeWatcher watcher = WorkTreeWatcher.get(git.getRepository());
+
+        // Nothing known yet, whole tree has to be checked:
+        WorkTreeWatcher.Scan scan = watcher.startScan();
+        Assert.assertNull(scan.getChanges());
+        watcher.endScan(scan, true);
+
+        scan = watcher.startScan();
+        Assert.assertTrue(scan.getChanges().isEmpty());
+        watcher.endScan(scan, true);
+
+        Files.write("changed", file2, Charsets.UTF_8);
+        Files.write("untracked", new File(git.getRepository().getWorkTree(), "untracked"), Charsets.UTF_8);
+        scan = watcher.startScan();
+        Assert.assertTrue(scan.getChanges().contains("dir/file2"));
+        Assert.assertTrue(scan.getChanges().contains("untracked"));
+        watcher.endScan(scan, false);
+
+        // Dirty check failed, next one is a full one:
+        scan = watcher.startScan();
+        Assert.assertNull(scan.getChanges());
+        watcher.endScan(scan, true);
+
+        // Index written since last check:
+        git.add().addFilepattern("dir/file2").call();
+        scan = watcher.startScan();
+        Assert.assertNull(scan.getChanges());
+        watcher.endScan(scan, true);
+    }
+
+    @Test
+    public void testDirectoryCreatedAgain() throws GitAPIException, IOException {
+        Git git = JUnitUtils.createTempRepo();
+        JUnitUtils.createInitialCommit(git, "file1");
+        File dir = new File(git.getRepository().getWorkTree(), "dir");
+        dir.mkdir();
+        File file2 = JUnitUtils.createInitialCommit(git, "dir/file2");
+        Assert.assertTrue(WorkTreeWatcher.watch(git.getRepository()));
+        WorkTreeWatcher watcher = WorkTreeWatcher.get(git.getRepository());
+        WorkTreeWatcher.Scan scan = watcher.startScan();
+        watcher.endScan(scan, true);
+
+        String content = Files.toString(file2, Charsets.UTF_8);
+        file2.delete();
+        dir.delete();
+        dir.mkdir();
+        Files.write(content, file2, Charsets.UTF_8);
+        scan = watcher.startScan();
+        Assert.assertNull(scan.getChanges());
+        watcher.endScan(scan, true);
+
+        scan = watcher.startScan();
+        Assert.assertTrue(scan.getChanges().isEmpty());
+        watcher.endScan(scan, true);
+
+        // Watched again:
+        Files.write("changed", file2, Charsets.UTF_8);
+        scan = watcher.startScan();
+        Assert.assertTrue(scan.getChanges().contains("dir/file2"));
+        watcher.endScan(scan, false);
+    }
+
+    @Test
+    public void testNotLinux() throws GitAPIException, IOException {
+        Git git = JUnitUtils.createTempRepo();
+        JUnitUtils.createInitialCommit(git, "file1");
+        String osName = System.getProperty("os.name");
+        System.setProperty("os.name", "Mac OS X");
+        try {
+            Assert.assertFalse(WorkTreeWatcher.watch(git.getRepository()));
+        } finally {
+            System.setProperty("os.name", osName);
+        }
+        Assert.assertNull(WorkTreeWatcher.get(git.getRepository()));
+    }
+
+    @Test
+    public void testDirtyCheck()throws GitAPIException, IOException {
+        Git git = JUnitUtils.createTempRepo();
+        File file1 = JUnitUtils.createInitialCommit(git, "file1");
+        JUnitUtils.createInitialCommit(git, "file2");
+        Assert.assertTrue(WorkTreeWatcher.watch(git.getRepository()));
+
+        Assert.assertNull(DirtyCheck.findFirstChange(git.getRepository()));
+        Assert.assertNull(DirtyCheck.findFirstChange(git.getRepository()));
+
+        Files.write("changed", file1, Charsets.UTF_8);
+        Assert.assertEquals("file1", DirtyCheck.findFirstChange(git.getRepository()));
+
+        file1.delete();
+        file1.createNewFile();
+        Assert.assertNull(DirtyCheck.findFirstChange(git.getRepository()));
+        Assert.assertNull(DirtyCheck.findFirstChange(git.getRepository()));
+    }
+
+}
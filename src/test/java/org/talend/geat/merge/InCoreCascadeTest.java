@@ -0,0 +1,86 @@
+package org.talend.geat.merge;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.Assert;
+import org.junit.Test;
+import org.talend.geat.JUnitUtils;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+public class InCoreCascadeTest {
+
+    private static final List<String> LINES = Arrays.asList("maintenance/1.1", "master");
+
+    @Test
+    public void testCascade() throws GitAPIException, IOException {
+        Git git = createRepoWithLines();
+
+        InCoreCascade cascade = new InCoreCascade(git.getRepository(), "bugfix/1.0/myBug", "maintenance/1.0", LINES,
+                false, new PatchIdCache(null));
+        cascade.setThreads(2);
+        Assert.assertTrue(cascade.call(null));
+        cascade.release();
+
+        Assert.assertEquals(LINES, cascade.getPorted());
+        Assert.assertEquals("maintenance/1.0", git.getRepository().getBranch());
+        for (String line : LINES) {
+            git.checkout().setName(line).call();
+            Assert.assertTrue(line, new File(git.getRepository().getWorkTree(), "fix").exists());
+        }
+    }
+
+    @Test
+    public void testInterrupted() throws GitAPIException, IOException {
+        Git git = createRepoWithLines();
+        ObjectId[] before = resolve(git);
+
+        InCoreCascade cascade = new InCoreCascade(git.getRepository(), "bugfix/1.0/myBug", "maintenance/1.0", LINES,
+                false, new PatchIdCache(null));
+        Thread.currentThread().interrupt();
+        try {
+            cascade.call(null);
+            Assert.fail();
+        } catch (IOException e) {
+            // Expected: picks are waited for and released, nothing is moved
+        } finally {
+            Thread.interrupted();
+            cascade.release();
+        }
+
+        Assert.assertArrayEquals(before, resolve(git));
+        Assert.assertEquals("master", git.getRepository().getBranch());
+        Assert.assertTrue(git.status().call().isClean());
+    }
+
+    private static ObjectId[] resolve(Git git) throws IOException {
+        return new ObjectId[] { git.getRepository().resolve("maintenance/1.0"),
+                git.getRepository().resolve("maintenance/1.1"), git.getRepository().resolve("master") };
+    }
+
+    private static Git createRepoWithLines() throws GitAPIException, IOException {
+        Git git = JUnitUtils.createTempRepo();
+        JUnitUtils.createInitialCommit(git, "file1");
+        git.branchCreate().setName("maintenance/1.0").call();
+        git.branchCreate().setName("maintenance/1.1").call();
+        for (String line : new String[] { "maintenance/1.1", "master" }) {
+            git.checkout().setName(line).call();
+            JUnitUtils.createInitialCommit(git, line.replace('/', '-'));
+        }
+        git.checkout().setName("maintenance/1.0").call();
+        git.checkout().setCreateBranch(true).setName("bugfix/1.0/myBug").call();
+        Files.write("fixed", new File(git.getRepository().getWorkTree(), "fix"), Charsets.UTF_8);
+        git.add().addFilepattern("fix").call();
+        git.commit().setMessage("Fix myBug").call();
+        git.checkout().setName("master").call();
+        return git;
+    }
+
+}
@@ -0,0 +1,171 @@
+package org.talend.geat.merge;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.junit.Assert;
+import org.junit.Test;
+import org.talend.geat.JUnitUtils;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+public class InCoreRebaseTest {
+
+    @Test
+    public void testRebase() throws GitAPIException, IOException {
+        Git git = JUnitUtils.createTempRepo();
+        JUnitUtils.createInitialCommit(git, "file1");
+        git.checkout().setCreateBranch(true).setName("feature/feature1").call();
+        File file2 = JUnitUtils.createInitialCommit(git, "file2");
+        Files.write("changed", file2, Charsets.UTF_8);
+        git.commit().setAll(true).setMessage("Change file2").setAuthor(new PersonIdent("someone", "some@one.org"))
+                .call();
+        git.checkout().setName("master").call();
+        File file3 = JUnitUtils.createInitialCommit(git, "file3");
+        ObjectId master = git.getRepository().resolve("master");
+
+        InCoreRebase rebase = new InCoreRebase(git.getRepository(), "feature/feature1", "master",
+                new PatchIdCache(null));
+        Assert.assertTrue(rebase.call());
+        rebase.release();
+        Assert.assertEquals(2, rebase.getReplayed());
+
+        ObjectId newHead = git.getRepository().resolve("master");
+        Assert.assertEquals(newHead, git.getRepository().resolve("feature/feature1"));
+        RevWalk walk = new RevWalk(git.getRepository());
+        RevCommit head = walk.parseCommit(newHead);
+        Assert.assertEquals("Change file2", head.getFullMessage());
+        Assert.assertEquals("someone", head.getAuthorIdent().getName());
+        RevCommit parent = walk.parseCommit(head.getParent(0));
+        Assert.assertEquals(master, parent.getParent(0));
+        walk.release();
+
+        Assert.assertEquals("master", git.getRepository().getBranch());
+        Assert.assertEquals("changed", Files.toString(file2, Charsets.UTF_8));
+        Assert.assertTrue(file3.exists());
+        Assert.assertTrue(git.status().call().isClean());
+    }
+
+    @Test
+    public void testRebaseTargetIsAncestor() throws GitAPIException, IOException {
+        Git git = JUnitUtils.createTempRepo();
+        JUnitUtils.createInitialCommit(git, "file1");
+        git.checkout().setCreateBranch(true).setName("feature/feature1").call();
+        JUnitUtils.createInitialCommit(git, "file2");
+        ObjectId feature = git.getRepository().resolve("feature/feature1");
+
+        InCoreRebase rebase = new InCoreRebase(git.getRepository(), "feature/feature1", "master",
+                new PatchIdCache(null));
+        Assert.assertTrue(rebase.call());
+        rebase.release();
+
+        // Commits are kept as is, master is only fast-forwarded:
+        Assert.assertEquals(0, rebase.getReplayed());
+        Assert.assertEquals(feature, git.getRepository().resolve("master"));
+        Assert.assertEquals("master", git.getRepository().getBranch());
+        Assert.assertTrue(git.status().call().isClean());
+    }
+
+    @Test
+    public void testRebaseConflict() throws GitAPIException, IOException {
+        Git git = JUnitUtils.createTempRepo();
+        File file1 = JUnitUtils.createInitialCommit(git, "file1");
+        git.checkout().setCreateBranch(true).setName("feature/feature1").call();
+        Files.write("feature", file1, Charsets.UTF_8);
+        git.commit().setAll(true).setMessage("On feature").call();
+        ObjectId feature = git.getRepository().resolve("feature/feature1");
+        git.checkout().setName("master").call();
+        Files.write("master", file1, Charsets.UTF_8);
+        git.commit().setAll(true).setMessage("On master").call();
+        ObjectId master = git.getRepository().resolve("master");
+
+        InCoreRebase rebase = new InCoreRebase(git.getRepository(), "feature/feature1", "master",
+                new PatchIdCache(null));
+        Assert.assertFalse(rebase.call());
+        rebase.release();
+
+        Assert.assertEquals(master, git.getRepository().resolve("master"));
+        Assert.assertEquals(feature, git.getRepository().resolve("feature/feature1"));
+        Assert.assertEquals("master", Files.toString(file1, Charsets.UTF_8));
+        Assert.assertTrue(git.status().call().isClean());
+    }
+
+    @Test
+    public void testRebaseSkipsUpstreamCommits() throws GitAPIException, IOException {
+        Git git = JUnitUtils.createTempRepo();
+        File file1 = JUnitUtils.createInitialCommit(git, "file1");
+        git.checkout().setCreateBranch(true).setName("feature/feature1").call();
+        Files.write("fix\n", file1, Charsets.UTF_8);
+        RevCommit fix = git.commit().setAll(true).setMessage("Fix").call();
+        File file2 = JUnitUtils.createInitialCommit(git, "file2");
+
+        // Fix is cherry-picked on master, then changed again: replaying it would conflict
+        git.checkout().setName("master").call();
+        File file3 = JUnitUtils.createInitialCommit(git, "file3");
+        git.cherryPick().include(fix).call();
+        Files.write("fix\nmore\n", file1, Charsets.UTF_8);
+        git.commit().setAll(true).setMessage("More").call();
+
+        InCoreRebase rebase = new InCoreRebase(git.getRepository(), "feature/feature1", "master",
+                new PatchIdCache(null));
+        Assert.assertTrue(rebase.call());
+        rebase.release();
+        Assert.assertEquals(1, rebase.getSkipped());
+        Assert.assertEquals(1, rebase.getReplayed());
+
+        Assert.assertEquals("fix\nmore\n", Files.toString(file1, Charsets.UTF_8));
+        Assert.assertTrue(file2.exists());
+        Assert.assertTrue(file3.exists());
+        Assert.assertTrue(git.status().call().isClean());
+    }
+
+    @Test
+    public void testRebaseTargetMovedMeanwhile() throws GitAPIException, IOException {
+        final Git git = JUnitUtils.createTempRepo();
+        JUnitUtils.createInitialCommit(git, "file1");
+        git.checkout().setCreateBranch(true).setName("feature/feature1").call();
+        File file2 = JUnitUtils.createInitialCommit(git, "file2");
+        ObjectId feature = git.getRepository().resolve("feature/feature1");
+        git.checkout().setName("master").call();
+        git.checkout().setCreateBranch(true).setName("other").call();
+        final RevCommit other = git.commit().setMessage("Elsewhere").call();
+        git.checkout().setName("master").call();
+        JUnitUtils.createInitialCommit(git, "file3");
+
+        InCoreRebase rebase = new InCoreRebase(git.getRepository(), "feature/feature1", "master",
+                new PatchIdCache(null)) {
+
+            @Override
+            public RevCommit replayOn(ObjectId onto) throws IOException {
+                RevCommit rebased = super.replayOn(onto);
+                // Someone else moves master while commits are replayed:
+                RefUpdate update = git.getRepository().updateRef("refs/heads/master");
+                update.setNewObjectId(other);
+                update.forceUpdate();
+                return rebased;
+            }
+        };
+        try {
+            rebase.call();
+            Assert.fail();
+        } catch (IOException e) {
+            Assert.assertEquals("Cannot update 'master': LOCK_FAILURE", e.getMessage());
+        } finally {
+            rebase.release();
+        }
+
+        // Source put back, working tree untouched:
+        Assert.assertEquals(feature, git.getRepository().resolve("feature/feature1"));
+        Assert.assertEquals(other, git.getRepository().resolve("master"));
+        Assert.assertFalse(file2.exists());
+    }
+
+}
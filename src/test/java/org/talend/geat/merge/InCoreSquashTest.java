@@ -0,0 +1,125 @@
+package org.talend.geat.merge;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.junit.Assert;
+import org.junit.Test;
+import org.talend.geat.JUnitUtils;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+public class InCoreSquashTest {
+
+    @Test
+    public void testSquash() throws GitAPIException, IOException {
+        Git git = JUnitUtils.createTempRepo();
+        File file1 = JUnitUtils.createInitialCommit(git, "file1");
+        git.checkout().setCreateBranch(true).setName("feature/feature1").call();
+        File file2 = JUnitUtils.createInitialCommit(git, "file2");
+        JUnitUtils.createInitialCommit(git, "file3");
+        git.checkout().setName("master").call();
+        File file4 = JUnitUtils.createInitialCommit(git, "file4");
+        ObjectId master = git.getRepository().resolve("master");
+
+        // Not written again, as master and result have the same content for it:
+        file1.setLastModified(1000000000000L);
+
+        InCoreSquash squash = new InCoreSquash(git.getRepository(), "feature/feature1", "master");
+        Assert.assertTrue(squash.merge());
+        RevCommit commit = squash.commit("Finish feature feature1");
+        squash.release();
+
+        Assert.assertEquals(commit, git.getRepository().resolve("master"));
+        Assert.assertEquals(1, commit.getParentCount());
+        Assert.assertEquals(master, commit.getParent(0));
+        Assert.assertEquals("Finish feature feature1", commit.getFullMessage());
+        Assert.assertEquals("master", git.getRepository().getBranch());
+        Assert.assertTrue(file2.exists());
+        Assert.assertTrue(file4.exists());
+        Assert.assertEquals(1000000000000L, file1.lastModified());
+        Assert.assertTrue(git.status().call().isClean());
+    }
+
+    @Test
+    public void testSquashTargetIsAncestor() throws GitAPIException, IOException {
+        Git git = JUnitUtils.createTempRepo();
+        JUnitUtils.createInitialCommit(git, "file1");
+        git.checkout().setCreateBranch(true).setName("feature/feature1").call();
+        JUnitUtils.createInitialCommit(git, "file2");
+        JUnitUtils.createInitialCommit(git, "file3");
+        ObjectId feature = git.getRepository().resolve("feature/feature1");
+
+        // Current branch is the feature one:
+        InCoreSquash squash = new InCoreSquash(git.getRepository(), "feature/feature1", "master");
+        Assert.assertTrue(squash.merge());
+        RevCommit commit = squash.commit("Finish feature feature1");
+        squash.release();
+
+        RevWalk walk = new RevWalk(git.getRepository());
+        Assert.assertEquals(walk.parseCommit(feature).getTree(), commit.getTree());
+        walk.release();
+        Assert.assertEquals("master", git.getRepository().getBranch());
+        Assert.assertTrue(git.status().call().isClean());
+    }
+
+    @Test
+    public void testSquashConflict() throws GitAPIException, IOException {
+        Git git = JUnitUtils.createTempRepo();
+        File file1 = JUnitUtils.createInitialCommit(git, "file1");
+        git.checkout().setCreateBranch(true).setName("feature/feature1").call();
+        Files.write("feature", file1, Charsets.UTF_8);
+        git.commit().setAll(true).setMessage("On feature").call();
+        git.checkout().setName("master").call();
+        Files.write("master", file1, Charsets.UTF_8);
+        git.commit().setAll(true).setMessage("On master").call();
+        ObjectId master = git.getRepository().resolve("master");
+
+        InCoreSquash squash = new InCoreSquash(git.getRepository(), "feature/feature1", "master");
+        Assert.assertFalse(squash.merge());
+        squash.release();
+
+        Assert.assertEquals(master, git.getRepository().resolve("master"));
+        Assert.assertEquals("master", Files.toString(file1, Charsets.UTF_8));
+        Assert.assertTrue(git.status().call().isClean());
+    }
+
+    @Test
+    public void testSquashTargetMovedMeanwhile() throws GitAPIException, IOException {
+        Git git = JUnitUtils.createTempRepo();
+        JUnitUtils.createInitialCommit(git, "file1");
+        git.checkout().setCreateBranch(true).setName("feature/feature1").call();
+        File file2 = JUnitUtils.createInitialCommit(git, "file2");
+        git.checkout().setName("master").call();
+        git.checkout().setCreateBranch(true).setName("other").call();
+        RevCommit other = git.commit().setMessage("Elsewhere").call();
+        git.checkout().setName("master").call();
+
+        InCoreSquash squash = new InCoreSquash(git.getRepository(), "feature/feature1", "master");
+        Assert.assertTrue(squash.merge());
+        // Someone else moves master:
+        RefUpdate update = git.getRepository().updateRef("refs/heads/master");
+        update.setNewObjectId(other);
+        update.forceUpdate();
+        try {
+            squash.commit("Finish feature feature1");
+            Assert.fail();
+        } catch (IOException e) {
+            Assert.assertEquals("Cannot update 'master': LOCK_FAILURE", e.getMessage());
+        } finally {
+            squash.release();
+        }
+
+        // Working tree untouched:
+        Assert.assertEquals(other, git.getRepository().resolve("master"));
+        Assert.assertFalse(file2.exists());
+    }
+
+}
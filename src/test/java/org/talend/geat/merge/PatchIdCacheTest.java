@@ -0,0 +1,67 @@
+package org.talend.geat.merge;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Assert;
+import org.junit.Test;
+import org.talend.geat.JUnitUtils;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+public class PatchIdCacheTest {
+
+    @Test
+    public void testSameChangesSamePatchId() throws GitAPIException, IOException {
+        Git git = JUnitUtils.createTempRepo();
+        File file1 = JUnitUtils.createInitialCommit(git, "file1");
+        git.checkout().setCreateBranch(true).setName("other").call();
+        Files.write("fix\n", file1, Charsets.UTF_8);
+        RevCommit fix = git.commit().setAll(true).setMessage("Fix").call();
+        git.checkout().setName("master").call();
+        JUnitUtils.createInitialCommit(git, "file2");
+        RevCommit picked = git.cherryPick().include(fix).call().getNewHead();
+        RevCommit head = git.commit().setMessage("Nothing").call();
+
+        List<RevCommit> commits = new ArrayList<RevCommit>();
+        commits.add(fix);
+        commits.add(picked);
+        commits.add(head);
+        Map<ObjectId, ObjectId> patchIds = new PatchIdCache(null).getPatchIds(git.getRepository(), commits);
+        Assert.assertEquals(patchIds.get(fix), patchIds.get(picked));
+        Assert.assertFalse(patchIds.get(fix).equals(patchIds.get(head)));
+    }
+
+    @Test
+    public void testStored() throws GitAPIException, IOException {
+        Git git = JUnitUtils.createTempRepo();
+        File file1 = JUnitUtils.createInitialCommit(git, "file1");
+        List<RevCommit> commits = new ArrayList<RevCommit>();
+        // Enough commits to be computed in parallel:
+        for (int i = 0; i < 40; i++) {
+            Files.write("change " + i + "\n", file1, Charsets.UTF_8);
+            commits.add(git.commit().setAll(true).setMessage("Change " + i).call());
+        }
+
+        File file = new File(Files.createTempDir(), "patch-ids");
+        Map<ObjectId, ObjectId> patchIds = new PatchIdCache(file).getPatchIds(git.getRepository(), commits);
+        Assert.assertEquals(40, Files.readLines(file, Charsets.UTF_8).size());
+
+        for (RevCommit commit : commits) {
+            Assert.assertEquals(PatchIdCache.computePatchId(git.getRepository(), commit), patchIds.get(commit));
+        }
+
+        // Read from the file, nothing new to store:
+        Assert.assertEquals(patchIds, new PatchIdCache(file).getPatchIds(git.getRepository(), commits));
+        Assert.assertEquals(40, Files.readLines(file, Charsets.UTF_8).size());
+    }
+
+}
@@ -0,0 +1,88 @@
+package org.talend.geat.merge;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.MergeCommand.FastForwardMode;
+import org.eclipse.jgit.api.errors.GitAPIException;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+/**
+ * Compares a rebase finish through the working tree (checkout, RebaseCommand, checkout, fast-forward merge) with
+ * InCoreRebase.
+ * 
+ * Not a JUnit test. Run it from the test classpath, for example:
+ * 
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.talend.geat.merge.RebaseBenchmark -Dexec.args="100000 50"
+ * </pre>
+ * 
+ * Arguments are the number of files of the synthetic repository, and the number of commits of the feature branch.
+ */
+public class RebaseBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int files = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int commits = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        Git previous = createRepository(files, commits);
+        Git current = createRepository(files, commits);
+        System.out.println("Repository with " + files + " files, feature with " + commits + " commits");
+
+        long start = System.nanoTime();
+        previous.checkout().setName("feature/bench").call();
+        previous.rebase().setUpstream("master").call();
+        previous.checkout().setName("master").call();
+        previous.merge().setFastForward(FastForwardMode.FF_ONLY)
+                .include(previous.getRepository().getRef("feature/bench")).call();
+        long previousTime = (System.nanoTime() - start) / 1000000;
+
+        start = System.nanoTime();
+        InCoreRebase rebase = new InCoreRebase(current.getRepository(), "feature/bench", "master",
+                new PatchIdCache(null));
+        if (!rebase.call()) {
+            throw new IllegalStateException("Unexpected conflicts");
+        }
+        rebase.release();
+        long currentTime = (System.nanoTime() - start) / 1000000;
+
+        System.out.println("                       time (ms)");
+        System.out.println(String.format("RebaseCommand         %10d", previousTime));
+        System.out.println(String.format("InCoreRebase          %10d", currentTime));
+    }
+
+    /**
+     * User is on master, feature branch has its own commits and master moved since it started.
+     */
+    private static Git createRepository(int files, int commits) throws GitAPIException, IOException {
+        File dir = Files.createTempDir();
+        Git git = Git.init().setDirectory(dir).call();
+        for (int i = 0; i < files; i++) {
+            write(dir, i, "content of file " + i);
+        }
+        git.add().addFilepattern(".").call();
+        git.commit().setMessage("Initial commit").call();
+
+        git.checkout().setCreateBranch(true).setName("feature/bench").call();
+        for (int i = 0; i < commits; i++) {
+            write(dir, files - 1 - i, "feature change " + i);
+            git.commit().setAll(true).setMessage("Feature commit " + i).call();
+        }
+        git.checkout().setName("master").call();
+        for (int i = 0; i < commits; i++) {
+            write(dir, i, "master change " + i);
+        }
+        git.commit().setAll(true).setMessage("Master commit").call();
+        return git;
+    }
+
+    private static void write(File dir, int i, String content) throws IOException {
+        File file = new File(dir, "dir" + (i % 100) + "/file" + i + ".txt");
+        Files.createParentDirs(file);
+        Files.write(content, file, Charsets.UTF_8);
+    }
+
+}
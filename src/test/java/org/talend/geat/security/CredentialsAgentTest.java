@@ -0,0 +1,102 @@
+package org.talend.geat.security;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.talend.geat.daemon.DaemonEndpoint;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.KeyPair;
+
+public class CredentialsAgentTest {
+
+    private CredentialsAgent agent;
+
+    private Thread           serving;
+
+    @Before
+    public void before() throws IOException {
+        System.setProperty("geat.daemon.dir", Files.createTempDir().getAbsolutePath());
+        agent = new CredentialsAgent();
+        agent.start();
+        serving = new Thread() {
+
+            @Override
+            public void run() {
+                try {
+                    agent.serve();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+        serving.start();
+    }
+
+    @After
+    public void after() throws InterruptedException {
+        agent.stop();
+        serving.join();
+        System.clearProperty("geat.daemon.dir");
+    }
+
+    @Test
+    public void testPutGet() {
+        Assert.assertTrue(CredentialsAgentClient.isAgentRunning());
+        Assert.assertNull(CredentialsAgentClient.get("https:john@example.com"));
+        Assert.assertTrue(CredentialsAgentClient.put("https:john@example.com", "secret"));
+        Assert.assertEquals("secret", CredentialsAgentClient.get("https:john@example.com"));
+        Assert.assertTrue(CredentialsAgentClient.status().endsWith("1 credential(s) kept"));
+    }
+
+    @Test
+    public void testWrongToken() throws IOException {
+        CredentialsAgentClient.put("https:john@example.com", "secret");
+        new DaemonEndpoint(DaemonEndpoint.AGENT, agent.getPort(), "wrong").write();
+        Assert.assertNull(CredentialsAgentClient.get("https:john@example.com"));
+    }
+
+    @Test
+    public void testStop() throws InterruptedException {
+        CredentialsAgentClient.put("https:john@example.com", "secret");
+        Assert.assertTrue(CredentialsAgentClient.stop().startsWith("GEAT credentials agent stopped"));
+        serving.join();
+        Assert.assertNull(DaemonEndpoint.read(DaemonEndpoint.AGENT));
+        Assert.assertFalse(CredentialsAgentClient.isAgentRunning());
+        Assert.assertNull(CredentialsAgentClient.get("https:john@example.com"));
+    }
+
+    @Test
+    public void testAgentIdentities() throws JSchException, IOException {
+        File identity = new File(Files.createTempDir(), "id_rsa");
+        KeyPair keyPair = KeyPair.genKeyPair(new JSch(), KeyPair.RSA);
+        keyPair.setPassphrase("passphrase");
+        keyPair.writePrivateKey(identity.getAbsolutePath());
+        keyPair.dispose();
+
+        Assert.assertNull(CredentialsProviderSshBuilder.decrypt(identity.getAbsolutePath(), "wrong"));
+        String decrypted = CredentialsProviderSshBuilder.decrypt(identity.getAbsolutePath(), "passphrase");
+        File decryptedIdentity = new File(identity.getParentFile(), "decrypted");
+        Files.write(decrypted, decryptedIdentity, Charsets.US_ASCII);
+        Assert.assertFalse(KeyPair.load(new JSch(), decryptedIdentity.getAbsolutePath()).isEncrypted());
+
+        CredentialsAgentClient.put(CredentialsProviderSshBuilder.IDENTITY_KEY_PREFIX + identity.getAbsolutePath(),
+                decrypted);
+        JSch jsch = new JSch();
+        jsch.addIdentity(decryptedIdentity.getAbsolutePath());
+        jsch.addIdentity(identity.getAbsolutePath());
+        CredentialsProviderSshBuilder.useAgentIdentities(jsch);
+        // Others kept, in the same order:
+        Assert.assertEquals(2, jsch.getIdentityNames().size());
+        Assert.assertEquals(decryptedIdentity.getAbsolutePath(), jsch.getIdentityNames().get(0));
+        Assert.assertEquals(identity.getAbsolutePath(), jsch.getIdentityNames().get(1));
+    }
+
+}
@@ -0,0 +1,87 @@
+package org.talend.geat.security;
+
+import java.io.IOException;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.junit.Assert;
+import org.junit.Test;
+import org.talend.geat.GitUtils;
+import org.talend.geat.JUnitUtils;
+import org.talend.geat.RepositoryContext;
+import org.talend.geat.SanityCheck;
+import org.talend.geat.SanityCheck.CheckLevel;
+import org.talend.geat.commands.CommandsRegistry;
+import org.talend.geat.exception.IllegalCommandArgumentException;
+import org.talend.geat.exception.IncorrectRepositoryStateException;
+import org.talend.geat.exception.InterruptedCommandException;
+import org.talend.geat.io.DoNothingWriter;
+
+import com.google.common.io.Files;
+
+public class CredentialsManagerTest {
+
+    @Test
+    public void testLocalCommandsBuildNoCredentials() throws GitAPIException, IOException,
+            IncorrectRepositoryStateException, InterruptedCommandException {
+        // Unreachable, any network operation would fail:
+        Git git = createRepo("ssh://git.example.invalid/repo.git");
+        git.branchCreate().setName("feature/tagada").call();
+        int builders = CredentialsFactory.getBuildersCount();
+
+        RepositoryContext context = new RepositoryContext(git.getRepository());
+        SanityCheck.check(context, CheckLevel.NO_UNCOMMITTED_CHANGES);
+        GitUtils.checkout(context, "feature/tagada");
+        context.close();
+
+        try {
+            CommandsRegistry.INSTANCE.getCommand("feature-start").parseArgs(new String[] { "feature-start" });
+            Assert.fail();
+        } catch (IllegalCommandArgumentException e) {
+            // Expected
+        }
+        try {
+            CommandsRegistry.INSTANCE.getCommand("feature-start")
+                    .parseArgs(new String[] { "feature-start", "tagada" }).setWriter(new DoNothingWriter()).run();
+            Assert.fail();
+        } catch (IllegalCommandArgumentException e) {
+            Assert.fail();
+        } catch (IncorrectRepositoryStateException e) {
+            // Branch already exists
+        }
+
+        Assert.assertEquals(builders, CredentialsFactory.getBuildersCount());
+    }
+
+    @Test
+    public void testResolvedOncePerRemote() throws GitAPIException, IOException {
+        String remote = Files.createTempDir().getAbsolutePath();
+        Git git1 = createRepo(remote);
+        Git git2 = createRepo(remote);
+        Git git3 = createRepo(Files.createTempDir().getAbsolutePath());
+        int builders = CredentialsFactory.getBuildersCount();
+
+        DeferredCredentialsProvider provider = new DeferredCredentialsProvider(new RepositoryContext(
+                git1.getRepository()));
+        Assert.assertEquals(builders, CredentialsFactory.getBuildersCount());
+        Assert.assertFalse(provider.supports());
+        Assert.assertFalse(provider.supports());
+        Assert.assertEquals(builders + 1, CredentialsFactory.getBuildersCount());
+
+        new DeferredCredentialsProvider(new RepositoryContext(git2.getRepository())).supports();
+        Assert.assertEquals(builders + 1, CredentialsFactory.getBuildersCount());
+        new DeferredCredentialsProvider(new RepositoryContext(git3.getRepository())).supports();
+        Assert.assertEquals(builders + 2, CredentialsFactory.getBuildersCount());
+    }
+
+    private static Git createRepo(String originUrl) throws GitAPIException, IOException {
+        Git git = JUnitUtils.createTempRepo();
+        JUnitUtils.createInitialCommit(git, "file1");
+        StoredConfig config = git.getRepository().getConfig();
+        config.setString("remote", "origin", "url", originUrl);
+        config.save();
+        return git;
+    }
+
+}
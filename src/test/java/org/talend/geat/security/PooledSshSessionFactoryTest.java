@@ -0,0 +1,165 @@
+package org.talend.geat.security;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.errors.TransportException;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.transport.CredentialsProvider;
+import org.eclipse.jgit.transport.RemoteSession;
+import org.eclipse.jgit.transport.SshSessionFactory;
+import org.eclipse.jgit.transport.URIish;
+import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
+import org.eclipse.jgit.util.FS;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.talend.geat.JUnitUtils;
+import org.talend.geat.RepositoryContext;
+
+import com.google.common.io.Files;
+
+public class PooledSshSessionFactoryTest {
+
+    private SshSessionFactory      previousFactory;
+
+    private LocalSshSessionFactory localFactory;
+
+    private Git                    clone;
+
+    @Before
+    public void before() throws GitAPIException, IOException {
+        previousFactory = SshSessionFactory.getInstance();
+        localFactory = new LocalSshSessionFactory();
+        SshSessionFactory.setInstance(new PooledSshSessionFactory(localFactory));
+
+        Git origin = JUnitUtils.createTempRepo();
+        JUnitUtils.createInitialCommit(origin, "file1");
+        String originPath = origin.getRepository().getWorkTree().getAbsolutePath();
+        clone = Git.cloneRepository().setURI(originPath).setDirectory(Files.createTempDir()).call();
+        StoredConfig config = clone.getRepository().getConfig();
+        config.setString("remote", "origin", "url", "ssh://localhost" + originPath);
+        config.save();
+    }
+
+    @After
+    public void after() {
+        PooledSshSessionFactory.closeAll();
+        SshSessionFactory.setInstance(previousFactory);
+    }
+
+    @Test
+    public void testOneSessionPerHost() throws GitAPIException {
+        int channels = PooledSshSessionFactory.getChannelsCount();
+
+        RepositoryContext context = new RepositoryContext(clone.getRepository());
+        Assert.assertNotNull(context.getRemoteBranch("master"));
+        context.getGit().fetch().call();
+        clone.branchCreate().setName("feature/tagada").call();
+        context.getGit().push().add("feature/tagada").call();
+        context.getGit().fetch().call();
+
+        Assert.assertEquals(1, localFactory.sessions.size());
+        Assert.assertEquals(4, PooledSshSessionFactory.getChannelsCount() - channels);
+        Assert.assertTrue(localFactory.sessions.get(0).connected);
+
+        PooledSshSessionFactory.closeAll();
+        Assert.assertFalse(localFactory.sessions.get(0).connected);
+    }
+
+    @Test
+    public void testSessionClosedByServer() throws GitAPIException {
+        clone.fetch().call();
+        Assert.assertEquals(1, localFactory.sessions.size());
+
+        localFactory.sessions.get(0).connected = false;
+        clone.fetch().call();
+        Assert.assertEquals(2, localFactory.sessions.size());
+        Assert.assertTrue(localFactory.sessions.get(1).connected);
+    }
+
+    @Test
+    public void testOneSessionPerCredentials() throws IOException, URISyntaxException {
+        SshSessionFactory factory = SshSessionFactory.getInstance();
+        URIish uri = new URIish("ssh://git@localhost/repo");
+        CredentialsProvider credentials1 = new UsernamePasswordCredentialsProvider("user1", "");
+        CredentialsProvider credentials2 = new UsernamePasswordCredentialsProvider("user2", "");
+
+        RemoteSession session = factory.getSession(uri, credentials1, FS.DETECTED, 0);
+        Assert.assertSame(session, factory.getSession(uri, credentials1, FS.DETECTED, 0));
+        Assert.assertNotSame(session, factory.getSession(uri, credentials2, FS.DETECTED, 0));
+        Assert.assertEquals(2, localFactory.sessions.size());
+        Assert.assertSame(credentials2, localFactory.sessions.get(1).credentialsProvider);
+    }
+
+    @Test
+    public void testReopenWithLatestCredentials() throws IOException {
+        SshSessionFactory factory = SshSessionFactory.getInstance();
+        RepositoryContext context = new RepositoryContext(clone.getRepository());
+        URIish uri = context.getRemoteUrl("origin");
+        CredentialsProvider credentials1 = new DeferredCredentialsProvider(context);
+        // Another context on the same origin, e.g. the next command of a batch:
+        RepositoryContext nextContext = new RepositoryContext(clone.getRepository());
+        CredentialsProvider credentials2 = new DeferredCredentialsProvider(nextContext);
+
+        RemoteSession session = factory.getSession(uri, credentials1, FS.DETECTED, 0);
+        session.exec("true", 0).getOutputStream().close();
+        // Same origin, same credentials:
+        Assert.assertSame(session, factory.getSession(uri, credentials2, FS.DETECTED, 0));
+
+        localFactory.sessions.get(0).connected = false;
+        session.exec("true", 0).getOutputStream().close();
+        Assert.assertEquals(2, localFactory.sessions.size());
+        Assert.assertSame(credentials2, localFactory.sessions.get(1).credentialsProvider);
+    }
+
+    /**
+     * SSH stand-in: sessions run commands as local processes.
+     */
+    private static class LocalSshSessionFactory extends SshSessionFactory {
+
+        private List<LocalSession> sessions = new ArrayList<LocalSession>();
+
+        @Override
+        public RemoteSession getSession(URIish uri, CredentialsProvider credentialsProvider, FS fs, int tms)
+                throws TransportException {
+            LocalSession session = new LocalSession(uri, credentialsProvider);
+            sessions.add(session);
+            return session;
+        }
+
+    }
+
+    private static class LocalSession implements RemoteSession {
+
+        private final URIish              uri;
+
+        private final CredentialsProvider credentialsProvider;
+
+        private boolean                   connected = true;
+
+        public LocalSession(URIish uri, CredentialsProvider credentialsProvider) {
+            super();
+            this.uri = uri;
+            this.credentialsProvider = credentialsProvider;
+        }
+
+        public Process exec(String commandName, int timeout) throws IOException {
+            if (!connected) {
+                throw new TransportException(uri, "session is down");
+            }
+            return new ProcessBuilder("sh", "-c", commandName).start();
+        }
+
+        public void disconnect() {
+            connected = false;
+        }
+
+    }
+
+}
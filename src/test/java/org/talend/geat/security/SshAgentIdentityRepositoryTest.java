@@ -0,0 +1,123 @@
+package org.talend.geat.security;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.Signature;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Vector;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import com.jcraft.jsch.Identity;
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+
+public class SshAgentIdentityRepositoryTest {
+
+    private KeyPair                    keyPair;
+
+    private File                       starts;
+
+    private SshAgentIdentityRepository repository;
+
+    @Before
+    public void before() throws IOException, GeneralSecurityException, ClassNotFoundException {
+        File folder = Files.createTempDir();
+        File keyFile = new File(folder, "key");
+        keyPair = SshAgentStandIn.loadKeyPair(keyFile);
+        // Stand-in runs as a connector process would, each start is written to a file:
+        starts = new File(folder, "starts");
+        repository = new SshAgentIdentityRepository("sh", "-c", "echo started >> '" + starts.getPath() + "'; exec '"
+                + new File(System.getProperty("java.home"), "bin/java").getPath() + "' -cp '"
+                + System.getProperty("java.class.path") + "' " + SshAgentStandIn.class.getName() + " '"
+                + keyFile.getPath() + "'");
+    }
+
+    @After
+    public void after() {
+        repository.close();
+    }
+
+    @Test
+    public void testIdentities() throws IOException, JSchException {
+        Assert.assertTrue(repository.isAvailable());
+        Vector<Identity> identities = repository.getIdentities();
+        Assert.assertEquals(1, identities.size());
+        Identity identity = identities.get(0);
+        Assert.assertEquals("ssh-rsa", identity.getAlgName());
+        Assert.assertEquals(SshAgentStandIn.COMMENT, identity.getName());
+        Assert.assertFalse(identity.isEncrypted());
+        Assert.assertArrayEquals(SshAgentStandIn.getPublicKeyBlob((RSAPublicKey) keyPair.getPublic()),
+                identity.getPublicKeyBlob());
+
+        JSch jsch = new JSch();
+        jsch.setIdentityRepository(repository);
+        Assert.assertEquals(SshAgentStandIn.COMMENT, jsch.getIdentityNames().get(0));
+    }
+
+    @Test
+    public void testSignature() throws IOException, GeneralSecurityException {
+        byte[] data = "session data".getBytes(Charsets.UTF_8);
+        DataInputStream signatureBlob = new DataInputStream(new ByteArrayInputStream(repository.getIdentities().get(0)
+                .getSignature(data)));
+        Assert.assertEquals("ssh-rsa", new String(SshAgentIdentityRepository.readString(signatureBlob),
+                Charsets.UTF_8));
+
+        Signature signature = Signature.getInstance("SHA1withRSA");
+        signature.initVerify(keyPair.getPublic());
+        signature.update(data);
+        Assert.assertTrue(signature.verify(SshAgentIdentityRepository.readString(signatureBlob)));
+
+        Assert.assertNull(repository.sign(new byte[] { 1, 2, 3 }, data));
+    }
+
+    @Test
+    public void testOneConnector() throws IOException {
+        Identity identity = repository.getIdentities().get(0);
+        Assert.assertNotNull(identity.getSignature(new byte[] { 1 }));
+        Assert.assertNotNull(identity.getSignature(new byte[] { 2 }));
+        Assert.assertEquals(1, Files.readLines(starts, Charsets.UTF_8).size());
+
+        // Identities are kept until refreshed:
+        repository.close();
+        Assert.assertEquals(1, repository.getIdentities().size());
+        Assert.assertEquals(1, Files.readLines(starts, Charsets.UTF_8).size());
+        repository.refresh();
+        Assert.assertEquals(1, repository.getIdentities().size());
+        Assert.assertEquals(2, Files.readLines(starts, Charsets.UTF_8).size());
+    }
+
+    @Test
+    public void testNoAgent() {
+        SshAgentIdentityRepository repository = new SshAgentIdentityRepository("false");
+        Assert.assertFalse(repository.isAvailable());
+        Assert.assertTrue(repository.getIdentities().isEmpty());
+    }
+
+    @Test
+    public void testTimeout() {
+        // Reads nothing and answers nothing, writing to its standard error:
+        SshAgentIdentityRepository repository = new SshAgentIdentityRepository("sh", "-c",
+                "echo waiting >&2; sleep 60");
+        repository.setTimeout(200);
+        long start = System.currentTimeMillis();
+        Assert.assertFalse(repository.isAvailable());
+        Assert.assertTrue(System.currentTimeMillis() - start < 5000);
+
+        // Not asked anymore:
+        start = System.currentTimeMillis();
+        repository.refresh();
+        Assert.assertTrue(repository.getIdentities().isEmpty());
+        Assert.assertTrue(System.currentTimeMillis() - start < 100);
+    }
+
+}
@@ -0,0 +1,104 @@
+package org.talend.geat.security;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+
+import org.talend.geat.security.SshAgentIdentityRepository.SshBuffer;
+
+import com.google.common.base.Charsets;
+
+/**
+ * ssh-agent stand-in, speaking the agent protocol on its standard input and output, as a connector would. Holds one RSA
+ * key, read from the file given as argument.
+ */
+public class SshAgentStandIn {
+
+    public static final String COMMENT = "stand-in";
+
+    public static void main(String[] args) throws IOException, GeneralSecurityException, ClassNotFoundException {
+        KeyPair keyPair = loadKeyPair(new File(args[0]));
+        byte[] blob = getPublicKeyBlob((RSAPublicKey) keyPair.getPublic());
+
+        DataInputStream in = new DataInputStream(System.in);
+        DataOutputStream out = new DataOutputStream(System.out);
+        while (true) {
+            byte[] message;
+            try {
+                message = new byte[in.readInt()];
+            } catch (EOFException e) {
+                return;
+            }
+            in.readFully(message);
+            DataInputStream request = new DataInputStream(new ByteArrayInputStream(message));
+
+            SshBuffer answer = new SshBuffer();
+            int type = request.readUnsignedByte();
+            if (type == SshAgentIdentityRepository.REQUEST_IDENTITIES) {
+                answer.writeByte(SshAgentIdentityRepository.IDENTITIES_ANSWER);
+                answer.writeInt(1);
+                answer.writeString(blob);
+                answer.writeString(COMMENT.getBytes(Charsets.UTF_8));
+            } else if (type == SshAgentIdentityRepository.SIGN_REQUEST
+                    && Arrays.equals(blob, SshAgentIdentityRepository.readString(request))) {
+                Signature signature = Signature.getInstance("SHA1withRSA");
+                signature.initSign(keyPair.getPrivate());
+                signature.update(SshAgentIdentityRepository.readString(request));
+                SshBuffer signatureBlob = new SshBuffer();
+                signatureBlob.writeString("ssh-rsa".getBytes(Charsets.UTF_8));
+                signatureBlob.writeString(signature.sign());
+                answer.writeByte(SshAgentIdentityRepository.SIGN_RESPONSE);
+                answer.writeString(signatureBlob.toByteArray());
+            } else {
+                answer.writeByte(SshAgentIdentityRepository.FAILURE);
+            }
+            out.writeInt(answer.size());
+            out.write(answer.toByteArray());
+            out.flush();
+        }
+    }
+
+    /**
+     * @return the key pair stored in this file, generated on first call
+     */
+    public static KeyPair loadKeyPair(File file) throws IOException, GeneralSecurityException, ClassNotFoundException {
+        if (!file.exists()) {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(1024);
+            ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(file));
+            try {
+                out.writeObject(generator.generateKeyPair());
+            } finally {
+                out.close();
+            }
+        }
+        ObjectInputStream in = new ObjectInputStream(new FileInputStream(file));
+        try {
+            return (KeyPair) in.readObject();
+        } finally {
+            in.close();
+        }
+    }
+
+    public static byte[] getPublicKeyBlob(RSAPublicKey key) throws IOException {
+        SshBuffer blob = new SshBuffer();
+        blob.writeString("ssh-rsa".getBytes(Charsets.UTF_8));
+        blob.writeString(key.getPublicExponent().toByteArray());
+        blob.writeString(key.getModulus().toByteArray());
+        return blob.toByteArray();
+    }
+
+}